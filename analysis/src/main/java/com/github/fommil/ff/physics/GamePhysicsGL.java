@@ -16,6 +16,7 @@ package com.github.fommil.ff.physics;
 
 import com.github.fommil.ff.*;
 import com.github.fommil.ff.swos.PitchParser;
+import com.github.fommil.ff.swos.SoundParser;
 import com.github.fommil.ff.swos.SpriteParser;
 import com.github.fommil.ff.swos.TacticsParser;
 import org.ode4j.drawstuff.DrawStuff;
@@ -56,6 +57,7 @@ public class GamePhysicsGL extends dsFunctions {
 		b.setAwayKit(a.getHomeKit());
 
 		GamePhysics game = new GamePhysics(a, b, pitch);
+		game.addListener(new SoundListener(new SoundParser(Main.SWOS)));
 		Position ballStart = pitch.getPenaltySpotBottom();
 		game.getBall().setPosition(ballStart);
 
@@ -67,11 +69,14 @@ public class GamePhysicsGL extends dsFunctions {
 
 	private final LwjglKeyboardController controller;
 
+	private final GameLoop loop;
+
 	private ClassicView gv;
 
 	private GamePhysicsGL(GamePhysics game) {
 		this.game = game;
 		this.controller = new LwjglKeyboardController(game);
+		this.loop = new GameLoop(game, 0.01);
 	}
 
 	@Override
@@ -97,7 +102,7 @@ public class GamePhysicsGL extends dsFunctions {
 	public void step(boolean pause) {
 		controller.poll();
 
-		game.step(0.017); // ?? about 60Hz
+		double alpha = loop.update();
 
 		Position c = game.getBall().getPosition();
 		float[] xyz = {(float) c.x, (float) c.y - 5, 15f};
@@ -108,6 +113,7 @@ public class GamePhysicsGL extends dsFunctions {
 			// TODO: draw different colours for the teams/ball/goalies, etc
 			draw(geom, Color.RED);
 		}
+		gv.setAlpha(alpha);
 		gv.repaint();
 	}
 
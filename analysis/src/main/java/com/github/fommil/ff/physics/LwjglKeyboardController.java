@@ -17,8 +17,6 @@ package com.github.fommil.ff.physics;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
-import java.util.Collection;
 import java.util.Map;
 import org.lwjgl.input.Keyboard;
 
@@ -33,6 +31,9 @@ class LwjglKeyboardController {
 
 	private static final Map<Integer, Aftertouch> aftertouchLookup = Maps.newHashMap();
 
+	// the lookups as masks of Action and Aftertouch, for each key
+	private static final int[] keys, keyActions, keyAftertouches;
+
 	static {
 		actionLookup.put(Keyboard.KEY_UP, Action.UP);
 		actionLookup.put(Keyboard.KEY_DOWN, Action.DOWN);
@@ -47,44 +48,41 @@ class LwjglKeyboardController {
 		aftertouchLookup.put(Keyboard.KEY_DOWN, Aftertouch.DOWN);
 		aftertouchLookup.put(Keyboard.KEY_LEFT, Aftertouch.LEFT);
 		aftertouchLookup.put(Keyboard.KEY_RIGHT, Aftertouch.RIGHT);
-	}
 
-	private final Collection<Integer> lastKeys = Sets.newHashSet();
+		keys = new int[actionLookup.keySet().size()];
+		keyActions = new int[keys.length];
+		keyAftertouches = new int[keys.length];
+		int i = 0;
+		for (Integer key : actionLookup.keySet()) {
+			keys[i] = key;
+			keyActions[i] = Action.mask(actionLookup.get(key));
+			Aftertouch aftertouch = aftertouchLookup.get(key);
+			keyAftertouches[i] = aftertouch == null ? 0 : aftertouch.mask();
+			i++;
+		}
+	}
 
 	private final GamePhysics game;
 
+	// masks of Action and Aftertouch, as of the last poll
+	private int actions, aftertouches;
+
 	LwjglKeyboardController(GamePhysics game) {
 		this.game = game;
 	}
 
 	synchronized void poll() {
-		boolean change = false;
-		Collection<Action> allActions = Sets.newHashSet();
-		Collection<Aftertouch> aftertouches = Sets.newHashSet();
-		for (Integer key : actionLookup.keySet()) {
-			Collection<Action> theseActions = actionLookup.get(key);
-			Aftertouch aftertouch = aftertouchLookup.get(key);
-			boolean lastActive = lastKeys.contains(key);
-			boolean active = Keyboard.isKeyDown(key);
-			if (lastActive && !active) {
-				allActions.removeAll(theseActions);
-				aftertouches.remove(aftertouch);
-				change = true;
-				lastKeys.remove(key);
-			} else if (!lastActive && active) {
-				allActions.addAll(theseActions);
-				if (aftertouch != null)
-					aftertouches.add(aftertouch);
-				change = true;
-				lastKeys.add(key);
-			} else if (active) {
-				allActions.addAll(theseActions);
-				if (aftertouch != null)
-					aftertouches.add(aftertouch);
+		int pressed = 0, touched = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (Keyboard.isKeyDown(keys[i])) {
+				pressed |= keyActions[i];
+				touched |= keyAftertouches[i];
 			}
 		}
-		if (change) {
-			game.setUserActions(allActions, aftertouches);
-		}
+		if (pressed == actions && touched == aftertouches)
+			return;
+		actions = pressed;
+		aftertouches = touched;
+		game.setUserActions(actions, aftertouches);
 	}
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all the benchmarks with the GC profiler, so that both the throughput and the
+ * allocation per operation ({@code gc.alloc.rate.norm}) are reported. Any JMH command
+ * line options are honoured, e.g. a regular expression to select benchmarks.
+ *
+ * @author Samuel Halliday
+ */
+public class Benchmarks {
+
+	/**
+	 * @param args
+	 * @throws Exception
+	 */
+	public static final void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import java.util.concurrent.TimeUnit;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.github.fommil.ff.Pitch;
+
+/**
+ * Each {@link Broadphase} colliding a match (22 players) and a stress test (hundreds of
+ * bodies), the same scenes as {@code BroadphaseTest}.
+ *
+ * @author Samuel Halliday
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BroadphaseBenchmark {
+
+	public enum Strategy {
+
+		SIMPLE, HASH, SAP, GRID;
+
+		Broadphase create() {
+			switch (this) {
+				case SIMPLE:
+					return Broadphase.simple();
+				case HASH:
+					return Broadphase.hash();
+				case SAP:
+					return Broadphase.sweepAndPrune();
+				default:
+					return Broadphase.grid(new Pitch(), 2);
+			}
+		}
+	}
+
+	private static class Counter implements DNearCallback {
+
+		long count;
+
+		@Override
+		public void call(Object data, DGeom o1, DGeom o2) {
+			count++;
+		}
+	}
+
+	@Param
+	public Strategy strategy;
+
+	@Param({"1", "100", "300"})
+	public int balls;
+
+	private Broadphase broadphase;
+
+	private DummyPhysics physics;
+
+	private final Counter counter = new Counter();
+
+	@Setup
+	public void setUp() {
+		broadphase = strategy.create();
+		physics = DummyPhysics.createScene(broadphase, 22, balls, 0);
+	}
+
+	@TearDown
+	public void tearDown() {
+		physics.clean();
+	}
+
+	@Benchmark
+	public long collide() {
+		broadphase.collide(physics.space, counter);
+		return counter.count;
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import java.util.concurrent.TimeUnit;
+import org.ode4j.ode.DContact.DSurfaceParameters;
+import org.ode4j.ode.DContactBuffer;
+import org.ode4j.ode.DGeom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The collision callback (narrow phase and contact joint creation) and the
+ * {@link GameCollisionHandler} that decides the surface parameters, for the pairs
+ * that are most common during a game.
+ *
+ * @author Samuel Halliday
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CollisionBenchmark {
+
+	@Param
+	public Fixture fixture;
+
+	private GamePhysics game;
+
+	private Ball ball;
+
+	private Player player, other;
+
+	private DGeom ballGeom, playerGeom, otherGeom, ground;
+
+	private final GameCollisionHandler handler = new GameCollisionHandler();
+
+	private final DSurfaceParameters surface = new DContactBuffer(1).get(0).surface;
+
+	@Setup
+	public void setUp() {
+		game = fixture.create();
+		ball = game.getBall();
+		// the two outfield players closest to the ball
+		Position b = ball.getPosition();
+		for (Player p : game.getPlayers()) {
+			if (p instanceof Goalkeeper)
+				continue;
+			double d = p.getPosition().distance(b);
+			if (player == null || d < player.getPosition().distance(b)) {
+				other = player;
+				player = p;
+			} else if (other == null || d < other.getPosition().distance(b)) {
+				other = p;
+			}
+		}
+		ballGeom = Fixture.getGeom(game, ball);
+		playerGeom = Fixture.getGeom(game, player);
+		otherGeom = Fixture.getGeom(game, other);
+		ground = Fixture.getGround(game);
+	}
+
+	@TearDown
+	public void tearDown() {
+		game.clean();
+	}
+
+	@Benchmark
+	public void callBallGround() {
+		game.collision.call(null, ballGeom, ground);
+		game.joints.empty();
+	}
+
+	@Benchmark
+	public void callPlayerGround() {
+		game.collision.call(null, playerGeom, ground);
+		game.joints.empty();
+	}
+
+	@Benchmark
+	public void callPlayerPlayer() {
+		game.collision.call(null, playerGeom, otherGeom);
+		game.joints.empty();
+	}
+
+	@Benchmark
+	public boolean handlerBallGround() {
+		return handler.collide(ball, surface);
+	}
+
+	@Benchmark
+	public boolean handlerBallPlayer() {
+		return handler.collide(ball, player, surface);
+	}
+
+	@Benchmark
+	public boolean handlerPlayerPlayer() {
+		return handler.collide(player, other, surface);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import org.ode4j.ode.DBody;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DPlane;
+import com.github.fommil.ff.Pitch;
+import com.github.fommil.ff.Team;
+
+/**
+ * Realistic game situations to benchmark against.
+ *
+ * @author Samuel Halliday
+ */
+public enum Fixture {
+
+	/**
+	 * Everybody in position, the ball still on the centre spot.
+	 */
+	KICK_OFF,
+	/**
+	 * The ball on the edge of the six yard box, with the attackers crowded around it.
+	 */
+	GOALMOUTH_SCRAMBLE,
+	/**
+	 * The ball rolling diagonally across the pitch.
+	 */
+	ROLLING_BALL,
+	/**
+	 * Five seconds into a match played by a {@link ComputerController}, with the players
+	 * away from the ball standing in position.
+	 */
+	OPEN_PLAY;
+
+	/**
+	 * @return a new game set up in this situation, which must be cleaned by the caller.
+	 */
+	public GamePhysics create() {
+		Team a = new Team();
+		a.setCurrentTactics(DummyTactics.create());
+		Team b = new Team();
+		b.setCurrentTactics(DummyTactics.create());
+		Pitch pitch = new Pitch();
+		GamePhysics game = new GamePhysics(a, b, pitch);
+
+		Ball ball = game.getBall();
+		switch (this) {
+			case GOALMOUTH_SCRAMBLE:
+				Position goal = pitch.getGoalTop();
+				Position spot = new Position(goal.x + 1, goal.y - 6, 0);
+				ball.setPosition(spot);
+				int i = 0;
+				for (Player player : game.getPlayers()) {
+					if (player instanceof Goalkeeper)
+						continue;
+					double angle = 2 * Math.PI * i++ / 10;
+					player.setPosition(new Position(spot.x + 1.5 * Math.sin(angle), spot.y + 1.5 * Math.cos(angle), 0));
+				}
+				break;
+			case ROLLING_BALL:
+				ball.setVelocity(new Velocity(4, 6, 0));
+				break;
+			case OPEN_PLAY:
+				ComputerController controller = new ComputerController(game);
+				for (int t = 0; t < 500; t++) {
+					controller.update();
+					game.step(0.01);
+				}
+				break;
+		}
+		return game;
+	}
+
+	static Goalpost getGoalpost(Physics physics) {
+		for (DGeom geom : physics.getGeoms()) {
+			DBody body = geom.getBody();
+			if (body != null && body.getData() instanceof Goalpost)
+				return (Goalpost) body.getData();
+		}
+		throw new IllegalStateException("no goalpost");
+	}
+
+	static DGeom getGround(Physics physics) {
+		for (DGeom geom : physics.getGeoms()) {
+			if (geom instanceof DPlane)
+				return geom;
+		}
+		throw new IllegalStateException("no ground");
+	}
+
+	static DGeom getGeom(Physics physics, Object owner) {
+		for (DGeom geom : physics.getGeoms()) {
+			DBody body = geom.getBody();
+			if (body != null && body.getData() == owner)
+				return geom;
+		}
+		throw new IllegalStateException("no geometry for " + owner);
+	}
+}
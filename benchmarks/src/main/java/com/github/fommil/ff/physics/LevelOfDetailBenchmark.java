@@ -0,0 +1,96 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A time step of the game played by a {@link ComputerController}, with and without
+ * {@link GamePhysics#setLevelOfDetail(boolean) level of detail} and
+ * {@link GamePhysics#setKinematicRadius(double) kinematic players}. The
+ * {@link Fixture#OPEN_PLAY} fixture is the typical case, where most of the players are
+ * away from the ball. As {@link PhysicsBenchmark}, every invocation plays a second from
+ * the restored fixture.
+ *
+ * @author Samuel Halliday
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LevelOfDetailBenchmark {
+
+	private static final int STEPS = 100;
+
+	@Param
+	public Fixture fixture;
+
+	@Param({"true", "false"})
+	public boolean levelOfDetail;
+
+	@Param({"true", "false"})
+	public boolean kinematic;
+
+	private GamePhysics game;
+
+	private ComputerController controller;
+
+	private RewindBuffer rewind;
+
+	private int start;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		game = fixture.create();
+		game.setLevelOfDetail(levelOfDetail);
+		if (!kinematic)
+			game.setKinematicRadius(Double.POSITIVE_INFINITY);
+		controller = new ComputerController(game);
+		rewind = new RewindBuffer(game, 1);
+		rewind.capture();
+		start = game.getTick();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		game.clean();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public void step() {
+		rewind.restore(start);
+		for (int i = 0; i < STEPS; i++) {
+			controller.update();
+			game.step(0.01);
+		}
+	}
+}
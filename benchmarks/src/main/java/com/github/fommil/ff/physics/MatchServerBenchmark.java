@@ -0,0 +1,125 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Lists;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import com.github.fommil.ff.Pitch;
+import com.github.fommil.ff.Team;
+
+/**
+ * Load tests a {@link MatchServer} over loopback with many simulated controllers, two to
+ * a match, that change their input every few time steps. Reports the lateness of the
+ * server's time steps and the jitter of the states arriving at the clients, as
+ * percentiles. This is not a JMH benchmark because the interesting numbers are the
+ * distribution in real time, not the cost per operation.
+ *
+ * @author Samuel Halliday
+ */
+public class MatchServerBenchmark {
+
+	private static final Logger log = Logger.getLogger(MatchServerBenchmark.class.getName());
+
+	private static final double dt = 0.01;
+
+	private static final int TICKS_PER_UPDATE = 5;
+
+	// how often, in states, a controller changes its input
+	private static final int PRESS = 4;
+
+	/**
+	 * @param args the number of controllers (default 200), seconds (default 30), selector
+	 * threads (default 1) and worker threads (default: the number of processors)
+	 * @throws Exception
+	 */
+	public static final void main(String[] args) throws Exception {
+		int controllers = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 30;
+		int selectors = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		MatchServer server = new MatchServer(new InetSocketAddress(loopback, 0), dt, TICKS_PER_UPDATE, selectors, workers);
+		for (int i = 0; i < (controllers + 1) / 2; i++) {
+			Team a = new Team();
+			a.setCurrentTactics(DummyTactics.create());
+			Team b = new Team();
+			b.setCurrentTactics(DummyTactics.create());
+			server.host(a, b, new Pitch(), i);
+		}
+
+		Selector selector = Selector.open();
+		List<MatchClient> clients = Lists.newArrayList();
+		for (int i = 0; i < controllers; i++) {
+			SocketChannel channel = SocketChannel.open(server.getAddress());
+			MatchClient client = new MatchClient(channel);
+			client.join(i / 2, i % 2);
+			channel.register(selector, SelectionKey.OP_READ, client);
+			clients.add(client);
+		}
+
+		// from the expected arrival of each state to its actual arrival, in microseconds
+		Histogram jitter = new Histogram();
+		long period = TimeUnit.MILLISECONDS.toMicros(Math.round(1000 * dt * TICKS_PER_UPDATE));
+		long[] arrivals = new long[controllers];
+		Random random = new Random(0);
+		server.getLateness().reset();
+		long start = System.nanoTime();
+		long end = start + Math.round(seconds * TimeUnit.SECONDS.toNanos(1));
+		while (System.nanoTime() < end) {
+			selector.select(100);
+			long now = System.nanoTime() / 1000;
+			for (SelectionKey key : selector.selectedKeys()) {
+				MatchClient client = (MatchClient) key.attachment();
+				if (!client.receive())
+					continue;
+				int i = clients.indexOf(client);
+				if (arrivals[i] != 0)
+					jitter.record(Math.abs(now - arrivals[i] - period));
+				arrivals[i] = now;
+				if (client.getStates() % PRESS == 0)
+					client.send(random.nextInt(1 << 9));
+			}
+			selector.selectedKeys().clear();
+		}
+		double wall = (System.nanoTime() - start) / 1000000000.0;
+
+		long ticks = 0;
+		int fewest = Integer.MAX_VALUE, most = 0;
+		for (int i = 0; i < server.getMatches(); i++) {
+			int tick = server.getGame(i).getTick();
+			ticks += tick;
+			fewest = Math.min(fewest, tick);
+			most = Math.max(most, tick);
+		}
+		log.info(controllers + " controllers in " + server.getMatches() + " matches for " + wall + "s, "
+				+ ticks / (wall * server.getMatches() / dt) + " of the expected time steps, "
+				+ fewest + " to " + most + " per match");
+		log.info("server time step lateness (us): " + server.getLateness());
+		log.info("client state jitter (us): " + jitter);
+		log.info(server.getSkipped() + " states skipped for slow clients");
+
+		selector.close();
+		server.close();
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.github.fommil.ff.Direction;
+import com.github.fommil.ff.Tactics;
+import com.github.fommil.ff.Tactics.BallZone;
+import com.github.fommil.ff.Tactics.PlayerZone;
+
+/**
+ * The model and controller methods that are called for every player (or the ball)
+ * on every time step.
+ *
+ * @author Samuel Halliday
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModelBenchmark {
+
+	@Param
+	public Fixture fixture;
+
+	private GamePhysics game;
+
+	private Player player;
+
+	private Ball ball;
+
+	private Goalpost goalpost;
+
+	private Tactics tactics;
+
+	private BallZone zone;
+
+	private final int actions = Action.UP.mask() | Action.RIGHT.mask();
+
+	private final int aftertouches = Aftertouch.LEFT.mask();
+
+	@Setup
+	public void setUp() {
+		game = fixture.create();
+		player = game.getSelected();
+		ball = game.getBall();
+		goalpost = Fixture.getGoalpost(game);
+		tactics = game.getTeamA().getCurrentTactics();
+		zone = ball.getZone(game.getPitch());
+	}
+
+	@TearDown
+	public void tearDown() {
+		game.clean();
+	}
+
+	@Benchmark
+	public Player.PlayerState playerGetState() {
+		return player.getState();
+	}
+
+	@Benchmark
+	public void playerSetActions() {
+		player.setActions(actions);
+	}
+
+	@Benchmark
+	public void ballSetAftertouch() {
+		ball.setAftertouch(aftertouches);
+	}
+
+	@Benchmark
+	public boolean goalpostIsOverLine() {
+		return goalpost.isOverLine(ball);
+	}
+
+	@Benchmark
+	public PlayerZone tacticsGetZone() {
+		return tactics.getZone(zone, player.getShirt(), Direction.NORTH);
+	}
+}
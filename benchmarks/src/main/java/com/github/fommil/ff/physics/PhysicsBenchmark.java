@@ -0,0 +1,80 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A full time step of the game. Every invocation restores the fixture with a
+ * {@link RewindBuffer} and measures a second of play from it, so that the situation does
+ * not drift away from the fixture during an iteration.
+ *
+ * @author Samuel Halliday
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PhysicsBenchmark {
+
+	private static final int STEPS = 100;
+
+	@Param
+	public Fixture fixture;
+
+	private GamePhysics game;
+
+	private RewindBuffer rewind;
+
+	private int start;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		game = fixture.create();
+		rewind = new RewindBuffer(game, 1);
+		rewind.capture();
+		start = game.getTick();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		game.clean();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public void step() {
+		rewind.restore(start);
+		for (int i = 0; i < STEPS; i++) {
+			game.step(0.01);
+		}
+	}
+}
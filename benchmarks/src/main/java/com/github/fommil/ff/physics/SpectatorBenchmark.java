@@ -0,0 +1,142 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Lists;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Broadcasts a match, played in real time, to many {@link SpectatorClient}s over loopback
+ * and reports the bandwidth per spectator and the CPU used by the {@link SpectatorServer}.
+ * This is not a JMH benchmark because the interesting numbers are per second of game
+ * time, not per operation.
+ *
+ * @author Samuel Halliday
+ */
+public class SpectatorBenchmark {
+
+	private static final Logger log = Logger.getLogger(SpectatorBenchmark.class.getName());
+
+	private static final double dt = 0.01;
+
+	private static final int TICKS_PER_SNAPSHOT = 10;
+
+	// UDP and IPv4
+	private static final int HEADERS = 28;
+
+	/**
+	 * @param args the number of spectators (default 2000) and seconds (default 30)
+	 * @throws Exception
+	 */
+	public static final void main(String[] args) throws Exception {
+		int spectators = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 30;
+
+		GamePhysics game = Fixture.KICK_OFF.create();
+		ComputerController controller = new ComputerController(game);
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		DatagramChannel channel = DatagramChannel.open();
+		channel.socket().bind(new InetSocketAddress(loopback, 0));
+		SpectatorServer server = new SpectatorServer(game, channel, TICKS_PER_SNAPSHOT, spectators);
+		Thread serverThread = new Thread(server, "spectators");
+		serverThread.start();
+
+		SocketAddress address = channel.socket().getLocalSocketAddress();
+		final Selector selector = Selector.open();
+		final List<SpectatorClient> clients = Lists.newArrayList();
+		for (int i = 0; i < spectators; i++) {
+			DatagramChannel client = DatagramChannel.open();
+			client.socket().bind(new InetSocketAddress(loopback, 0));
+			SpectatorClient spectator = new SpectatorClient(client, address);
+			client.register(selector, SelectionKey.OP_READ, spectator);
+			clients.add(spectator);
+		}
+		Thread clientThread = new Thread("clients") {
+
+			@Override
+			public void run() {
+				try {
+					while (selector.isOpen()) {
+						selector.select(100);
+						for (SelectionKey key : selector.selectedKeys()) {
+							((SpectatorClient) key.attachment()).receive();
+						}
+						selector.selectedKeys().clear();
+					}
+				} catch (Exception e) {
+					// closed
+				}
+			}
+		};
+		clientThread.start();
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long period = TimeUnit.MILLISECONDS.toNanos(Math.round(1000 * dt));
+		long publishing = 0;
+		long serverCpu = threads.getThreadCpuTime(serverThread.getId());
+		long start = System.nanoTime();
+		long next = start;
+		while (game.getTimestamp() < seconds) {
+			controller.update();
+			game.step(dt);
+			// CPU time, the server thread may be scheduled during the wall clock time
+			long before = threads.getCurrentThreadCpuTime();
+			server.publish();
+			publishing += threads.getCurrentThreadCpuTime() - before;
+			next += period;
+			LockSupport.parkNanos(next - System.nanoTime());
+		}
+		double wall = (System.nanoTime() - start) / 1000000000.0;
+		serverCpu = threads.getThreadCpuTime(serverThread.getId()) - serverCpu;
+		Thread.sleep(200);
+
+		server.close();
+		serverThread.join();
+		selector.close();
+		clientThread.join();
+
+		long bytes = 0, datagrams = 0, worst = 0;
+		for (SpectatorClient client : clients) {
+			long wire = client.getBytes() + HEADERS * client.getDatagrams();
+			bytes += client.getBytes();
+			datagrams += client.getDatagrams();
+			worst = Math.max(worst, wire);
+			client.getChannel().close();
+		}
+		channel.close();
+		game.clean();
+
+		double snapshots = game.getTick() / (double) TICKS_PER_SNAPSHOT;
+		log.info(spectators + " spectators for " + game.getTimestamp() + "s of game in " + wall + "s");
+		log.info("per spectator: " + (bytes + HEADERS * datagrams) / (spectators * seconds) + " B/s average, "
+				+ worst / seconds + " B/s worst (including " + HEADERS + " bytes of headers per datagram), "
+				+ datagrams / (spectators * snapshots) + " of the snapshots received");
+		log.info("server: " + 100.0 * serverCpu / (wall * 1000000000.0) + "% of a CPU, "
+				+ serverCpu / 1000.0 / Math.max(1, server.getSent()) + "us per datagram, "
+				+ server.getEncodings() + " encodings, " + server.getDropped() + " datagrams dropped");
+		log.info("game thread: " + publishing / 1000.0 / game.getTick() + "us of CPU per publish");
+	}
+}
@@ -15,8 +15,11 @@
 package com.github.fommil.ff;
 
 import com.github.fommil.ff.physics.*;
+import com.github.fommil.ff.physics.GameSnapshot.BallSnapshot;
+import com.github.fommil.ff.physics.GameSnapshot.PlayerSnapshot;
 import com.github.fommil.ff.physics.Goalkeeper.GoalkeeperState;
 import com.github.fommil.ff.swos.SwosUtils;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 
@@ -49,13 +52,11 @@ import java.util.logging.Logger;
 @SuppressWarnings("serial")
 public class ClassicView extends JPanel {
 
-	private static final Ordering<Player> northOrder = new Ordering<Player>() {
+	private static final Ordering<PlayerSnapshot> northOrder = new Ordering<PlayerSnapshot>() {
 
 		@Override
-		public int compare(Player left, Player right) {
-			Position p1 = left.getPosition();
-			Position p2 = right.getPosition();
-			return Double.compare(p2.y, p1.y);
+		public int compare(PlayerSnapshot left, PlayerSnapshot right) {
+			return Double.compare(right.getY(1), left.getY(1));
 		}
 	};
 
@@ -87,6 +88,9 @@ public class ClassicView extends JPanel {
 
 	private Dimension gSize;
 
+	// interpolation between the last two time steps
+	private volatile double alpha = 1;
+
 	/**
 	 * @param game
 	 * @param pitch
@@ -139,9 +143,19 @@ public class ClassicView extends JPanel {
 		// 1184, 1185, 1186, 1187
 	}
 
+	/**
+	 * @param alpha between the previous and current time step, used by the next paint
+	 * @see GameLoop.Renderer
+	 */
+	public void setAlpha(double alpha) {
+		Preconditions.checkArgument(alpha >= 0 && alpha <= 1, alpha);
+		this.alpha = alpha;
+	}
+
 	@Override
 	public void paint(Graphics graphics) {
 		Graphics2D g = (Graphics2D) graphics;
+		GameSnapshot snapshot = game.getSnapshot();
 
 		// TODO: intermediatery ScreenShot object to allow highlights
 
@@ -153,7 +167,7 @@ public class ClassicView extends JPanel {
 
 		// we are centered over the ball
 		// g never goes outside the pitch image
-		calculateWindow(gSize);
+		calculateWindow(gSize, snapshot.getBall());
 
 		drawPitch(g);
 
@@ -161,8 +175,8 @@ public class ClassicView extends JPanel {
 
 		// draw the ball
 		// TODO: except when throw-in
-		if (game.getSelected().getState() != Player.PlayerState.THROW)
-			drawBall(g);
+		if (snapshot.getSelected().getState() != Player.PlayerState.THROW)
+			drawBall(g, snapshot.getBall(), snapshot.getTimestamp());
 		//		// draw the zones
 		//		if (debugging) {
 		//			g.setColor(Color.GREEN);
@@ -181,16 +195,17 @@ public class ClassicView extends JPanel {
 		//		}
 
 		// draw the players that are in view
-		List<Player> players = northOrder.sortedCopy(game.getPlayers());
-		for (Player pm : players) {
+		List<PlayerSnapshot> players = northOrder.sortedCopy(snapshot.getPlayers());
+		for (PlayerSnapshot pm : players) {
 			
-			if(pm.getPosition().x+0.8 < pBottomLeft.x && (pm.getPosition().x-0.8 > pTopRight.x) && (pm.getPosition().y+0.5 < pBottomLeft.y) && (pm.getPosition().y-0.7 > pTopRight.y) ) {
+			double x = pm.getX(alpha), y = pm.getY(alpha);
+			if(x+0.8 < pMinX && (x-0.8 > pMaxX) && (y+0.5 < pMinY) && (y-0.7 > pMaxY) ) {
 				continue;
 			}
-			if (pm instanceof Goalkeeper) {
-				drawGoalkeeper(g, (Goalkeeper) pm);
+			if (pm.isGoalkeeper()) {
+				drawGoalkeeper(g, pm, snapshot.getTimestamp());
 			} else {
-				drawPlayer(g, pm);
+				drawPlayer(g, pm, snapshot.getTimestamp());
 			}
 		}
 
@@ -202,9 +217,8 @@ public class ClassicView extends JPanel {
 		}
 	}
 
-	private void drawPlayer(Graphics2D g, Player pm) {
-		Position pPos = pm.getPosition();
-		Point gPos = pToG(pPos);
+	private void drawPlayer(Graphics2D g, PlayerSnapshot pm, double timestamp) {
+		Point gPos = pToG(pm.getX(alpha), pm.getY(alpha));
 
 		// TODO: draw only when in the region
 
@@ -234,7 +248,7 @@ public class ClassicView extends JPanel {
 				break;
 		}
 
-		long ts = (long) (1000L * game.getTimestamp());
+		long ts = (long) (1000L * timestamp);
 		long t = (ts + pm.getShirt() * 17) % 800L;
 		switch (pm.getState()) {
 			case TACKLE:			// left and right are swapped
@@ -284,7 +298,7 @@ public class ClassicView extends JPanel {
 				break;
 			default:
 				spriteIndex *= 3;
-				if (pm.getVelocity().speed() > 0.1) {
+				if (pm.getSpeedSquared() > 0.1 * 0.1) {
 					if (t < 200) {
 					} else if (t < 400) {
 						spriteIndex += 1;
@@ -298,19 +312,17 @@ public class ClassicView extends JPanel {
 		Point s = sprite.getCentre();
 		g.drawImage(sprite.getImage(), gPos.x - s.x, gPos.y - s.y, null);
 
-		if (pm == game.getSelected()) {
+		if (pm.isSelected()) {
 			sprite = teamNumberSprites.get(pm.getShirt());
 			Point ss = sprite.getCentre();
 			g.drawImage(sprite.getImage(), gPos.x - ss.x, gPos.y - ss.y - 15, null);
 		}
 	}
 
-	private void drawBall(Graphics2D g) {
-		Ball ball = game.getBall();
+	private void drawBall(Graphics2D g, BallSnapshot ball, double timestamp) {
 		int spriteIndex = 0;
-		Velocity v = ball.getVelocity();
-		if (v.speed() > 0.1) {
-			long t = (long) ((1000L * game.getTimestamp()) % 800L);
+		if (ball.getSpeedSquared() > 0.1 * 0.1) {
+			long t = (long) ((1000L * timestamp) % 800L);
 			if (t < 200) {
 				spriteIndex += 1;
 			} else if (t < 400) {
@@ -319,58 +331,61 @@ public class ClassicView extends JPanel {
 				spriteIndex += 3;
 			}
 		}
-		double z = ball.getPosition().z;
+		double z = ball.getZ(alpha);
 		int diff = (int) (3 * z);
 		{	// the drop shadow
 			Sprite sprite = ballSprites.get(4);
 			Point s = sprite.getCentre();
-			Point gPos = pToG(ball.getPosition());
+			Point gPos = pToG(ball.getX(alpha), ball.getY(alpha));
 			g.drawImage(sprite.getImage(), gPos.x - s.x + diff + 1, gPos.y - s.y + 1, null);
 		}
 		{	// the moving ball
 			Sprite sprite = ballSprites.get(spriteIndex);
 			Point s = sprite.getCentre();
-			Point gPos = pToG(ball.getPosition());
+			Point gPos = pToG(ball.getX(alpha), ball.getY(alpha));
 			g.drawImage(sprite.getImage(), gPos.x - s.x, gPos.y - s.y - 2 * diff, null);
 		}
 	}
 
 	private Point pToG(Position p) {
+		return pToG(p.x, p.y);
+	}
+
+	private Point pToG(double x, double y) {
 		double scale = 1.0 / game.getPitch().getScale();
 		return new Point(
-				Utils.round(scale * (p.x - pBottomLeft.x)),
-				gSize.height - Utils.round(scale * (p.y - pBottomLeft.y)));
+				Utils.round(scale * (x - pMinX)),
+				gSize.height - Utils.round(scale * (y - pMinY)));
 	}
 
-	private Position pBottomLeft;
-
-	private Position pTopRight;
+	// the window onto the pitch, primitives to avoid allocating on every repaint
+	private double pMinX, pMinY, pMaxX, pMaxY;
 
 	// gSize is the drawable graphics, top left of the view being (0, 0) in graphics 'g' coordinates
-	private void calculateWindow(Dimension gSize) {
+	private void calculateWindow(Dimension gSize, BallSnapshot ball) {
 		double scale = game.getPitch().getScale();
 		// centre over the ball
-		Position pBall = game.getBall().getPosition();
-		if (Double.isNaN(pBall.x)) {
-			log.severe(pBall.toString());
+		if (Double.isNaN(ball.getX(1))) {
+			log.severe("ball is NaN");
 		}
 
-		double pMinX = pBall.x - scale * gSize.width / 2.0;
-		double pMinY = pBall.y - scale * gSize.height / 2.0;
+		double pMinX = ball.getX(alpha) - scale * gSize.width / 2.0;
+		double pMinY = ball.getY(alpha) - scale * gSize.height / 2.0;
 		// account for falling off, where screen could be bigger than the pitch image
 		double pUnseenWidth = Math.max(0, (pitch.getWidth() - gSize.width) * scale);
 		pMinX = Utils.bounded(0, pMinX, pUnseenWidth);
 		double pUnseenHeight = Math.max(0, (pitch.getHeight() - gSize.height) * scale);
 		pMinY = Utils.bounded(0, pMinY, pUnseenHeight);
-		pBottomLeft = new Position(pMinX, pMinY, 0);
-		pTopRight = new Position(pMinX + gSize.width * scale, pMinY + gSize.height * scale, 0);
+		this.pMinX = pMinX;
+		this.pMinY = pMinY;
+		pMaxX = pMinX + gSize.width * scale;
+		pMaxY = pMinY + gSize.height * scale;
 	}
 
 	// TODO: remove code duplication
 	@Deprecated
-	private void drawGoalkeeper(Graphics2D g, Goalkeeper gm) {
-		Position pPos = gm.getPosition();
-		Point gPos = pToG(pPos);
+	private void drawGoalkeeper(Graphics2D g, PlayerSnapshot gm, double timestamp) {
+		Point gPos = pToG(gm.getX(alpha), gm.getY(alpha));
 
 		// assumes sprite size
 //		Rectangle vPmSprite = new Rectangle(vBounds.x + gPos.x - 20, vBounds.y + gPos.y - 20, 40, 40);
@@ -381,7 +396,7 @@ public class ClassicView extends JPanel {
 		int spriteIndex = 0;
 		Direction direction = Direction.valueOf(gm.getDirection());
 
-		long ts = (long) (1000L * game.getTimestamp());
+		long ts = (long) (1000L * timestamp);
 		long t = ts % 800L;
 
 		if (gm.getGkState() == null) {
@@ -409,7 +424,7 @@ public class ClassicView extends JPanel {
 					break;
 			}
 			spriteIndex *= 3;
-			if (gm.getVelocity().speed() > 0.1) {
+			if (gm.getSpeedSquared() > 0.1 * 0.1) {
 				if (t < 200) {
 				} else if (t < 400) {
 					spriteIndex += 1;
@@ -496,10 +511,10 @@ public class ClassicView extends JPanel {
 	private void drawPitch(Graphics2D g) {
 		double scale = 1.0 / game.getPitch().getScale();
 
-		int gTopLeftX = Math.max(0, Utils.round(pBottomLeft.x * scale));
-		int gTopLeftY = Math.max(0, pitch.getHeight() - Utils.round(pTopRight.y * scale));
-		int gWidth = Math.min(Utils.round((pTopRight.x - pBottomLeft.x) * scale) + 1, pitch.getWidth() - gTopLeftX);
-		int gHeight = Math.min(Utils.round((pTopRight.y - pBottomLeft.y) * scale) + 1, pitch.getHeight() - gTopLeftY);
+		int gTopLeftX = Math.max(0, Utils.round(pMinX * scale));
+		int gTopLeftY = Math.max(0, pitch.getHeight() - Utils.round(pMaxY * scale));
+		int gWidth = Math.min(Utils.round((pMaxX - pMinX) * scale) + 1, pitch.getWidth() - gTopLeftX);
+		int gHeight = Math.min(Utils.round((pMaxY - pMinY) * scale) + 1, pitch.getHeight() - gTopLeftY);
 		// extra padding is for when a partial pixel is shown
 		BufferedImage sub = pitch.getSubimage(gTopLeftX, gTopLeftY, gWidth, gHeight);
 		g.drawImage(sub, 0, 0, null);
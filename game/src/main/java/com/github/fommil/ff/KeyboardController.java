@@ -14,12 +14,8 @@
  */
 package com.github.fommil.ff;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.util.Collection;
 import com.github.fommil.ff.physics.GamePhysics;
 import com.github.fommil.ff.physics.Action;
 import com.github.fommil.ff.physics.Aftertouch;
@@ -36,38 +32,37 @@ public class KeyboardController extends KeyAdapter {
 		this.game = game;
 	}
 
-	private final Collection<Action> actions = Sets.newHashSet();
-
-	private final Collection<Aftertouch> aftertouches = Sets.newHashSet();
+	// masks of Action and Aftertouch
+	private int actions, aftertouches;
 
 	@Override
 	public synchronized void keyPressed(KeyEvent e) {
 		switch (e.getKeyCode()) {
 			case KeyEvent.VK_LEFT:
-				actions.add(Action.LEFT);
-				aftertouches.add(Aftertouch.LEFT);
+				actions |= Action.LEFT.mask();
+				aftertouches |= Aftertouch.LEFT.mask();
 				break;
 			case KeyEvent.VK_RIGHT:
-				actions.add(Action.RIGHT);
-				aftertouches.add(Aftertouch.RIGHT);
+				actions |= Action.RIGHT.mask();
+				aftertouches |= Aftertouch.RIGHT.mask();
 				break;
 			case KeyEvent.VK_UP:
-				actions.add(Action.UP);
-				aftertouches.add(Aftertouch.UP);
+				actions |= Action.UP.mask();
+				aftertouches |= Aftertouch.UP.mask();
 				break;
 			case KeyEvent.VK_DOWN:
-				actions.add(Action.DOWN);
-				aftertouches.add(Aftertouch.DOWN);
+				actions |= Action.DOWN.mask();
+				aftertouches |= Aftertouch.DOWN.mask();
 				break;
 			case KeyEvent.VK_SPACE:
-				actions.add(Action.KICK);
-				actions.add(Action.CHANGE);
+				actions |= Action.KICK.mask();
+				actions |= Action.CHANGE.mask();
 				break;
 			case KeyEvent.VK_ENTER:
-				actions.add(Action.TACKLE);
+				actions |= Action.TACKLE.mask();
 				break;
 			case KeyEvent.VK_A:
-				actions.add(Action.HEAD);
+				actions |= Action.HEAD.mask();
 				break;
 			default:
 				return;
@@ -79,30 +74,30 @@ public class KeyboardController extends KeyAdapter {
 	public synchronized void keyReleased(KeyEvent e) {
 		switch (e.getKeyCode()) {
 			case KeyEvent.VK_LEFT:
-				actions.remove(Action.LEFT);
-				aftertouches.remove(Aftertouch.LEFT);
+				actions &= ~Action.LEFT.mask();
+				aftertouches &= ~Aftertouch.LEFT.mask();
 				break;
 			case KeyEvent.VK_RIGHT:
-				actions.remove(Action.RIGHT);
-				aftertouches.remove(Aftertouch.RIGHT);
+				actions &= ~Action.RIGHT.mask();
+				aftertouches &= ~Aftertouch.RIGHT.mask();
 				break;
 			case KeyEvent.VK_UP:
-				actions.remove(Action.UP);
-				aftertouches.remove(Aftertouch.UP);
+				actions &= ~Action.UP.mask();
+				aftertouches &= ~Aftertouch.UP.mask();
 				break;
 			case KeyEvent.VK_DOWN:
-				actions.remove(Action.DOWN);
-				aftertouches.remove(Aftertouch.DOWN);
+				actions &= ~Action.DOWN.mask();
+				aftertouches &= ~Aftertouch.DOWN.mask();
 				break;
 			case KeyEvent.VK_SPACE:
-				actions.remove(Action.KICK);
-				actions.remove(Action.CHANGE);
+				actions &= ~Action.KICK.mask();
+				actions &= ~Action.CHANGE.mask();
 				break;
 			case KeyEvent.VK_ENTER:
-				actions.remove(Action.TACKLE);
+				actions &= ~Action.TACKLE.mask();
 				break;
 			case KeyEvent.VK_A:
-				actions.remove(Action.HEAD);
+				actions &= ~Action.HEAD.mask();
 				break;
 			case KeyEvent.VK_ESCAPE:
 				System.exit(0);
@@ -118,20 +113,6 @@ public class KeyboardController extends KeyAdapter {
 	}
 
 	private boolean directionSelected() {
-		return Iterables.any(actions, new Predicate<Action>() {
-
-			@Override
-			public boolean apply(Action input) {
-				switch (input) {
-					case UP:
-					case DOWN:
-					case LEFT:
-					case RIGHT:
-						return true;
-					default:
-						return false;
-				}
-			}
-		});
+		return (actions & Action.DIRECTIONS) != 0;
 	}
 }
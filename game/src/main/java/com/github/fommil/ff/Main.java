@@ -14,19 +14,20 @@
  */
 package com.github.fommil.ff;
 
+import com.github.fommil.ff.physics.GameLoop;
 import com.github.fommil.ff.physics.GamePhysics;
 import com.github.fommil.ff.swos.PitchParser;
+import com.github.fommil.ff.swos.SoundParser;
 import com.github.fommil.ff.swos.SpriteParser;
 import com.github.fommil.ff.swos.TacticsParser;
 
 import javax.swing.*;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Samuel Halliday
@@ -58,6 +59,7 @@ public class Main {
 
 		Pitch pitch = new Pitch();
 		final GamePhysics game = new GamePhysics(a, b, pitch);
+		game.addListener(new SoundListener(new SoundParser(SWOS)));
 		final ClassicView gv = new ClassicView(game, pitchImage, sprites);
 
 		JFrame frame = new JFrame();
@@ -69,20 +71,25 @@ public class Main {
 		frame.setUndecorated(true);
 		frame.setVisible(true);
 
-		final long period = 10L;
-		final int redraw = 5;
-		TimerTask ticker = new TimerTask() {
-			private final AtomicLong counter = new AtomicLong();
+		// render at the refresh rate of the display, physics is always at 100Hz
+		DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode();
+		final int hz = mode.getRefreshRate() == DisplayMode.REFRESH_RATE_UNKNOWN ? 60 : mode.getRefreshRate();
+		final GameLoop loop = new GameLoop(game, 0.01);
+		final GameLoop.Renderer renderer = new GameLoop.Renderer() {
 
 			@Override
-			public synchronized void run() {
-				game.step(period / 1000.0);
-				long count = counter.incrementAndGet();
-				if (count % redraw == 0)
-					gv.repaint();
+			public void render(double alpha) {
+				gv.setAlpha(alpha);
+				gv.repaint();
 			}
 		};
-		new Timer().schedule(ticker, 0L, period);
+		new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				loop.run(hz, renderer);
+			}
+		}, "game loop").start();
 
 		assert gv.getKeyListeners().length > 0;
 
@@ -14,8 +14,7 @@
  */
 package com.github.fommil.ff;
 
-import java.awt.Point;
-import java.awt.Rectangle;
+import com.google.common.base.Preconditions;
 import com.github.fommil.ff.physics.Position;
 
 /**
@@ -40,6 +39,16 @@ import com.github.fommil.ff.physics.Position;
  * The penalty spots are (336, 711) and (336, 187).
  * <p>
  * The centre spot is (336, 449).
+ * <p>
+ * Pixel locations are held as primitives, rather than AWT objects, so that a headless
+ * game never touches AWT.
+ * <p>
+ * Pitches of other sizes have the same markings, goals and margins, around a playing
+ * area of the requested size, but can only be played headless because there are no
+ * graphics for them.
+ * <p>
+ * Instances are immutable and everything is computed on construction, so the getters
+ * never allocate and the primitive tests are cheap enough to call every time step.
 
  * @author Samuel Halliday
  */
@@ -53,11 +62,12 @@ public class Pitch {
 
 	private static final double SCALE = 0.1;
 
-	private static final Point bounds = new Point(672, 880);
+	private static final int BOUNDS_X = 672, BOUNDS_Y = 880;
 
-	private static final Rectangle pitch = new Rectangle(81, 129, 509, 640);
+	// the rectangle (x, y, width, height) of the playing area
+	private static final int PITCH_X = 81, PITCH_Y = 129, PITCH_WIDTH = 509, PITCH_HEIGHT = 640;
 
-	private static final Point centreSpot = new Point(336, 449);
+	private static final int CENTRE_X = 336, CENTRE_Y = 449;
 
 //	private final Rectangle penaltyBoxTop = new Rectangle(193, 129, 285, 87);
 //
@@ -73,24 +83,203 @@ public class Pitch {
 //	private final Rectangle goalNetTop = new Rectangle(300, 117, 71, 12);
 //
 //	private final Rectangle goalNetBottom = new Rectangle(300, 769, 71, 12);
-	private final Point penaltySpotTop = new Point(336, 187);
+	private static final int PENALTY_X = 336, PENALTY_TOP_Y = 187, PENALTY_BOTTOM_Y = 711;
+
+	private static final int PENALTY_BOX_WIDTH = 285, PENALTY_BOX_DEPTH = 87;
+
+	private static final int GOAL_X = 300, GOAL_WIDTH = 71, GOAL_DEPTH = 12, GOAL_THICKNESS = 2;
+
+	private final Position boundsLowerLeft, boundsUpperRight, pitchLowerLeft, pitchUpperRight;
+
+	private final Position centre, goalTop, goalBottom, penaltySpotTop, penaltySpotBottom;
+
+	// the touchlines and goal lines
+	private final double minX, maxX, minY, maxY;
+
+	private final double width, height;
+
+	// the penalty areas span the same x, and reach this far from the goal lines
+	private final double penaltyMinX, penaltyMaxX, penaltyDepth;
+
+	/**
+	 * The SWOS pitch.
+	 */
+	public Pitch() {
+		boundsLowerLeft = new Position(0, 0, 0);
+		boundsUpperRight = new Position(BOUNDS_X * SCALE, BOUNDS_Y * SCALE, 0);
+		pitchLowerLeft = new Position(PITCH_X * SCALE, (BOUNDS_Y - PITCH_Y - PITCH_HEIGHT) * SCALE, 0);
+		pitchUpperRight = new Position((PITCH_X + PITCH_WIDTH) * SCALE, (BOUNDS_Y - PITCH_Y) * SCALE, 0);
+		centre = pointToPosition(CENTRE_X, CENTRE_Y);
+		goalTop = new Position(SCALE * (GOAL_X + GOAL_WIDTH / 2.0), SCALE * (BOUNDS_Y - 117 - GOAL_DEPTH / 2.0), 0);
+		goalBottom = new Position(SCALE * (GOAL_X + GOAL_WIDTH / 2.0), SCALE * (BOUNDS_Y - 769 - GOAL_DEPTH / 2.0), 0);
+		penaltySpotTop = pointToPosition(PENALTY_X, PENALTY_TOP_Y);
+		penaltySpotBottom = pointToPosition(PENALTY_X, PENALTY_BOTTOM_Y);
+		penaltyMinX = SCALE * 193;
+		penaltyMaxX = SCALE * (193 + PENALTY_BOX_WIDTH);
+		penaltyDepth = SCALE * PENALTY_BOX_DEPTH;
+
+		minX = pitchLowerLeft.x;
+		maxX = pitchUpperRight.x;
+		minY = pitchLowerLeft.y;
+		maxY = pitchUpperRight.y;
+		width = maxX - minX;
+		height = maxY - minY;
+	}
+
+	/**
+	 * A pitch with the SWOS markings, goals and margins around a playing area of the
+	 * given size.
+	 *
+	 * @param width in metres, between the touchlines
+	 * @param length in metres, between the goal lines
+	 */
+	public Pitch(double width, double length) {
+		double boxWidth = SCALE * PENALTY_BOX_WIDTH;
+		Preconditions.checkArgument(width > boxWidth, width);
+		Preconditions.checkArgument(length > 2 * SCALE * (PENALTY_TOP_Y - PITCH_Y), length);
+		double left = SCALE * PITCH_X;
+		double bottom = SCALE * (BOUNDS_Y - PITCH_Y - PITCH_HEIGHT);
+		double right = SCALE * (BOUNDS_X - PITCH_X - PITCH_WIDTH);
+		double top = SCALE * PITCH_Y;
+
+		boundsLowerLeft = new Position(0, 0, 0);
+		boundsUpperRight = new Position(left + width + right, bottom + length + top, 0);
+		pitchLowerLeft = new Position(left, bottom, 0);
+		pitchUpperRight = new Position(left + width, bottom + length, 0);
+		double midX = left + width / 2;
+		centre = new Position(midX, bottom + length / 2, 0);
+		double goalY = SCALE * GOAL_DEPTH / 2;
+		goalTop = new Position(midX, pitchUpperRight.y + goalY, 0);
+		goalBottom = new Position(midX, bottom - goalY, 0);
+		double spot = SCALE * (PENALTY_TOP_Y - PITCH_Y);
+		penaltySpotTop = new Position(midX, pitchUpperRight.y - spot, 0);
+		penaltySpotBottom = new Position(midX, bottom + spot, 0);
+		penaltyMinX = midX - boxWidth / 2;
+		penaltyMaxX = midX + boxWidth / 2;
+		penaltyDepth = SCALE * PENALTY_BOX_DEPTH;
+
+		minX = pitchLowerLeft.x;
+		maxX = pitchUpperRight.x;
+		minY = pitchLowerLeft.y;
+		maxY = pitchUpperRight.y;
+		this.width = width;
+		this.height = length;
+	}
+
+	private Position pointToPosition(int x, int y) {
+		return new Position(SCALE * x, SCALE * (BOUNDS_Y - y), 0);
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return the index of the {@link Tactics.BallZone} containing the point, which is
+	 * clamped to the pitch.
+	 */
+	public int getBallZone(double x, double y) {
+		int xx = (int) (5 * (maxX - x) / width);
+		int yy = (int) (7 * (y - minY) / height);
+		return Utils.bounded(0, xx, 4) + 5 * Utils.bounded(0, yy, 6);
+	}
+
+	/**
+	 * @param x
+	 * @return true if the point is over either touchline
+	 */
+	public boolean isOverTouchline(double x) {
+		return x < minX || x > maxX;
+	}
+
+	/**
+	 * @param y
+	 * @return true if the point is over either goal line
+	 */
+	public boolean isOverGoalLine(double y) {
+		return y < minY || y > maxY;
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return true if the point is outside the playing area
+	 */
+	public boolean isOutOfPlay(double x, double y) {
+		return isOverTouchline(x) || isOverGoalLine(y);
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param facing of the goal in the penalty area
+	 * @return true if the point is inside the penalty area
+	 */
+	public boolean isInPenaltyArea(double x, double y, Direction facing) {
+		if (x < penaltyMinX || x > penaltyMaxX)
+			return false;
+		if (facing == Direction.SOUTH)
+			return y <= maxY && y >= maxY - penaltyDepth;
+		return y >= minY && y <= minY + penaltyDepth;
+	}
+
+	/**
+	 * @param x
+	 * @return the x of the nearest touchline
+	 */
+	public double getNearestTouchline(double x) {
+		return x < minX + width / 2 ? minX : maxX;
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public Position getBoundsLowerLeft() {
+		return boundsLowerLeft;
+	}
 
-	private final Point penaltySpotBottom = new Point(336, 711);
+	public Position getBoundsUpperRight() {
+		return boundsUpperRight;
+	}
 
 	public Position getPitchLowerLeft() {
-		return new Position(pitch.x * SCALE, (bounds.y - pitch.y - pitch.height) * SCALE, 0);
+		return pitchLowerLeft;
 	}
 
 	public Position getPitchUpperRight() {
-		return new Position((pitch.x + pitch.width) * SCALE, (bounds.y - pitch.y) * SCALE, 0);
+		return pitchUpperRight;
+	}
+
+	/**
+	 * @return the x of the left touchline
+	 */
+	public double getMinX() {
+		return minX;
+	}
+
+	/**
+	 * @return the x of the right touchline
+	 */
+	public double getMaxX() {
+		return maxX;
+	}
+
+	/**
+	 * @return the y of the bottom goal line
+	 */
+	public double getMinY() {
+		return minY;
+	}
+
+	/**
+	 * @return the y of the top goal line
+	 */
+	public double getMaxY() {
+		return maxY;
 	}
 
 	public Position getCentre() {
-		return new Position(centreSpot.x * SCALE, (bounds.y - centreSpot.y) * SCALE, 0);
+		return centre;
 	}
 
 	public double getGoalWidth() {
-		return 71 * SCALE;
+		return GOAL_WIDTH * SCALE;
 	}
 
 	public double getGoalHeight() {
@@ -98,35 +287,32 @@ public class Pitch {
 	}
 
 	public double getGoalDepth() {
-		return 12 * SCALE;
+		return GOAL_DEPTH * SCALE;
 	}
 
 	public double getGoalThickness() {
-		return 2 * SCALE;
+		return GOAL_THICKNESS * SCALE;
 	}
 
 	public Position getGoalTop() {
-		return new Position(SCALE * (300 + 71 / 2.0), SCALE * (bounds.y - 117 - 12 / 2.0), 0);
+		return goalTop;
 	}
 
 	public Position getGoalBottom() {
-		return new Position(SCALE * (300 + 71 / 2.0), SCALE * (bounds.y - 769 - 12 / 2.0), 0);
+		return goalBottom;
 	}
 
 	public Position getPenaltySpotTop() {
-		return pointToPosition(penaltySpotTop);
+		return penaltySpotTop;
 	}
 
 	public Position getPenaltySpotBottom() {
-		return pointToPosition(penaltySpotBottom);
-	}
-
-	private Position pointToPosition(Point point) {
-		return new Position(SCALE * point.x, SCALE * (bounds.y - point.y), 0);
+		return penaltySpotBottom;
 	}
 
 	@Deprecated // implementation detail
 	public double getScale() {
 		return SCALE;
 	}
+	// </editor-fold>
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright Samuel Halliday 2013
+ *
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff;
+
+import com.google.common.base.Preconditions;
+import java.util.logging.Logger;
+import com.github.fommil.ff.physics.Ball;
+import com.github.fommil.ff.physics.GameListener;
+import com.github.fommil.ff.physics.Player;
+import com.github.fommil.ff.swos.SoundParser;
+import com.github.fommil.ff.swos.SoundParser.Fx;
+
+/**
+ * Plays the SWOS sound effects for game play events.
+ *
+ * @author Samuel Halliday
+ */
+public class SoundListener implements GameListener {
+
+	private static final Logger log = Logger.getLogger(SoundListener.class.getName());
+
+	private final SoundParser sounds;
+
+	public SoundListener(SoundParser sounds) {
+		Preconditions.checkNotNull(sounds);
+		this.sounds = sounds;
+	}
+
+	@Override
+	public void goal(Direction facing) {
+		play(Fx.CROWD_CHEER);
+	}
+
+	@Override
+	public void kick(Player player) {
+		play(Fx.BALL_KICK);
+	}
+
+	@Override
+	public void bounce(Ball ball) {
+		// TODO: different bounce sound for ground/player/post
+		play(Fx.BALL_BOUNCE);
+	}
+
+	@SuppressWarnings("deprecation")
+	private void play(Fx fx) {
+		try {
+			sounds.play(fx);
+		} catch (Exception ex) {
+			log.warning(ex.getMessage());
+		}
+	}
+}
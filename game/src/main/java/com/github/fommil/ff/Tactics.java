@@ -59,16 +59,16 @@ public class Tactics {
 		 * @param pitch
 		 */
 		public BallZone(Position s, Pitch pitch) {
-			Position upper = pitch.getPitchUpperRight();
-			Position lower = pitch.getPitchLowerLeft();
-			double width = upper.x - lower.x;
-			double height = upper.y - lower.y;
-
-			int xx = (int) (5 * (upper.x - s.x) / width);
-			int yy = (int) (7 * (s.y - lower.y) / height);
+			int index = pitch.getBallZone(s.x, s.y);
+			this.x = index % 5;
+			this.y = index / 5;
+		}
 
-			this.x = Utils.bounded(0, xx, 4);
-			this.y = Utils.bounded(0, yy, 6);
+		/**
+		 * @return {@code [0, 35)}, unique to this zone
+		 */
+		public int getIndex() {
+			return x + 5 * y;
 		}
 
 		@Override
@@ -150,13 +150,29 @@ public class Tactics {
 		public Position getCentre(Pitch pitch) {
 			Position upper = pitch.getPitchUpperRight();
 			Position lower = pitch.getPitchLowerLeft();
+			return new Position(getCentreX(x, lower, upper), getCentreY(y, lower, upper), 0);
+		}
 
+		/**
+		 * @param x column of the zone
+		 * @param lower the lower left of the pitch
+		 * @param upper the upper right of the pitch
+		 * @return the x coordinate of the centre of zones in the column
+		 */
+		public static double getCentreX(int x, Position lower, Position upper) {
 			double width = upper.x - lower.x;
-			double height = upper.y - lower.y;
+			return (width * (14 - x)) / 15 + width / 30 + lower.x;
+		}
 
-			double xx = (width * (14 - x)) / 15 + width / 30;
-			double yy = (height * y) / 16 + height / 32;
-			return new Position(xx + lower.x, yy + lower.y, 0);
+		/**
+		 * @param y row of the zone
+		 * @param lower the lower left of the pitch
+		 * @param upper the upper right of the pitch
+		 * @return the y coordinate of the centre of zones in the row
+		 */
+		public static double getCentreY(int y, Position lower, Position upper) {
+			double height = upper.y - lower.y;
+			return (height * y) / 16 + height / 32 + lower.y;
 		}
 
 		// reverse the direction of play
@@ -165,10 +181,28 @@ public class Tactics {
 		}
 	}
 
+	private static final int BALL_ZONES = 35, SHIRTS = 10;
+
+	// every player zone, indexed by x << 4 | y
+	private static final PlayerZone[] PLAYER_ZONES = new PlayerZone[15 << 4];
+
+	static {
+		for (int x = 0; x < 15; x++) {
+			for (int y = 0; y < 16; y++) {
+				PLAYER_ZONES[x << 4 | y] = new PlayerZone(x, y);
+			}
+		}
+	}
+
 	private String name;
 
 	private final Map<BallZone, Map<Integer, PlayerZone>> zones = Maps.newHashMapWithExpectedSize(35);
 
+	// the zones as x << 4 | y (or -1), indexed by facing, ball zone and shirt
+	private int[] compiled;
+
+	private int version;
+
 	/**
 	 * @param name
 	 */
@@ -185,16 +219,48 @@ public class Tactics {
 	 */
 	public PlayerZone getZone(BallZone ballZone, Integer shirt, Direction facing) {
 		Preconditions.checkNotNull(shirt);
+		int packed = getPackedZone(ballZone.getIndex(), shirt, facing);
+		return packed < 0 ? null : PLAYER_ZONES[packed];
+	}
+
+	/**
+	 * As {@link #getZone(BallZone, Integer, Direction)}, without allocation.
+	 *
+	 * @param ballZone as {@link BallZone#getIndex()}
+	 * @param shirt
+	 * @param facing
+	 * @return the player zone's {@code x << 4 | y}, or {@code -1} if no zone is defined.
+	 */
+	public int getPackedZone(int ballZone, int shirt, Direction facing) {
+		Preconditions.checkArgument(ballZone >= 0 && ballZone < BALL_ZONES, ballZone);
 		Preconditions.checkArgument(shirt > 1 && shirt < 12);
-		if (facing == Direction.SOUTH)
-			ballZone = ballZone.flipped();
-		Map<Integer, PlayerZone> shirt2player = zones.get(ballZone);
-		if (shirt2player == null)
-			return null;
-		PlayerZone pz = shirt2player.get(shirt);
-		if (facing == Direction.SOUTH)
-			return pz.flipped();
-		return pz;
+		if (compiled == null)
+			compile();
+		int f = facing == Direction.SOUTH ? 1 : 0;
+		return compiled[(f * BALL_ZONES + ballZone) * SHIRTS + shirt - 2];
+	}
+
+	/**
+	 * Compiles the zones into a flat table for fast lookups, which is otherwise done
+	 * lazily after every change.
+	 */
+	public void compile() {
+		int[] table = new int[2 * BALL_ZONES * SHIRTS];
+		for (int f = 0; f < 2; f++) {
+			for (int bz = 0; bz < BALL_ZONES; bz++) {
+				BallZone ballZone = new BallZone(bz % 5, bz / 5);
+				if (f == 1)
+					ballZone = ballZone.flipped();
+				Map<Integer, PlayerZone> shirt2player = zones.get(ballZone);
+				for (int shirt = 2; shirt < 12; shirt++) {
+					PlayerZone pz = shirt2player == null ? null : shirt2player.get(shirt);
+					if (pz != null && f == 1)
+						pz = pz.flipped();
+					table[(f * BALL_ZONES + bz) * SHIRTS + shirt - 2] = pz == null ? -1 : pz.x << 4 | pz.y;
+				}
+			}
+		}
+		compiled = table;
 	}
 
 	/**
@@ -211,6 +277,8 @@ public class Tactics {
 			zones.put(ballZone, new HashMap<Integer, PlayerZone>(10));
 		Map<Integer, PlayerZone> shirt2player = zones.get(ballZone);
 		shirt2player.put(shirt, playerZone);
+		compiled = null;
+		version++;
 	}
 
 	@Override
@@ -263,5 +331,12 @@ public class Tactics {
 		Preconditions.checkArgument(!name.isEmpty());
 		this.name = name;
 	}
+
+	/**
+	 * @return incremented by every change to the zones, so that derived data may be cached
+	 */
+	public int getVersion() {
+		return version;
+	}
 	// </editor-fold>
 }
@@ -74,8 +74,9 @@ public class Team {
 
 	private List<PlayerStats> players = Lists.newArrayList();
 
-	private Colours homeKit = new Colours(Color.RED, Color.RED, Color.WHITE, Color.RED);
-	private Colours awayKit = new Colours(Color.BLUE, Color.BLUE, Color.WHITE, Color.BLUE);
+	// defaults are lazy, so that a headless game never touches AWT
+	private Colours homeKit;
+	private Colours awayKit;
 
 	/** */
 	public Team() {
@@ -92,6 +93,8 @@ public class Team {
 	}
 
 	public void setCurrentTactics(Tactics tactics) {
+		if (tactics != null)
+			tactics.compile();
 		this.current = tactics;
 	}
 
@@ -104,6 +107,8 @@ public class Team {
 
 	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
 	public Colours getAwayKit() {
+		if (awayKit == null)
+			awayKit = new Colours(Color.BLUE, Color.BLUE, Color.WHITE, Color.BLUE);
 		return awayKit;
 	}
 
@@ -112,6 +117,8 @@ public class Team {
 	}
 
 	public Colours getHomeKit() {
+		if (homeKit == null)
+			homeKit = new Colours(Color.RED, Color.RED, Color.WHITE, Color.RED);
 		return homeKit;
 	}
 
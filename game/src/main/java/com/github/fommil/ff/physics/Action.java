@@ -14,6 +14,7 @@
  */
 package com.github.fommil.ff.physics;
 
+import com.google.common.base.Preconditions;
 import java.util.Collection;
 import org.ode4j.math.DVector3;
 
@@ -24,27 +25,85 @@ public enum Action {
 
 	UP, DOWN, LEFT, RIGHT, KICK, TACKLE, HEAD, DIVE, CHANGE;
 
-	static DVector3 asVector(Collection<Action> actions) {
-		DVector3 move = new DVector3();
-		for (Action action : actions) {
-			switch (action) {
-				case UP:
-					move.add(0, 1, 0);
-					break;
-				case DOWN:
-					move.sub(0, 1, 0);
-					break;
-				case LEFT:
-					move.sub(1, 0, 0);
-					break;
-				case RIGHT:
-					move.add(1, 0, 0);
-					break;
-			}
+	/**
+	 * The bits of {@link #UP}, {@link #DOWN}, {@link #LEFT} and {@link #RIGHT}.
+	 */
+	public static final int DIRECTIONS = 0xF;
+
+	/**
+	 * Every action.
+	 */
+	public static final int ALL = (1 << 9) - 1;
+
+	// the unit vectors for every combination of DIRECTIONS
+	private static final double[] X = new double[DIRECTIONS + 1], Y = new double[DIRECTIONS + 1];
+
+	static {
+		for (int mask = 0; mask <= DIRECTIONS; mask++) {
+			double x = 0, y = 0;
+			if (has(mask, UP))
+				y += 1;
+			if (has(mask, DOWN))
+				y -= 1;
+			if (has(mask, LEFT))
+				x -= 1;
+			if (has(mask, RIGHT))
+				x += 1;
+			DVector3 move = new DVector3(x, y, 0);
+			if (move.length() > 0)
+				move.normalize();
+			X[mask] = move.get0();
+			Y[mask] = move.get1();
 		}
-		if (move.length() > 0) {
-			move.normalize();
+	}
+
+	/**
+	 * @return the bit for this action in a mask
+	 */
+	public int mask() {
+		return 1 << ordinal();
+	}
+
+	/**
+	 * @param actions
+	 * @return the bitmask of the actions
+	 */
+	public static int mask(Collection<Action> actions) {
+		Preconditions.checkNotNull(actions);
+		int mask = 0;
+		for (Action action : actions) {
+			mask |= action.mask();
 		}
-		return move;
+		return mask;
+	}
+
+	/**
+	 * @param mask
+	 * @param action
+	 * @return true if the mask contains the action
+	 */
+	public static boolean has(int mask, Action action) {
+		return (mask & action.mask()) != 0;
+	}
+
+	/**
+	 * @param mask
+	 * @return the x component of the unit vector of the directions in the mask
+	 */
+	static double getX(int mask) {
+		return X[mask & DIRECTIONS];
+	}
+
+	/**
+	 * @param mask
+	 * @return the y component of the unit vector of the directions in the mask
+	 */
+	static double getY(int mask) {
+		return Y[mask & DIRECTIONS];
+	}
+
+	static DVector3 asVector(Collection<Action> actions) {
+		int mask = mask(actions);
+		return new DVector3(getX(mask), getY(mask), 0);
 	}
 }
@@ -26,30 +26,81 @@ public enum Aftertouch {
 
 	UP, DOWN, LEFT, RIGHT;
 
-	static DVector3 asVector(Collection<Aftertouch> touches) {
+	/**
+	 * Every aftertouch.
+	 */
+	public static final int ALL = (1 << 4) - 1;
+
+	// the unit vectors for every mask
+	private static final double[] X = new double[ALL + 1], Y = new double[ALL + 1];
+
+	static {
+		for (int mask = 0; mask <= ALL; mask++) {
+			double x = 0, y = 0;
+			if (has(mask, UP))
+				y += 1;
+			if (has(mask, DOWN))
+				y -= 1;
+			if (has(mask, LEFT))
+				x -= 1;
+			if (has(mask, RIGHT))
+				x += 1;
+			DVector3 touch = new DVector3(x, y, 0);
+			if (touch.length() > 0)
+				touch.normalize();
+			X[mask] = touch.get0();
+			Y[mask] = touch.get1();
+		}
+	}
+
+	/**
+	 * @return the bit for this aftertouch in a mask
+	 */
+	public int mask() {
+		return 1 << ordinal();
+	}
+
+	/**
+	 * @param touches
+	 * @return the bitmask of the aftertouches
+	 */
+	public static int mask(Collection<Aftertouch> touches) {
 		Preconditions.checkNotNull(touches);
-		DVector3 aftertouch = new DVector3();
+		int mask = 0;
 		for (Aftertouch touch : touches) {
-			assert touch != null;
-			switch (touch) {
-				case UP:
-					aftertouch.add(0, 1, 0);
-					break;
-				case DOWN:
-					aftertouch.sub(0, 1, 0);
-					break;
-				case LEFT:
-					aftertouch.sub(1, 0, 0);
-					break;
-				case RIGHT:
-					aftertouch.add(1, 0, 0);
-					break;
-			}
-		}
-		if (aftertouch.length() > 0) {
-			aftertouch.normalize();
+			mask |= touch.mask();
 		}
-		return aftertouch;
+		return mask;
+	}
+
+	/**
+	 * @param mask
+	 * @param touch
+	 * @return true if the mask contains the aftertouch
+	 */
+	public static boolean has(int mask, Aftertouch touch) {
+		return (mask & touch.mask()) != 0;
+	}
+
+	/**
+	 * @param mask
+	 * @return the x component of the unit vector of the mask
+	 */
+	static double getX(int mask) {
+		return X[mask & ALL];
+	}
+
+	/**
+	 * @param mask
+	 * @return the y component of the unit vector of the mask
+	 */
+	static double getY(int mask) {
+		return Y[mask & ALL];
+	}
+
+	static DVector3 asVector(Collection<Aftertouch> touches) {
+		int mask = mask(touches);
+		return new DVector3(getX(mask), getY(mask), 0);
 	}
 
 	static Direction toDirection(Collection<Aftertouch> touches) {
@@ -41,7 +41,7 @@ public class Ball {
 
 	private static final double MASS_KG = 0.45;
 
-	private static final double RADIUS = 0.2; // official size = 0.7 / (2 * Math.PI);
+	static final double RADIUS = 0.2; // official size = 0.7 / (2 * Math.PI);
 
 	private static final double LIFT = 6;
 
@@ -51,13 +51,24 @@ public class Ball {
 
 	private static final double MAX_HEIGHT = 4;
 
+	private static final double REST_HEIGHT = 0.01; // above the ground, as getZ
+
+	private static final double REST_SPIN = GamePhysics.MIN_SPEED / RADIUS; // rad/s, rolling at MIN_SPEED
+
 	private final DSphere sphere;
 
 	private volatile boolean aftertouch;
 
-	Ball(DWorld world, DSpace space) {
+	private final Scratch scratch;
+
+	// the number of time steps that the ball has been still, see rest
+	private int still;
+
+	Ball(DWorld world, DSpace space, Scratch scratch) {
 		Preconditions.checkNotNull(world);
 		Preconditions.checkNotNull(space);
+		Preconditions.checkNotNull(scratch);
+		this.scratch = scratch;
 
 		DBody body = OdeHelper.createBody(world);
 		sphere = OdeHelper.createSphere(RADIUS);
@@ -65,6 +76,7 @@ public class Ball {
 		DMass mass = OdeHelper.createMass();
 		mass.setSphereTotal(MASS_KG, RADIUS);
 		body.setMass(mass);
+		sphere.setCategoryBits(CollisionBits.BALL);
 		space.add(sphere);
 		body.setData(this);
 	}
@@ -75,13 +87,31 @@ public class Ball {
 	 * @param aftertouches
 	 */
 	public void setAftertouch(Collection<Aftertouch> aftertouches) {
-		Preconditions.checkNotNull(aftertouches);
-		if (!aftertouch || aftertouches.isEmpty())
+		setAftertouch(Aftertouch.mask(aftertouches));
+	}
+
+	/**
+	 * Controller.
+	 *
+	 * @param aftertouches a mask of {@link Aftertouch}
+	 */
+	public void setAftertouch(int aftertouches) {
+		if (!aftertouch || aftertouches == 0)
 			return;
+		int mark = scratch.mark();
+		try {
+			applyAftertouch(aftertouches);
+		} finally {
+			scratch.release(mark);
+		}
+	}
+
+	private void applyAftertouch(int aftertouches) {
 		DVector3C velocity = sphere.getBody().getLinearVel();
 		if (velocity.length() < GamePhysics.MIN_SPEED)
 			return;
-		DVector3 forward = new DVector3(velocity);
+		DVector3 forward = scratch.vector();
+		forward.set(velocity);
 		forward.set2(0);
 		if (forward.length() < GamePhysics.MIN_SPEED)
 			return;
@@ -90,12 +120,13 @@ public class Ball {
 		if (vz < 0)
 			return;
 
-		DVector3 touch = Aftertouch.asVector(aftertouches);
-		DVector3 sideways = new DVector3(-forward.get1(), forward.get0(), 0);
+		DVector3 touch = scratch.vector(Aftertouch.getX(aftertouches), Aftertouch.getY(aftertouches), 0);
+		DVector3 sideways = scratch.vector(-forward.get1(), forward.get0(), 0);
 		double bend = sideways.dot(touch);
 
 		if (Math.abs(bend) > 0.1) {
-			DVector3 bendy = new DVector3(sideways);
+			DVector3 bendy = scratch.vector();
+			bendy.set(sideways);
 			bendy.scale(bend * BEND);
 			addForce(bendy);
 		}
@@ -107,11 +138,12 @@ public class Ball {
 		double power = forward.dot(touch);
 		if (Math.abs(power) > 0.1) {
 			if (power < 0) {
-				DVector3 lift = new DVector3(0, 0, 1);
+				DVector3 lift = scratch.vector(0, 0, 1);
 				lift.scale(LIFT);
 				addForce(lift);
 			} else {
-				DVector3 powery = new DVector3(forward);
+				DVector3 powery = scratch.vector();
+				powery.set(forward);
 				powery.scale(POWER);
 				// power diminishes with height
 				powery.scale(Math.abs(MAX_HEIGHT - z));
@@ -133,6 +165,68 @@ public class Ball {
 		return new Velocity(sphere.getBody().getLinearVel());
 	}
 
+	// <editor-fold defaultstate="collapsed" desc="PRIMITIVE ACCESSORS, AVOIDING ALLOCATION">
+	public double getX() {
+		return sphere.getPosition().get0();
+	}
+
+	public double getY() {
+		return sphere.getPosition().get1();
+	}
+
+	/**
+	 * @return the height of the bottom of the ball, as {@link #getPosition()}
+	 */
+	public double getZ() {
+		return sphere.getPosition().get2() - RADIUS;
+	}
+
+	public double getVelocityX() {
+		return sphere.getBody().getLinearVel().get0();
+	}
+
+	public double getVelocityY() {
+		return sphere.getBody().getLinearVel().get1();
+	}
+
+	public double getVelocityZ() {
+		return sphere.getBody().getLinearVel().get2();
+	}
+
+	public double getSpeedSquared() {
+		DVector3C v = sphere.getBody().getLinearVel();
+		return v.get0() * v.get0() + v.get1() * v.get1() + v.get2() * v.get2();
+	}
+	// </editor-fold>
+
+	// <editor-fold defaultstate="collapsed" desc="INTERPOLATION BETWEEN TIME STEPS">
+	// the position before the last time step
+	private double x0, y0, z0;
+
+	void savePosition() {
+		x0 = getX();
+		y0 = getY();
+		z0 = getZ();
+	}
+
+	/**
+	 * @param alpha {@code [0, 1]} from the previous to the current time step
+	 * @return
+	 * @see GameLoop.Renderer
+	 */
+	public double getX(double alpha) {
+		return x0 + alpha * (getX() - x0);
+	}
+
+	public double getY(double alpha) {
+		return y0 + alpha * (getY() - y0);
+	}
+
+	public double getZ(double alpha) {
+		return z0 + alpha * (getZ() - z0);
+	}
+	// </editor-fold>
+
 	/**
 	 * Places the ball, at rest, at the given position.
 	 *
@@ -147,7 +241,8 @@ public class Ball {
 		DVector3 vector = p.toDVector();
 		vector.add(0, 0, sphere.getRadius());
 		sphere.setPosition(vector);
-		setVelocity(new DVector3());
+		setVelocity(0, 0, 0);
+		sphere.getBody().setAngularVel(0, 0, 0);
 	}
 
 	public Position getPosition() {
@@ -156,9 +251,15 @@ public class Ball {
 	}
 
 	void setVelocity(DVector3 v) {
+		wake();
 		sphere.getBody().setLinearVel(v);
 	}
 
+	void setVelocity(double x, double y, double z) {
+		wake();
+		sphere.getBody().setLinearVel(x, y, z);
+	}
+
 	void setVelocity(Velocity v) {
 		setVelocity(v.toDVector());
 	}
@@ -169,14 +270,71 @@ public class Ball {
 		assert !Double.isNaN(force.get1());
 		assert !Double.isNaN(force.get2());
 
+		wake();
+		sphere.getBody().addForce(force);
+	}
+
+	/**
+	 * Level of detail, must be called once after each time step. Counts the time steps that
+	 * the ball has been still on the ground and takes it out of the simulation after the
+	 * given number of them. The ball is put back by anything that changes it, or by ODE when
+	 * an enabled body touches it.
+	 *
+	 * @param steps still time steps before the body is disabled, 0 to never disable it
+	 */
+	void rest(int steps) {
+		DBody body = sphere.getBody();
+		if (!body.isEnabled())
+			return;
+		if (steps == 0 || !isStill()) {
+			still = 0;
+			return;
+		}
+		if (++still < steps)
+			return;
+		body.setLinearVel(0, 0, 0);
+		body.setAngularVel(0, 0, 0);
+		body.disable();
+		still = 0;
+	}
+
+	// rolling too slowly to be seen, which GamePhysics stops altogether
+	private boolean isStill() {
+		DBody body = sphere.getBody();
+		return getSpeedSquared() < GamePhysics.MIN_SPEED * GamePhysics.MIN_SPEED
+				&& getZ() < REST_HEIGHT
+				&& body.getAngularVel().lengthSquared() < REST_SPIN * REST_SPIN;
+	}
+
+	/**
+	 * Put the body back into the simulation, if it was resting, before it is changed.
+	 */
+	void wake() {
 		DBody body = sphere.getBody();
-		body.addForce(force);
+		if (!body.isEnabled())
+			body.enable();
+	}
+
+	boolean isResting() {
+		return !sphere.getBody().isEnabled();
+	}
+
+	int getStill() {
+		return still;
+	}
+
+	void setStill(int still) {
+		this.still = still;
 	}
 
 	void setDamping(double damping) {
 		sphere.getBody().setLinearDamping(damping);
 	}
 
+	boolean isAftertouch() {
+		return aftertouch;
+	}
+
 	void setAftertouch(boolean enabled) {
 		this.aftertouch = enabled;
 	}
@@ -0,0 +1,229 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A prediction of the path of the ball, assuming that nothing touches it: it falls under
+ * gravity, bounces off the ground and rolls to a stop as it does in {@link GamePhysics},
+ * with the damping and bounce of {@link GameCollisionHandler}. Aftertouch, players and the
+ * goalposts are ignored.
+ * <p>
+ * The path is a polyline of the positions at every time step up to a horizon, kept in
+ * pre-allocated arrays. It is recalculated without allocation the first time it is queried
+ * after {@link #invalidate()}, i.e. at most once per time step, so that every controller
+ * can share it. Positions are as {@link Ball#getPosition()} and times are in seconds from
+ * now.
+ *
+ * @author Samuel Halliday
+ */
+class BallTrajectory {
+
+	private final Ball ball;
+
+	private final double gravity, dt;
+
+	private final double[] xs, ys, zs;
+
+	// the number of points, the first is the ball as it is now
+	private int size;
+
+	// true if the ball comes to rest at the last point, within the horizon
+	private boolean stops;
+
+	private boolean stale = true;
+
+	/**
+	 * @param ball
+	 * @param gravity
+	 * @param dt the time between points, which should be the time step of the physics
+	 * @param horizon in seconds
+	 */
+	BallTrajectory(Ball ball, double gravity, double dt, double horizon) {
+		Preconditions.checkNotNull(ball);
+		Preconditions.checkArgument(dt > 0, dt);
+		Preconditions.checkArgument(horizon >= dt, horizon);
+		this.ball = ball;
+		this.gravity = gravity;
+		this.dt = dt;
+		int capacity = 1 + (int) Math.ceil(horizon / dt);
+		xs = new double[capacity];
+		ys = new double[capacity];
+		zs = new double[capacity];
+	}
+
+	/**
+	 * Must be called whenever the ball has moved.
+	 */
+	void invalidate() {
+		stale = true;
+	}
+
+	// the same order as a time step: contacts are found before the bodies are moved
+	private void predict() {
+		double x = ball.getX(), y = ball.getY(), z = ball.getZ();
+		double vx = ball.getVelocityX(), vy = ball.getVelocityY(), vz = ball.getVelocityZ();
+		xs[0] = x;
+		ys[0] = y;
+		zs[0] = z;
+		size = 1;
+		stops = false;
+		while (size < xs.length) {
+			boolean contact = z <= 0;
+			// the contact replaces the effect of gravity with the bounce
+			if (!contact)
+				vz -= gravity * dt;
+			else if (vz < -GameCollisionHandler.BOUNCE_VELOCITY)
+				vz *= -GameCollisionHandler.GROUND_BOUNCE;
+			else
+				vz = Math.max(0, vz - gravity * dt);
+			x += vx * dt;
+			y += vy * dt;
+			z += vz * dt;
+			if (contact) {
+				// ODE damps the velocity after moving the body
+				double damping = 1 - GameCollisionHandler.BALL_DAMPING;
+				vx *= damping;
+				vy *= damping;
+				vz *= damping;
+			}
+			xs[size] = x;
+			ys[size] = y;
+			zs[size] = z;
+			size++;
+			if (contact && vx * vx + vy * vy + vz * vz < GamePhysics.MIN_SPEED * GamePhysics.MIN_SPEED) {
+				stops = true;
+				break;
+			}
+		}
+		stale = false;
+	}
+
+	/**
+	 * @return the number of points on the path, at least one
+	 */
+	int size() {
+		if (stale)
+			predict();
+		return size;
+	}
+
+	double getX(int i) {
+		Preconditions.checkElementIndex(i, size());
+		return xs[i];
+	}
+
+	double getY(int i) {
+		Preconditions.checkElementIndex(i, size());
+		return ys[i];
+	}
+
+	double getZ(int i) {
+		Preconditions.checkElementIndex(i, size());
+		return zs[i];
+	}
+
+	/**
+	 * @return the time between points
+	 */
+	double getTimeStep() {
+		return dt;
+	}
+
+	/**
+	 * @return {@code true} if the ball stops at the last point
+	 */
+	boolean isStopping() {
+		if (stale)
+			predict();
+		return stops;
+	}
+
+	/**
+	 * @param time
+	 * @return the position at the time, along the path, or the last point if it is beyond
+	 * the end of the path
+	 */
+	double getXAt(double time) {
+		return interpolate(xs, time);
+	}
+
+	double getYAt(double time) {
+		return interpolate(ys, time);
+	}
+
+	double getZAt(double time) {
+		return interpolate(zs, time);
+	}
+
+	private double interpolate(double[] values, double time) {
+		Preconditions.checkArgument(time >= 0, "time");
+		if (stale)
+			predict();
+		double steps = time / dt;
+		int i = (int) steps;
+		if (i >= size - 1)
+			return values[size - 1];
+		double f = steps - i;
+		return values[i] + f * (values[i + 1] - values[i]);
+	}
+
+	/**
+	 * @param y
+	 * @return the time at which the ball first reaches {@code y}, or {@code NaN} if it does
+	 * not within the horizon
+	 */
+	double getTimeToY(double y) {
+		if (stale)
+			predict();
+		if (ys[0] == y)
+			return 0;
+		for (int i = 1; i < size; i++) {
+			double from = ys[i - 1] - y, to = ys[i] - y;
+			if (to == 0 || (from < 0) != (to < 0))
+				return (i - 1 + from / (from - to)) * dt;
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param speed of the player
+	 * @param height that the player can reach
+	 * @return the earliest time at which a player starting at {@code (x, y)} could meet the
+	 * ball below the height, or {@code NaN} if they could not within the horizon
+	 */
+	double getInterceptTime(double x, double y, double speed, double height) {
+		// no boxing, this is called for every player that chases the ball
+		Preconditions.checkArgument(speed > 0, "speed");
+		if (stale)
+			predict();
+		for (int i = 0; i < size; i++) {
+			if (zs[i] > height)
+				continue;
+			double dx = xs[i] - x, dy = ys[i] - y;
+			double reach = speed * i * dt;
+			if (dx * dx + dy * dy <= reach * reach)
+				return i * dt;
+		}
+		if (!stops)
+			return Double.NaN;
+		int last = size - 1;
+		double dx = xs[last] - x, dy = ys[last] - y;
+		return Math.max(last * dt, Math.sqrt(dx * dx + dy * dy) / speed);
+	}
+}
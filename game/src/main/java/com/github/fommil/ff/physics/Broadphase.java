@@ -0,0 +1,156 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DSapSpace;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.OdeHelper;
+import com.github.fommil.ff.Pitch;
+
+/**
+ * Strategy for finding the pairs of geometries that might be touching, before the (expensive)
+ * narrow phase collision detection. Every strategy calls back with all the pairs that are
+ * touching, in no particular order, but some are more conservative than others.
+ * <p>
+ * ODE moves a geometry to the front of its space whenever it moves, and the order of the
+ * pairs decides the order of the contact joints and so the simulation. The geometries are
+ * collided in a fixed order, so a time step only depends on the bodies, see
+ * {@link RewindBuffer}.
+ * <p>
+ * Instances may hold state and must not be shared between {@link Physics} instances.
+ *
+ * @author Samuel Halliday
+ */
+public abstract class Broadphase {
+
+	/**
+	 * @return ODE's simple space, which tests every pair: {@code O(n^2)}.
+	 */
+	public static Broadphase simple() {
+		return new Broadphase() {
+
+			@Override
+			DSpace createSpace() {
+				return OdeHelper.createSimpleSpace();
+			}
+		};
+	}
+
+	/**
+	 * @return ODE's multi-resolution hash space.
+	 */
+	public static Broadphase hash() {
+		return new Broadphase() {
+
+			private DNearCallback delegate;
+
+			// the hash space pairs unbounded geometries (i.e. the ground) with themselves
+			private final DNearCallback distinct = new DNearCallback() {
+
+				@Override
+				public void call(Object data, DGeom o1, DGeom o2) {
+					if (o1 != o2)
+						delegate.call(data, o1, o2);
+				}
+			};
+
+			@Override
+			DSpace createSpace() {
+				return OdeHelper.createHashSpace();
+			}
+
+			@Override
+			void collide(DSpace space, DNearCallback callback) {
+				delegate = callback;
+				sort(space);
+				space.collide(null, distinct);
+			}
+		};
+	}
+
+	/**
+	 * @return ODE's sweep and prune space.
+	 */
+	public static Broadphase sweepAndPrune() {
+		return new Broadphase() {
+
+			@Override
+			DSpace createSpace() {
+				return OdeHelper.createSapSpace(DSapSpace.AXES.XYZ);
+			}
+		};
+	}
+
+	/**
+	 * @param pitch
+	 * @param cell the width of each grid cell, in metres
+	 * @return a flat uniform grid over the pitch, ignoring height.
+	 * @see PitchGrid
+	 */
+	public static Broadphase grid(Pitch pitch, double cell) {
+		Preconditions.checkNotNull(pitch);
+		Preconditions.checkArgument(cell > 0, cell);
+		return new PitchGrid(pitch.getBoundsLowerLeft(), pitch.getBoundsUpperRight(), cell);
+	}
+
+	// the geometries of the space, in the order they are collided
+	private DGeom[] geoms = new DGeom[0];
+
+	/**
+	 * @return the space that all geometries will be created in.
+	 */
+	abstract DSpace createSpace();
+
+	/**
+	 * Geometries may only be added to the space, never swapped, between calls.
+	 *
+	 * @param space as created by {@link #createSpace()}
+	 * @return the geometries of the space, in a fixed order
+	 */
+	DGeom[] getGeoms(DSpace space) {
+		if (geoms.length != space.getNumGeoms())
+			geoms = Iterables.toArray(space.getGeoms(), DGeom.class);
+		return geoms;
+	}
+
+	/**
+	 * Put the geometries of the space back in the fixed order, for ODE's own collision.
+	 *
+	 * @param space as created by {@link #createSpace()}
+	 */
+	void sort(DSpace space) {
+		DGeom[] fixed = getGeoms(space);
+		// geometries are added to the front of the space
+		for (int i = fixed.length - 1; i >= 0; i--) {
+			space.remove(fixed[i]);
+			space.add(fixed[i]);
+		}
+	}
+
+	/**
+	 * Calls back with all the pairs of geometries in the space that might be touching.
+	 *
+	 * @param space as created by {@link #createSpace()}
+	 * @param callback
+	 */
+	void collide(DSpace space, DNearCallback callback) {
+		sort(space);
+		space.collide(null, callback);
+	}
+}
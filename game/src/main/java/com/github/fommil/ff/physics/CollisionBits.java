@@ -0,0 +1,106 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import javax.annotation.Nullable;
+import com.github.fommil.ff.Direction;
+import com.github.fommil.ff.physics.Player.PlayerState;
+
+/**
+ * ODE category and collide bits, so that the broadphase rejects pairs that can never
+ * collide before they reach the narrowphase in {@link CollisionCallback}. ODE tests a pair
+ * if the category of either geometry is in the collide bits of the other.
+ * <p>
+ * Team mates never collide, goalkeepers do not collide with other players and opposing
+ * players only collide if one of them is {@link #isBlocking(PlayerState) blocking}.
+ * The goalposts are fixed in place, so they are not tested against the ground.
+ *
+ * @author Samuel Halliday
+ * @see GameCollisionHandler
+ */
+final class CollisionBits {
+
+	static final long ALL = ~0L;
+
+	static final long GROUND = 1L;
+
+	static final long GOAL = 1L << 1;
+
+	static final long BALL = 1L << 2;
+
+	static final long GOALKEEPER = 1L << 3;
+
+	// outfield players are identified by the goal they are attacking
+	static final long NORTH = 1L << 4;
+
+	static final long NORTH_BLOCKING = 1L << 5;
+
+	static final long SOUTH = 1L << 6;
+
+	static final long SOUTH_BLOCKING = 1L << 7;
+
+	static final long PLAYERS = GOALKEEPER | NORTH | NORTH_BLOCKING | SOUTH | SOUTH_BLOCKING;
+
+	static final long GROUND_COLLIDE = ALL & ~GOAL;
+
+	static final long GOAL_COLLIDE = BALL | PLAYERS;
+
+	static final long GOALKEEPER_COLLIDE = GROUND | GOAL | BALL;
+
+	/**
+	 * @param state
+	 * @return {@code false} if opposing players may run through each other
+	 */
+	static boolean isBlocking(PlayerState state) {
+		switch (state) {
+			case CELEBRATE:
+			case KICK:
+			case RUN:
+				return false;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * @param opponent {@code null} if the player is not on the pitch, collides with everything
+	 * @param blocking
+	 * @return
+	 */
+	static long playerCategory(@Nullable Direction opponent, boolean blocking) {
+		if (opponent == null)
+			return ALL;
+		if (opponent == Direction.NORTH)
+			return blocking ? NORTH | NORTH_BLOCKING : NORTH;
+		return blocking ? SOUTH | SOUTH_BLOCKING : SOUTH;
+	}
+
+	/**
+	 * @param opponent {@code null} if the player is not on the pitch, collides with everything
+	 * @param blocking
+	 * @return
+	 */
+	static long playerCollide(@Nullable Direction opponent, boolean blocking) {
+		if (opponent == null)
+			return ALL;
+		long collide = GROUND | GOAL | BALL;
+		if (opponent == Direction.NORTH)
+			return collide | (blocking ? SOUTH : SOUTH_BLOCKING);
+		return collide | (blocking ? NORTH : NORTH_BLOCKING);
+	}
+
+	private CollisionBits() {
+	}
+}
@@ -15,6 +15,8 @@
 package com.github.fommil.ff.physics;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import java.util.List;
 import org.ode4j.ode.DBody;
 import org.ode4j.ode.DContact;
 import org.ode4j.ode.DContact.DSurfaceParameters;
@@ -30,6 +32,10 @@ import org.ode4j.ode.OdeHelper;
 /**
  * Wrapper class that greatly simplifies the collision detection behaviour for this package.
  * <p>
+ * Contact buffers are reused between calls. ODE keeps a reference to the contact of every
+ * joint, so a buffer that created joints is only reused after {@link #reset()}, when the
+ * joints have been emptied at the end of the time step.
+ * <p>
  * TODO: could be made much more general by using reflection instead of a hard-coded interface.
  *
  * @author Samuel Halliday
@@ -57,6 +63,11 @@ class CollisionCallback implements DNearCallback {
 
 	private final CollisionHandler handler;
 
+	private final List<DContactBuffer> buffers = Lists.newArrayList();
+
+	// buffers[0 .. used) are referenced by contact joints
+	private int used;
+
 	public CollisionCallback(DWorld world, DJointGroup joints, CollisionHandler handler) {
 		Preconditions.checkNotNull(world);
 		Preconditions.checkNotNull(joints);
@@ -74,6 +85,10 @@ class CollisionCallback implements DNearCallback {
 		DBody b1 = o1.getBody();
 		DBody b2 = o2.getBody();
 
+		// the ground, resting and kinematic bodies are not simulated, so contacts between them do nothing
+		if (!isSimulated(b1) && !isSimulated(b2))
+			return;
+
 		Object obj1 = b1 != null ? b1.getData() : null;
 		Object obj2 = b2 != null ? b2.getData() : null;
 
@@ -82,12 +97,16 @@ class CollisionCallback implements DNearCallback {
 		boolean groundInvolved = o1 instanceof DPlane || o2 instanceof DPlane;
 		boolean goalPostInvolved = obj1 instanceof Goalpost || obj2 instanceof Goalpost;
 
-		DContactBuffer contacts = new DContactBuffer(MAX_CONTACTS);
+		if (used == buffers.size())
+			buffers.add(new DContactBuffer(MAX_CONTACTS));
+		DContactBuffer contacts = buffers.get(used);
 		int numc = OdeHelper.collide(o1, o2, MAX_CONTACTS, contacts.getGeomBuffer());
+		boolean joined = false;
 
 		for (int i = 0; i < numc; i++) {
 			DContact contact = contacts.get(i);
 			DSurfaceParameters surface = contact.surface;
+			clear(surface);
 
 			// TODO: clean
 			if (ballInvolved) {
@@ -124,6 +143,28 @@ class CollisionCallback implements DNearCallback {
 
 			DJoint c = OdeHelper.createContactJoint(world, joints, contact);
 			c.attach(b1, b2);
+			joined = true;
 		}
+		if (joined)
+			used++;
+	}
+
+	private boolean isSimulated(DBody body) {
+		return body != null && body.isEnabled() && !body.isKinematic();
+	}
+
+	/**
+	 * Must be called after the contact joints have been emptied, so the buffers may be reused.
+	 */
+	void reset() {
+		used = 0;
+	}
+
+	// the fields that the handlers may set, as a new buffer
+	private void clear(DSurfaceParameters surface) {
+		surface.mode = 0;
+		surface.mu = 0;
+		surface.bounce = 0;
+		surface.bounce_vel = 0;
 	}
 }
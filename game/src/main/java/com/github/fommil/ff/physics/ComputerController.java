@@ -0,0 +1,103 @@
+/*
+ * Copyright Samuel Halliday 2013
+ *
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import com.github.fommil.ff.Direction;
+import com.github.fommil.ff.Pitch;
+import com.github.fommil.ff.Team;
+
+/**
+ * A very simple computer opponent that plays the part of the user: the selected player
+ * runs to meet the ball and kicks it towards the opponent's goal.
+ *
+ * @author Samuel Halliday
+ */
+public class ComputerController {
+
+	private static final double TOLERANCE = 0.2;
+
+	// consistent with Player.kick, which measures from the centre of the player
+	private static final double KICKING_DISTANCE = 1.1;
+
+	private static final double CHANGE_DISTANCE = 5;
+
+	private final GamePhysics game;
+
+	private final Team team;
+
+	private final Position top, bottom;
+
+	// a mask of Action
+	private int actions;
+
+	public ComputerController(GamePhysics game) {
+		this(game, game.getTeamA());
+	}
+
+	/**
+	 * @param game
+	 * @param team {@link GamePhysics#getTeamB()} only if it is played by a second user
+	 */
+	public ComputerController(GamePhysics game, Team team) {
+		Preconditions.checkNotNull(game);
+		Preconditions.checkArgument(team == game.getTeamA() || game.getSelectedB() != null, "not a user's team");
+		this.game = game;
+		this.team = team;
+		Pitch pitch = game.getPitch();
+		top = pitch.getGoalTop();
+		bottom = pitch.getGoalBottom();
+	}
+
+	/**
+	 * Controller, must be called before each time step.
+	 */
+	public void update() {
+		Player selected = team == game.getTeamA() ? game.getSelected() : game.getSelectedB();
+		Ball ball = game.getBall();
+		double distance2 = selected.distanceSquared(ball);
+
+		actions = 0;
+		if (distance2 > KICKING_DISTANCE * KICKING_DISTANCE) {
+			// to where the ball can first be reached
+			BallTrajectory trajectory = game.getBallTrajectory();
+			double t = trajectory.getInterceptTime(selected.getX(), selected.getY(), Player.SPEED, Player.HEIGHT);
+			if (Double.isNaN(t))
+				steer(selected, ball.getX(), ball.getY());
+			else
+				steer(selected, trajectory.getXAt(t), trajectory.getYAt(t));
+			if (distance2 > CHANGE_DISTANCE * CHANGE_DISTANCE)
+				actions |= Action.CHANGE.mask();
+		} else {
+			Position goal = selected.getOpponent() == Direction.NORTH ? top : bottom;
+			steer(selected, goal.x, goal.y);
+			actions |= Action.KICK.mask();
+		}
+		game.setUserActions(team, actions, 0);
+	}
+
+	private void steer(Player from, double x, double y) {
+		double dx = x - from.getX();
+		if (dx > TOLERANCE)
+			actions |= Action.RIGHT.mask();
+		else if (dx < -TOLERANCE)
+			actions |= Action.LEFT.mask();
+		double dy = y - from.getY();
+		if (dy > TOLERANCE)
+			actions |= Action.UP.mask();
+		else if (dy < -TOLERANCE)
+			actions |= Action.DOWN.mask();
+	}
+}
@@ -14,13 +14,10 @@
  */
 package com.github.fommil.ff.physics;
 
-import java.util.EnumSet;
-import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import org.ode4j.ode.DContact.DSurfaceParameters;
 import org.ode4j.ode.OdeConstants;
 import com.github.fommil.ff.physics.CollisionCallback.CollisionHandler;
-import com.github.fommil.ff.physics.Player.PlayerState;
-import com.github.fommil.ff.swos.SoundParser;
 
 /**
  * Handles collisions using objects specific to this package.
@@ -30,12 +27,31 @@ import com.github.fommil.ff.swos.SoundParser;
  */
 class GameCollisionHandler implements CollisionHandler {
 
-	private static final Logger log = Logger.getLogger(GameCollisionHandler.class.getName());
+	// also used by BallTrajectory
+	static final double BALL_DAMPING = 0.1;
+
+	static final double GROUND_BOUNCE = 0.5;
+
+	static final double BOUNCE_VELOCITY = 0.1;
+
+	@Nullable
+	private final GameListener listener;
+
+	GameCollisionHandler() {
+		this(null);
+	}
+
+	/**
+	 * @param listener to be informed of ball bounces
+	 */
+	GameCollisionHandler(@Nullable GameListener listener) {
+		this.listener = listener;
+	}
 
 	@Override
 	public boolean collide(Ball ball, Player player, DSurfaceParameters surface) {
 		enableSoftBounce(surface);
-		ball.setDamping(0.1); // ?? can be overridden
+		ball.setDamping(BALL_DAMPING); // ?? can be overridden
 		surface.bounce = player.getBounce();
 		return true;
 		// FIXME: consider ignoring many player/ball interactions altogether for gameplay!
@@ -43,12 +59,12 @@ class GameCollisionHandler implements CollisionHandler {
 
 	@Override
 	public boolean collide(Player player1, Player player2, DSurfaceParameters surface) {
+		// most pairs are rejected earlier by the CollisionBits, this catches the rest
 		if (player1 instanceof Goalkeeper || player2 instanceof Goalkeeper)
 			return false; // classic graphics can't handle goalkeepers on the ground
 		if (player1.getTeam() == player2.getTeam())
 			return false; // team mates do not collide
-		EnumSet<PlayerState> nonBlocking = EnumSet.of(PlayerState.CELEBRATE, PlayerState.KICK, PlayerState.RUN);
-		if (nonBlocking.contains(player1.getState()) && nonBlocking.contains(player2.getState()))
+		if (!CollisionBits.isBlocking(player1.getState()) && !CollisionBits.isBlocking(player2.getState()))
 			// let opposing players run through each other in most cases
 			return false;
 
@@ -60,18 +76,13 @@ class GameCollisionHandler implements CollisionHandler {
 	@Override
 	public boolean collide(Ball ball, DSurfaceParameters surface) {
 		enableSoftBounce(surface);
-		surface.bounce = 0.5;
-		ball.setDamping(0.1); // ?? can be overridden
+		surface.bounce = GROUND_BOUNCE;
+		ball.setDamping(BALL_DAMPING); // ?? can be overridden
 
-		if (ball.getVelocity().z < -1) {
+		if (ball.getVelocityZ() < -1) {
 			ball.setAftertouch(false);
-
-			// TODO: different bounce sound for ground/player/post
-			try {
-				SoundParser.play(SoundParser.Fx.BALL_BOUNCE);
-			} catch (Exception ex) {
-				log.warning(ex.getMessage());
-			}
+			if (listener != null)
+				listener.bounce(ball);
 		}
 
 		return true;
@@ -95,6 +106,6 @@ class GameCollisionHandler implements CollisionHandler {
 
 	private void enableSoftBounce(DSurfaceParameters surface) {
 		surface.mode = OdeConstants.dContactBounce | OdeConstants.dContactSoftERP;
-		surface.bounce_vel = 0.1;
+		surface.bounce_vel = BOUNCE_VELOCITY;
 	}
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright Samuel Halliday 2013
+ *
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.github.fommil.ff.Direction;
+
+/**
+ * Notification of events during game play, e.g. for sound effects or match statistics.
+ * Callbacks happen on the thread that is stepping the {@link GamePhysics} and must return quickly.
+ *
+ * @author Samuel Halliday
+ */
+public interface GameListener {
+
+	/**
+	 * @param facing of the goal that the ball has entered
+	 */
+	void goal(Direction facing);
+
+	/**
+	 * @param player who kicked the ball
+	 */
+	void kick(Player player);
+
+	/**
+	 * @param ball that bounced off the ground or a goalpost
+	 */
+	void bounce(Ball ball);
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Steps a {@link Physics} at a fixed rate, independent of the rendering rate, by
+ * accumulating elapsed wall clock time and consuming it in whole time steps.
+ * The remainder is passed to the {@link Renderer} as an interpolation factor between the
+ * last two time steps, so that the display is smooth at any refresh rate.
+ * <p>
+ * If the physics falls behind by more than {@link #getMaxSteps()} time steps, the excess
+ * time is dropped (i.e. the game slows down) rather than trying to catch up forever.
+ *
+ * @author Samuel Halliday
+ * @see <a href="http://gafferongames.com/game-physics/fix-your-timestep/">Fix Your Timestep!</a>
+ */
+public class GameLoop {
+
+	private static final Logger log = Logger.getLogger(GameLoop.class.getName());
+
+	private static final int DEFAULT_MAX_STEPS = 10;
+
+	/**
+	 * Draws the game, called after the physics has been stepped.
+	 */
+	public interface Renderer {
+
+		/**
+		 * @param alpha {@code [0, 1)} between the previous and the current time step
+		 */
+		void render(double alpha);
+	}
+
+	private final Physics physics;
+
+	private final double dt;
+
+	private final long period;
+
+	private final int maxSteps;
+
+	private long last = Long.MIN_VALUE;
+
+	private long accumulator;
+
+	private long ticks;
+
+	private volatile boolean running;
+
+	/**
+	 * @param physics
+	 * @param dt in seconds
+	 */
+	public GameLoop(Physics physics, double dt) {
+		this(physics, dt, DEFAULT_MAX_STEPS);
+	}
+
+	/**
+	 * @param physics
+	 * @param dt in seconds
+	 * @param maxSteps the most time steps to take in one update
+	 */
+	public GameLoop(Physics physics, double dt, int maxSteps) {
+		Preconditions.checkNotNull(physics);
+		Preconditions.checkArgument(dt > 0, dt);
+		Preconditions.checkArgument(maxSteps > 0, maxSteps);
+		this.physics = physics;
+		this.dt = dt;
+		this.period = Math.round(dt * TimeUnit.SECONDS.toNanos(1));
+		this.maxSteps = maxSteps;
+	}
+
+	/**
+	 * Step the physics for the time that has elapsed since the last call.
+	 * The first call only starts the clock.
+	 *
+	 * @return the interpolation factor, see {@link Renderer#render(double)}
+	 */
+	public double update() {
+		long now = System.nanoTime();
+		long elapsed = last == Long.MIN_VALUE ? 0 : now - last;
+		last = now;
+		return advance(elapsed);
+	}
+
+	// exposed for testing
+	double advance(long elapsed) {
+		Preconditions.checkArgument(elapsed >= 0, elapsed);
+		accumulator += elapsed;
+		int steps = 0;
+		while (accumulator >= period) {
+			if (steps == maxSteps) {
+				long dropped = accumulator - accumulator % period;
+				log.fine("dropped " + (dropped / period) + " time steps");
+				accumulator -= dropped;
+				break;
+			}
+			physics.step(dt);
+			accumulator -= period;
+			steps++;
+			ticks++;
+		}
+		return accumulator / (double) period;
+	}
+
+	/**
+	 * Update and render at the given rate on the calling thread, until {@link #stop()}
+	 * is called or the thread is interrupted.
+	 *
+	 * @param hz frames per second
+	 * @param renderer
+	 */
+	public void run(double hz, Renderer renderer) {
+		Preconditions.checkArgument(hz > 0, hz);
+		Preconditions.checkNotNull(renderer);
+		long frame = Math.round(TimeUnit.SECONDS.toNanos(1) / hz);
+		running = true;
+		long next = System.nanoTime();
+		while (running && !Thread.currentThread().isInterrupted()) {
+			renderer.render(update());
+			next += frame;
+			long now = System.nanoTime();
+			if (next > now)
+				LockSupport.parkNanos(next - now);
+			else
+				next = now; // don't try to make up for missed frames
+		}
+	}
+
+	/**
+	 * Stop {@link #run(double, Renderer)} after the current frame.
+	 */
+	public void stop() {
+		running = false;
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public double getDt() {
+		return dt;
+	}
+
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+
+	/**
+	 * @return the number of time steps taken
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	// </editor-fold>
+}
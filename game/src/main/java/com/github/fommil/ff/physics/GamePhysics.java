@@ -17,29 +17,21 @@ package com.github.fommil.ff.physics;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 import org.ode4j.math.DVector3;
-import org.ode4j.ode.DGeom.DNearCallback;
 
 import com.github.fommil.ff.Direction;
 import com.github.fommil.ff.Pitch;
 import com.github.fommil.ff.PlayerStats;
 import com.github.fommil.ff.Tactics;
 import com.github.fommil.ff.Tactics.BallZone;
-import com.github.fommil.ff.Tactics.PlayerZone;
 import com.github.fommil.ff.Team;
-import com.github.fommil.ff.physics.Player.PlayerState;
-import com.github.fommil.ff.swos.SoundParser;
-import com.github.fommil.ff.swos.SoundParser.Fx;
 
 /**
  * The model (M) and controller (C) for game play.
@@ -52,22 +44,66 @@ public class GamePhysics extends Physics {
 	
 	private static final Logger log = Logger.getLogger(GamePhysics.class.getName());
 
+	static final double GRAVITY = 9.81;
+
 	static final double MIN_SPEED = 0.1;
 
 	static final double MAX_SPEED = 50;
 
+	private static final double PICKUP_TOLERANCE = 0.25;
+
+	// 5 by 6 cells over the pitch bounds
+	private static final double INDEX_CELL = 15;
+
+	// level of detail: players this close to the ball are always simulated
+	private static final double NEAR = 10;
+
+	// ... and players this far from the ball rest sooner
+	private static final double FAR = 30;
+
+	// still time steps before a body rests
+	private static final int REST_STEPS = 50, FAR_REST_STEPS = 10;
+
+	// players further than this from the ball and their opponents are kinematic
+	private static final double KINEMATIC_RADIUS = 5;
+
+	// the time step of the interactive game and HeadlessMatch
+	private static final double TRAJECTORY_STEP = 0.01;
+
+	private static final double TRAJECTORY_HORIZON = 3;
+
 	private final GoalkeeperController goalkeeperController;
+
+	private final PlayerIndex index;
+
+	private final BallTrajectory trajectory;
+
+	private TacticsTable tacticsA, tacticsB;
+
+	// the tactical position of every player, for the ball zone
+	private final double[] targetX, targetY;
+
+	private int targetZone = -1;
+
+	// the players that the users may change to
+	private final PlayerIndex.Filter selectableA, selectableB;
 	
 	private volatile GameState gameState;
+
+	// where the ball left the field, for the throw-in
+	private Position bltfPos;
+
+	private BallZone bltfZone;
 	
 	
 	@Deprecated // DEBUGGING
 	private void debugNaNs() {
-		ball.getPosition();
-		ball.getVelocity();
+		// NaN propagates through the sum
+		double sum = ball.getX() + ball.getY() + ball.getZ() + ball.getSpeedSquared();
+		Preconditions.checkState(!Double.isNaN(sum), "ball is NaN");
 		for (Player player : getPlayers()) {
-			player.getPosition();
-			player.getVelocity();
+			sum = player.getX() + player.getY() + player.getZ() + player.getSpeedSquared();
+			Preconditions.checkState(!Double.isNaN(sum), "player is NaN");
 		}
 	}
 
@@ -109,13 +145,86 @@ public class GamePhysics extends Physics {
 
 	private Player selected;
 
-	private volatile Collection<Action> actions = Collections.emptyList();
+	// only when team B is played by a second user
+	@Nullable
+	private Player selectedB;
+
+	// packed by InputLog, set by the users' threads and read at the start of each time step
+	private volatile int userInputA, userInputB;
+
+	// the input for the current time step
+	private int input;
+
+	// masks of Action and Aftertouch
+	private int actions, actionsB;
+
+	private int aftertouches, aftertouchesB;
+
+	// true if the second user kicked the ball last and may apply aftertouch
+	private boolean aftertouchB;
+
+	private int tick;
+
+	@Nullable
+	private InputLog recording, replaying;
 
-	private volatile Collection<Aftertouch> aftertouches = Collections.emptyList();
+	private final long seed;
 
-	private final Map<Player, Double> grounded = Maps.newHashMap();
+	// the only source of randomness, so that a match can be reproduced.
+	// Reseeded every time step, so that rewinding does not need to restore it.
+	private final Random random;
 
-	private final Collection<Goalpost> goals = Lists.newArrayList();
+	private final List<Goalpost> goals = Lists.newArrayListWithCapacity(2);
+
+	// bit per goal that the ball is over the goal line of
+	private int ballInside;
+
+	// listeners are not told about events during re-simulation
+	private boolean muted;
+
+	// still bodies are taken out of the simulation
+	private boolean levelOfDetail = true;
+
+	private double kinematicRadius = KINEMATIC_RADIUS;
+
+	private final PlayerIndex.Filter opponentsA, opponentsB;
+
+	private final List<GameListener> listeners = Lists.newCopyOnWriteArrayList();
+
+	// the collision handler is created during super construction, before the listeners exist
+	private class Dispatcher implements GameListener {
+
+		@Override
+		public void goal(Direction facing) {
+			if (muted)
+				return;
+			for (GameListener listener : listeners) {
+				listener.goal(facing);
+			}
+		}
+
+		@Override
+		public void kick(Player player) {
+			if (muted)
+				return;
+			for (GameListener listener : listeners) {
+				listener.kick(player);
+			}
+		}
+
+		@Override
+		public void bounce(Ball ball) {
+			if (muted)
+				return;
+			for (GameListener listener : listeners) {
+				listener.bounce(ball);
+			}
+		}
+	}
+
+	private final GameListener dispatcher = new Dispatcher();
+
+	private final TripleBuffer<GameSnapshot> snapshots;
 
 	/**
 	 * @param a
@@ -123,81 +232,323 @@ public class GamePhysics extends Physics {
 	 * @param pitch
 	 */
 	public GamePhysics(Team a, Team b, Pitch pitch) {
-		super(9.81);
+		this(a, b, pitch, Broadphase.simple());
+	}
+
+	/**
+	 * @param a
+	 * @param b
+	 * @param pitch
+	 * @param broadphase
+	 */
+	public GamePhysics(Team a, Team b, Pitch pitch, Broadphase broadphase) {
+		this(a, b, pitch, broadphase, 0);
+	}
+
+	/**
+	 * @param a
+	 * @param b
+	 * @param pitch
+	 * @param broadphase
+	 * @param seed for all random decisions, a match is reproducible with an {@link InputLog}
+	 */
+	public GamePhysics(Team a, Team b, Pitch pitch, Broadphase broadphase, long seed) {
+		this(a, b, pitch, broadphase, seed, 1);
+	}
+
+	/**
+	 * @param a
+	 * @param b
+	 * @param pitch
+	 * @param broadphase
+	 * @param seed for all random decisions, a match is reproducible with an {@link InputLog}
+	 * @param users 1 or 2, the second user plays team B and only then has outfield players
+	 */
+	public GamePhysics(Team a, Team b, Pitch pitch, Broadphase broadphase, long seed, int users) {
+		super(GRAVITY, broadphase);
+		Preconditions.checkArgument(users == 1 || users == 2, users);
+		this.seed = seed;
+		random = new Random(seed);
 		this.a = a;
 		this.b = b;
 		this.pitch = pitch;
 
 		goalkeeperController = new GoalkeeperController(pitch);
 
-		ball = new Ball(world, space);
-		Position centre = pitch.getCentre();
-		ball.setPosition(centre);
+		// the bodies and geometries, see Physics
+		synchronized (ODE_LOCK) {
+			ball = new Ball(world, space, scratch);
+			Position centre = pitch.getCentre();
+			ball.setPosition(centre);
+			trajectory = new BallTrajectory(ball, GRAVITY, TRAJECTORY_STEP, TRAJECTORY_HORIZON);
+
+			goals.add(new Goalpost(world, space, pitch, Direction.NORTH));
+			goals.add(new Goalpost(world, space, pitch, Direction.SOUTH));
+
+			BallZone bz = ball.getZone(pitch);
+
+			List<PlayerStats> aPlayers = a.getPlayers();
+			Tactics tactics = a.getCurrentTactics();
+			Goalkeeper goalkeeper = new Goalkeeper(1, a, aPlayers.get(0), world, space, scratch);
+			goalkeeper.setPosition(pitch.getGoalBottom());
+			goalkeeper.setOpponent(Direction.NORTH);
+			as.add(goalkeeper);
+			for (int i = 2; i <= 11; i++) {
+				Position p = tactics.getZone(bz, i, Direction.NORTH).getCentre(pitch);
+				Player pma = new Player(i, a, aPlayers.get(i - 1), world, space, scratch);
+				pma.setPosition(p);
+				pma.setOpponent(Direction.NORTH);
+				as.add(pma);
+			}
+			selected = as.get(9);
+
+			// TODO: remove duplication
+			List<PlayerStats> bPlayers = b.getPlayers();
+			tactics = b.getCurrentTactics();
+			goalkeeper = new Goalkeeper(1, b, bPlayers.get(0), world, space, scratch);
+			goalkeeper.setPosition(pitch.getGoalTop());
+			goalkeeper.setOpponent(Direction.SOUTH);
+			bs.add(goalkeeper);
+			// TODO: outfield players for team B when it is not played by a user
+			if (users == 2) {
+				for (int i = 2; i <= 11; i++) {
+					Position p = tactics.getZone(bz, i, Direction.SOUTH).getCentre(pitch);
+					Player pmb = new Player(i, b, bPlayers.get(i - 1), world, space, scratch);
+					pmb.setPosition(p);
+					pmb.setOpponent(Direction.SOUTH);
+					bs.add(pmb);
+				}
+				selectedB = bs.get(9);
+			}
+		}
+		index = new PlayerIndex(pitch, getPlayers(), INDEX_CELL);
+		tacticsA = new TacticsTable(a.getCurrentTactics(), pitch, Direction.NORTH);
+		tacticsB = new TacticsTable(b.getCurrentTactics(), pitch, Direction.SOUTH);
+		targetX = new double[as.size() + bs.size()];
+		targetY = new double[as.size() + bs.size()];
+		selectableA = new Selectable(Direction.NORTH);
+		selectableB = new Selectable(Direction.SOUTH);
+		opponentsA = new Attacking(Direction.SOUTH);
+		opponentsB = new Attacking(Direction.NORTH);
+		gameState = GameState.Running;
+		savePositions();
 
-		goals.add(new Goalpost(world, space, pitch, Direction.NORTH));
-		goals.add(new Goalpost(world, space, pitch, Direction.SOUTH));
+		snapshots = new TripleBuffer<GameSnapshot>(
+				new GameSnapshot(getPlayers()), new GameSnapshot(getPlayers()), new GameSnapshot(getPlayers()));
+		publishSnapshot();
+	}
 
-		BallZone bz = ball.getZone(pitch);
+	private void publishSnapshot() {
+		snapshots.getBack().set(this);
+		snapshots.publish();
+	}
+
+	/**
+	 * The views must use this, rather than the live objects, when drawing from a thread
+	 * other than the one that is stepping the physics.
+	 * Only one thread may read snapshots and it must be finished with a snapshot before
+	 * calling this again.
+	 *
+	 * @return the state after the most recent time step
+	 */
+	public GameSnapshot getSnapshot() {
+		return snapshots.getFront();
+	}
 
-		List<PlayerStats> aPlayers = a.getPlayers();
-		Tactics tactics = a.getCurrentTactics();
-		Goalkeeper goalkeeper = new Goalkeeper(1, a, aPlayers.get(0), world, space);
-		goalkeeper.setPosition(pitch.getGoalBottom());
-		goalkeeper.setOpponent(Direction.NORTH);
-		as.add(goalkeeper);
-		for (int i = 2; i <= 11; i++) {
-			Position p = tactics.getZone(bz, i, Direction.NORTH).getCentre(pitch);
-			Player pma = new Player(i, a, aPlayers.get(i - 1), world, space);
-			pma.setPosition(p);
-			pma.setOpponent(Direction.NORTH);
-			as.add(pma);
+	// for interpolation between time steps
+	private void savePositions() {
+		ball.savePosition();
+		for (Player p : as) {
+			p.savePosition();
+		}
+		for (Player p : bs) {
+			p.savePosition();
 		}
-		selected = as.get(9);
-
-		// TODO: remove duplication
-		List<PlayerStats> bPlayers = b.getPlayers();
-		tactics = b.getCurrentTactics();
-		goalkeeper = new Goalkeeper(1, b, bPlayers.get(0), world, space);
-		goalkeeper.setPosition(pitch.getGoalTop());
-		goalkeeper.setOpponent(Direction.SOUTH);
-		bs.add(goalkeeper);
-//		for (int i = 2; i <= 11; i++) {
-//			Position p = tactics.getZone(bz, i, Direction.SOUTH).getCentre(pitch);
-//			Player pma = new Player(i, b, bPlayers.get(i - 1), world, space);
-//			pma.setPosition(p);
-//		    pma.setOpponent(Direction.SOUTH);
-//			bs.add(pma);
-//		}
-		gameState = GameState.Running;
 	}
 
 	@Override
-	protected DNearCallback getCollisionCallback() {
-		GameCollisionHandler handler = new GameCollisionHandler();
+	protected CollisionCallback getCollisionCallback() {
+		GameCollisionHandler handler = new GameCollisionHandler(new Dispatcher());
 		return new CollisionCallback(world, joints, handler);
 	}
 
 	/**
-	 * Controller.
+	 * @param listener
+	 */
+	public void addListener(GameListener listener) {
+		Preconditions.checkNotNull(listener);
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param listener
+	 */
+	public void removeListener(GameListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Restart play from the centre spot, e.g. after a goal, with the ball at rest and every
+	 * player back in their starting position. Must be called between time steps.
+	 */
+	public void kickOff() {
+		ball.setPosition(pitch.getCentre());
+		BallZone bz = ball.getZone(pitch);
+		kickOff(as, a.getCurrentTactics(), pitch.getGoalBottom(), Direction.NORTH, bz);
+		kickOff(bs, b.getCurrentTactics(), pitch.getGoalTop(), Direction.SOUTH, bz);
+		gameState = GameState.Running;
+		targetZone = -1;
+		index.invalidate();
+		trajectory.invalidate();
+	}
+
+	private void kickOff(List<Player> team, Tactics tactics, Position goal, Direction opponent, BallZone bz) {
+		for (Player p : team) {
+			if (p instanceof Goalkeeper)
+				p.reset(goal);
+			else
+				p.reset(tactics.getZone(bz, p.getShirt(), opponent).getCentre(pitch));
+		}
+	}
+
+	/**
+	 * Controller. May be called from any thread, takes effect at the start of the next
+	 * time step.
 	 *
 	 * @param actions
 	 * @param aftertouches
 	 */
 	public void setUserActions(Collection<Action> actions, Collection<Aftertouch> aftertouches) {
-		Preconditions.checkNotNull(actions);
-		Preconditions.checkNotNull(aftertouches);
-		this.actions = Sets.newHashSet(actions);
-		this.aftertouches = Sets.newHashSet(aftertouches);
+		setUserActions(a, actions, aftertouches);
+	}
+
+	/**
+	 * Controller. May be called from any thread, takes effect at the start of the next
+	 * time step.
+	 *
+	 * @param team {@link #getTeamB()} only if there is a second user
+	 * @param actions
+	 * @param aftertouches
+	 */
+	public void setUserActions(Team team, Collection<Action> actions, Collection<Aftertouch> aftertouches) {
+		setUserInput(team, InputLog.pack(actions, aftertouches));
+	}
+
+	/**
+	 * Controller. May be called from any thread, takes effect at the start of the next
+	 * time step.
+	 *
+	 * @param actions a mask of {@link Action}
+	 * @param aftertouches a mask of {@link Aftertouch}
+	 */
+	public void setUserActions(int actions, int aftertouches) {
+		setUserActions(a, actions, aftertouches);
+	}
+
+	/**
+	 * Controller. May be called from any thread, takes effect at the start of the next
+	 * time step.
+	 *
+	 * @param team {@link #getTeamB()} only if there is a second user
+	 * @param actions a mask of {@link Action}
+	 * @param aftertouches a mask of {@link Aftertouch}
+	 */
+	public void setUserActions(Team team, int actions, int aftertouches) {
+		setUserInput(team, InputLog.pack(actions, aftertouches));
+	}
+
+	/**
+	 * @param team
+	 * @param input packed by {@link InputLog}
+	 */
+	void setUserInput(Team team, int input) {
+		if (team == a)
+			userInputA = input;
+		else {
+			Preconditions.checkArgument(team == b && selectedB != null, "not a user's team");
+			userInputB = input;
+		}
+	}
+
+	/**
+	 * @param team
+	 * @return the most recent input of the user playing the team, packed by {@link InputLog}
+	 */
+	int getUserInput(Team team) {
+		return team == a ? userInputA : userInputB;
+	}
+
+	/**
+	 * Record the user input of every time step, starting from the first.
+	 *
+	 * @param log
+	 */
+	public void record(InputLog log) {
+		Preconditions.checkArgument(log.getSeed() == seed && log.size() == 0, "log must be empty with the same seed");
+		Preconditions.checkState(tick == 0, "must be called before the first step");
+		recording = log;
+	}
+
+	/**
+	 * Take the user input from a recording instead of {@link #setUserActions}. Given the same
+	 * teams, pitch and time steps, the match will be identical to the recorded one.
+	 * There is no user input after the end of the recording.
+	 *
+	 * @param log
+	 */
+	public void replay(InputLog log) {
+		Preconditions.checkArgument(log.getSeed() == seed, "log has a different seed");
+		Preconditions.checkState(tick == 0, "must be called before the first step");
+		replaying = log;
+	}
+
+	// the input only changes at the start of a time step
+	private void latchInput() {
+		int next;
+		if (replaying == null)
+			next = userInputA | (userInputB << InputLog.TEAM_B_SHIFT);
+		else
+			next = tick < replaying.size() ? replaying.get(tick) : 0;
+		if (recording != null)
+			recording.add(next);
+		if (next != input) {
+			input = next;
+			actions = InputLog.getActionMask(next);
+			aftertouches = InputLog.getAftertouchMask(next);
+			int nextB = next >>> InputLog.TEAM_B_SHIFT;
+			actionsB = InputLog.getActionMask(nextB);
+			aftertouchesB = InputLog.getAftertouchMask(nextB);
+		}
+		random.setSeed(getTickSeed(seed, tick));
+		tick++;
+	}
+
+	// the SplitMix64 finaliser: Random seeded with consecutive ticks gives correlated first draws
+	static long getTickSeed(long seed, int tick) {
+		long z = seed ^ tick;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
 	}
 
 	@Override
 	protected void beforeStep() {
 		debugNaNs();
+		latchInput();
+		savePositions();
+		index.invalidate();
 		
-		for (Goalpost goal : goals) {
-			if (goal.isInside(ball)) {
-				log.info("GOAL TO " + goal.getFacing());
-				SoundParser.play(Fx.CROWD_CHEER);
+		for (int i = 0; i < goals.size(); i++) {
+			Goalpost goal = goals.get(i);
+			int bit = 1 << i;
+			if (!goal.isOverLine(ball)) {
+				ballInside &= ~bit;
+			} else if ((ballInside & bit) == 0) {
+				ballInside |= bit;
+				if (goal.isCrossedInMouth(ball)) {
+					log.info("GOAL TO " + goal.getFacing());
+					dispatcher.goal(goal.getFacing());
+				}
 			}
 		}
 		
@@ -221,123 +572,176 @@ public class GamePhysics extends Physics {
 		}
 		
 		
-		ball.setAftertouch(aftertouches);
+		ball.setAftertouch(aftertouchB ? aftertouchesB : aftertouches);
 		ball.setDamping(0);
+
+		updateKinematic(as, opponentsA);
+		updateKinematic(bs, opponentsB);
+	}
+
+	// after the commands, so that players are dynamic before they tackle or head the ball
+	private void updateKinematic(List<Player> team, PlayerIndex.Filter opponents) {
+		double x = ball.getX(), y = ball.getY(), z = ball.getZ();
+		double radius2 = kinematicRadius * kinematicRadius;
+		for (int i = 0; i < team.size(); i++) {
+			Player p = team.get(i);
+			p.setKinematic(p.canBeKinematic() && p.distanceSquared(x, y, z) > radius2
+					&& !isNearGoal(p, radius2)
+					&& index.within(p.getX(), p.getY(), p.getZ(), kinematicRadius, opponents, null) == 0);
+		}
+	}
+
+	// the goal frames are kinematic, so would not stop a kinematic player
+	private boolean isNearGoal(Player p, double radius2) {
+		for (int i = 0; i < goals.size(); i++) {
+			if (goals.get(i).distanceSquared(p.getX(), p.getY()) <= radius2)
+				return true;
+		}
+		return false;
 	}
 	
 	private void beforeStep_BallPositioning() {
-		ball.setPosition(gameState.getPositionWhereTheBallLeftTheField());
-		ball.setVelocity(new DVector3());
+		ball.setPosition(bltfPos);
+		ball.setVelocity(0, 0, 0);
+		trajectory.invalidate();
 		
-		gameState = GameState.ThrowIn_BallPickup.copyStateFrom(gameState);
+		gameState = GameState.ThrowIn_BallPickup;
 	}
 	
 	private void beforeStep_Pickup() {
-		if (selected.getVelocity().speed() < MIN_SPEED)
-		{
-			Position bltfPos = gameState.getPositionWhereTheBallLeftTheField();
-			if (Math.abs(selected.getPosition().x - bltfPos.x) > 0.6
-					|| Math.abs(selected.getPosition().y - bltfPos.y) > 0.3)
-			{
-				selected.autoPilot(bltfPos);
-				//System.out.println("x = " + Math.abs(selected.getPosition().x - positionWhereTheBallLeftTheField.x));
-				//System.out.println("y = " + Math.abs(selected.getPosition().y - positionWhereTheBallLeftTheField.y));
-			}
-			else
-			{
-				selected.setState(Player.PlayerState.THROW);
-				gameState = GameState.Running;
-				List<Action> auto = Lists.newArrayList();
-				auto.add(Action.RIGHT);
-				selected.setActions(auto);
-			}
+		if (selected.getSpeedSquared() < MIN_SPEED * MIN_SPEED
+				&& Math.abs(selected.getX() - bltfPos.x) <= 0.6
+				&& Math.abs(selected.getY() - bltfPos.y) <= 0.3) {
+			selected.setState(Player.PlayerState.THROW);
+			gameState = GameState.Running;
+			selected.setActions(Action.RIGHT.mask());
+		} else {
+			// the default tolerance would let the player stop out of reach of the ball
+			selected.autoPilot(bltfPos, PICKUP_TOLERANCE);
 		}
 	}
 	
 	private void beforeStep_ThrowIn_PlayerPositioning() {
 		boolean areStatic = true;
 		for (Player p : getPlayers()) {
-			if (p.getVelocity().speed() > MIN_SPEED)
+			// the selected player is not positioned, they will pick up the ball
+			if (p != selected && p.getSpeedSquared() > MIN_SPEED * MIN_SPEED)
 				areStatic = false;
 		}
 		if (areStatic)
 		{	
-			gameState = GameState.ThrowIn_BallPositioning.copyStateFrom(gameState);
+			gameState = GameState.ThrowIn_BallPositioning;
 			return;
 		}
-		movePlayersTowardsTheBall(gameState.getPositionWhereTheBallLeftTheField(),
-				gameState.getBallZoneWhereTheBallLeftTheField());
+		movePlayersTowardsTheBall(bltfPos.x, bltfPos.y, bltfPos.z, bltfZone.getIndex());
 	}
 	
 	private void beforeStep_Running() {
 		// TODO: Improve this check once the throw-ins have properly been implemented
 		if (selected.getState() != Player.PlayerState.THROW)
 			checkIfBallIsOutOfPlay();
-		if (actions.contains(Action.CHANGE))
-			updateSelected();
+		if (Action.has(actions, Action.CHANGE))
+			selected = updateSelected(selectableA, selected);
+		if (selectedB != null && Action.has(actionsB, Action.CHANGE))
+			selectedB = updateSelected(selectableB, selectedB);
 
-		Position bp = ball.getPosition();
-		BallZone bz = ball.getZone(pitch);
-		movePlayersTowardsTheBall(bp, bz);
+		int zone = pitch.getBallZone(ball.getX(), ball.getY());
+		movePlayersTowardsTheBall(ball.getX(), ball.getY(), ball.getZ(), zone);
 		
 		// only send actions to the selected player if the game is running
 		selected.setActions(actions);
+		if (selectedB != null)
+			selectedB.setActions(actionsB);
 	}
 	
-	private void movePlayersTowardsTheBall(Position bp, BallZone bz) {
-		for (Player p : getPlayers()) {
-			transition(p);
-			if (p == selected)
+	private void movePlayersTowardsTheBall(double x, double y, double z, int zone) {
+		updateTargets(zone);
+		double near2 = Math.min(10 * 10, selected.distanceSquared(x, y, z));
+		movePlayersTowardsTheBall(as, 0, x, y, z, near2);
+		movePlayersTowardsTheBall(bs, as.size(), x, y, z, near2);
+	}
+
+	private void movePlayersTowardsTheBall(List<Player> team, int offset, double x, double y, double z, double near2) {
+		for (int i = 0; i < team.size(); i++) {
+			Player p = team.get(i);
+			if (p == selected || p == selectedB)
 				continue;
-			Position target = bp;
 			if (p instanceof Goalkeeper) {
-				goalkeeperController.autoPilot((Goalkeeper) p, ball);
+				goalkeeperController.autoPilot((Goalkeeper) p, ball, trajectory);
 				continue;
 			}
-			double near = Math.min(10, bp.distance(selected.getPosition()));
-			if (bp.distance(p.getPosition()) > near) {
-				Team team = p.getTeam();
-				Tactics tactics = team.getCurrentTactics();
-				PlayerZone pz;
-				if (team == a) {
-					pz = tactics.getZone(bz, p.getShirt(), Direction.NORTH);
-				} else {
-					pz = tactics.getZone(bz, p.getShirt(), Direction.SOUTH);
-				}
-				target = pz.getCentre(pitch);
-			}
-			p.autoPilot(target);
+			if (p.distanceSquared(x, y, z) > near2)
+				p.autoPilot(targetX[offset + i], targetY[offset + i]);
+			else
+				chase(p);
 		}
 	}
-	
-	
+
+	// to where the player can first meet the ball, or the ball if they can't
+	private void chase(Player p) {
+		double t = trajectory.getInterceptTime(p.getX(), p.getY(), Player.SPEED, Player.HEIGHT);
+		if (Double.isNaN(t))
+			p.autoPilot(ball.getX(), ball.getY());
+		else
+			p.autoPilot(trajectory.getXAt(t), trajectory.getYAt(t));
+	}
+
+	// the tactical positions only change with the ball zone or the tactics
+	private void updateTargets(int zone) {
+		Tactics ta = a.getCurrentTactics();
+		Tactics tb = b.getCurrentTactics();
+		if (zone == targetZone && tacticsA.isCurrent(ta) && tacticsB.isCurrent(tb))
+			return;
+		if (!tacticsA.isCurrent(ta))
+			tacticsA = new TacticsTable(ta, pitch, Direction.NORTH);
+		if (!tacticsB.isCurrent(tb))
+			tacticsB = new TacticsTable(tb, pitch, Direction.SOUTH);
+		updateTargets(as, 0, tacticsA, zone);
+		updateTargets(bs, as.size(), tacticsB, zone);
+		targetZone = zone;
+	}
+
+	private void updateTargets(List<Player> team, int offset, TacticsTable table, int zone) {
+		for (int i = 0; i < team.size(); i++) {
+			Player p = team.get(i);
+			if (p instanceof Goalkeeper)
+				continue;
+			targetX[offset + i] = table.getX(zone, p.getShirt());
+			targetY[offset + i] = table.getY(zone, p.getShirt());
+		}
+	}
+
 	private void checkIfBallIsOutOfPlay() {
-		Position bp = ball.getPosition();
+		double bx = ball.getX();
 		//check if there is a throw-in
-		if(bp.x < pitch.getPitchLowerLeft().x || bp.x > pitch.getPitchUpperRight().x) {
+		if (pitch.isOverTouchline(bx)) {
 			
 			// TODO: Improve the calculation of this point
-			double y = bp.y;
-			double z = pitch.getPitchLowerLeft().z;
-			double x = bp.x < pitch.getPitchLowerLeft().x ? pitch.getPitchLowerLeft().x : pitch.getPitchUpperRight().x;
-			
-			Position pos = new Position(x, y, z);
-			BallZone bz = new BallZone(pos, getPitch());
+			double y = ball.getY();
+			double x = pitch.getNearestTouchline(bx);
 			
+			bltfPos = new Position(x, y, 0);
+			bltfZone = new BallZone(bltfPos, getPitch());
 			gameState = GameState.ThrowIn_PlayerPositioning;
-			gameState.setWhereTheBallLeftTheField(pos, bz);
 		}
 	}
 	
 	@Override
 	protected void afterStep() {
-		double ballSpeed = ball.getVelocity().speed();
+		for (Player p : as) {
+			p.update(time, random);
+		}
+		for (Player p : bs) {
+			p.update(time, random);
+		}
+
+		double ballSpeed = Math.sqrt(ball.getSpeedSquared());
 //		if (Double.isNaN(ballSpeed)) {
 //			log.warning("ball had NaN speed");
 //			ball.setVelocity(new DVector3());
 //		}
-		if (ballSpeed < MIN_SPEED)// stops small movements
-			ball.setVelocity(new DVector3());
+		if (ballSpeed < MIN_SPEED && ballSpeed > 0)// stops small movements, without waking a resting ball
+			ball.setVelocity(0, 0, 0);
 //		if (ballSpeed > MAX_SPEED) { // stops really weird rounding errors
 //			log.warning("ball was going " + ballSpeed);
 //			DVector3 ballVelocity = ball.getVelocity().toDVector();
@@ -347,63 +751,91 @@ public class GamePhysics extends Physics {
 
 		switch (selected.getState()) {
 			case KICK:
-				selected.kick(ball);
+				if (selected.kick(ball)) {
+					aftertouchB = false;
+					dispatcher.kick(selected);
+				}
 				break;
 			case THROWING:
 				selected.throwIn(ball);
 		}
+		if (selectedB != null && selectedB.getState() == Player.PlayerState.KICK && selectedB.kick(ball)) {
+			aftertouchB = true;
+			dispatcher.kick(selectedB);
+		}
+
+		if (levelOfDetail)
+			rest();
+
+		index.invalidate();
+		trajectory.invalidate();
+		publishSnapshot();
+	}
+
+	// players who are away from the ball rest sooner, the ball and players near it are only
+	// taken out of the simulation when everything around them is still
+	private void rest() {
+		double x = ball.getX(), y = ball.getY(), z = ball.getZ();
+		for (Player p : as) {
+			p.rest(getRestSteps(p.distanceSquared(x, y, z)));
+		}
+		for (Player p : bs) {
+			p.rest(getRestSteps(p.distanceSquared(x, y, z)));
+		}
+		ball.rest(REST_STEPS);
 	}
 
-	private void updateSelected() {
-		assert selected != null;
-		Player closest = selected;
-		double distance = Double.MAX_VALUE;
-		for (Player model : as) {
-			switch (model.getState()) {
+	private int getRestSteps(double distanceSquared) {
+		if (distanceSquared < NEAR * NEAR)
+			return 0;
+		if (distanceSquared > FAR * FAR)
+			return FAR_REST_STEPS;
+		return REST_STEPS;
+	}
+
+	private Player updateSelected(PlayerIndex.Filter team, Player current) {
+		Player closest = index.nearest(ball.getX(), ball.getY(), ball.getZ(), team);
+		return closest == null ? current : closest;
+	}
+
+	private static class Attacking implements PlayerIndex.Filter {
+
+		private final Direction opponent;
+
+		Attacking(Direction opponent) {
+			this.opponent = opponent;
+		}
+
+		@Override
+		public boolean accept(Player player) {
+			return player.getOpponent() == opponent;
+		}
+	}
+
+	private static class Selectable implements PlayerIndex.Filter {
+
+		// identifies the team, even if both teams are the same Team
+		private final Direction opponent;
+
+		Selectable(Direction opponent) {
+			this.opponent = opponent;
+		}
+
+		@Override
+		public boolean accept(Player player) {
+			if (player.getOpponent() != opponent)
+				return false;
+			switch (player.getState()) {
 				case GROUND:
 				case INJURED:
 				case HEAD_START:
 				case HEAD_MID:
 				case HEAD_END:
 				case TACKLE:
-					continue;
+					return false;
+				default:
+					return true;
 			}
-			double ds2 = model.getPosition().distance(ball.getPosition());
-			if (ds2 < distance) {
-				distance = ds2;
-				closest = model;
-			}
-		}
-		selected = closest;
-	}
-
-	@SuppressWarnings("fallthrough")
-	private void transition(Player p) {
-		// TODO: should be in the Player class
-		switch (p.getState()) {
-			case TACKLE:
-				if (p.getVelocity().speed() > MIN_SPEED)
-					break;
-			case GROUND:
-				if (!grounded.containsKey(p)) {
-					grounded.put(p, time);
-				} else if ((time - grounded.get(p)) > 2) {
-					if (p.getState() == PlayerState.GROUND && new Random().nextBoolean()) {
-						p.setState(PlayerState.INJURED);
-						return;
-					}
-					p.setState(PlayerState.RUN);
-					grounded.remove(p);
-					break;
-				}
-			case INJURED:
-				if (!grounded.containsKey(p)) {
-					log.warning("WASN'T LISTED IN GROUNDED");
-					grounded.put(p, time);
-				} else if ((time - grounded.get(p)) > 5) {
-					p.setState(PlayerState.RUN);
-					grounded.remove(p);
-				}
 		}
 	}
 
@@ -416,14 +848,125 @@ public class GamePhysics extends Physics {
 		return Iterables.concat(as, bs);
 	}
 
+	/**
+	 * @return the players, for spatial queries by controllers in this package
+	 */
+	PlayerIndex getPlayerIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the path of the ball, shared by the controllers in this package
+	 */
+	BallTrajectory getBallTrajectory() {
+		return trajectory;
+	}
+
 	public Player getSelected() {
 		return selected;
 	}
 
+	/**
+	 * @return the player controlled by the second user, or {@code null} for a single user
+	 */
+	@Nullable
+	public Player getSelectedB() {
+		return selectedB;
+	}
+
 	public double getTimestamp() {
 		return time;
 	}
 
+	/**
+	 * Restore the fields that are not part of the bodies, see {@link RewindBuffer}.
+	 */
+	void rewind(int tick, double time, Player selected, @Nullable Player selectedB, boolean aftertouchB,
+			int ballInside, GameState gameState, @Nullable Position bltfPos, @Nullable BallZone bltfZone) {
+		this.tick = tick;
+		this.time = time;
+		this.selected = selected;
+		this.selectedB = selectedB;
+		this.aftertouchB = aftertouchB;
+		this.ballInside = ballInside;
+		this.gameState = gameState;
+		this.bltfPos = bltfPos;
+		this.bltfZone = bltfZone;
+		savePositions();
+		index.invalidate();
+		trajectory.invalidate();
+		publishSnapshot();
+	}
+
+	boolean isAftertouchB() {
+		return aftertouchB;
+	}
+
+	int getBallInside() {
+		return ballInside;
+	}
+
+	GameState getGameState() {
+		return gameState;
+	}
+
+	@Nullable
+	Position getThrowIn() {
+		return bltfPos;
+	}
+
+	@Nullable
+	BallZone getThrowInZone() {
+		return bltfZone;
+	}
+
+	void setMuted(boolean muted) {
+		this.muted = muted;
+	}
+
+	public boolean isLevelOfDetail() {
+		return levelOfDetail;
+	}
+
+	public double getKinematicRadius() {
+		return kinematicRadius;
+	}
+
+	/**
+	 * Players who are further than this from the ball and from every opponent, and are
+	 * running under control, are moved kinematically outside of the ODE solver.
+	 *
+	 * @param kinematicRadius {@link Double#POSITIVE_INFINITY} to always use the solver
+	 */
+	public void setKinematicRadius(double kinematicRadius) {
+		Preconditions.checkArgument(kinematicRadius >= 0, kinematicRadius);
+		this.kinematicRadius = kinematicRadius;
+	}
+
+	/**
+	 * @param levelOfDetail {@code false} to simulate every body on every time step
+	 */
+	public void setLevelOfDetail(boolean levelOfDetail) {
+		this.levelOfDetail = levelOfDetail;
+		if (levelOfDetail)
+			return;
+		for (Player p : getPlayers()) {
+			p.wake();
+		}
+		ball.wake();
+	}
+
+	/**
+	 * @return the number of time steps taken
+	 */
+	public int getTick() {
+		return tick;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
 	public Team getTeamA() {
 		return a;
 	}
@@ -0,0 +1,231 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Lists;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import com.github.fommil.ff.Direction;
+import com.github.fommil.ff.Team;
+import com.github.fommil.ff.physics.Goalkeeper.GoalkeeperState;
+import com.github.fommil.ff.physics.Player.PlayerState;
+
+/**
+ * The state of a {@link GamePhysics} after a time step, for views on other threads.
+ * Instances are pre-allocated and reused by the physics, but never change while they are
+ * held by a reader, see {@link GamePhysics#getSnapshot()}.
+ * <p>
+ * Positions are available as of the previous and current time step, for interpolation.
+ *
+ * @author Samuel Halliday
+ */
+public final class GameSnapshot {
+
+	/**
+	 * A {@link Ball} in a {@link GameSnapshot}.
+	 */
+	public static final class BallSnapshot {
+
+		private double x, y, z, x0, y0, z0, speedSquared;
+
+		private BallSnapshot() {
+		}
+
+		private void set(Ball ball) {
+			x = ball.getX();
+			y = ball.getY();
+			z = ball.getZ();
+			x0 = ball.getX(0);
+			y0 = ball.getY(0);
+			z0 = ball.getZ(0);
+			speedSquared = ball.getSpeedSquared();
+		}
+
+		// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+		/**
+		 * @param alpha {@code [0, 1]} from the previous to the current time step
+		 * @return
+		 * @see GameLoop.Renderer
+		 */
+		public double getX(double alpha) {
+			return x0 + alpha * (x - x0);
+		}
+
+		public double getY(double alpha) {
+			return y0 + alpha * (y - y0);
+		}
+
+		public double getZ(double alpha) {
+			return z0 + alpha * (z - z0);
+		}
+
+		public double getSpeedSquared() {
+			return speedSquared;
+		}
+		// </editor-fold>
+	}
+
+	/**
+	 * A {@link Player} in a {@link GameSnapshot}.
+	 */
+	public static final class PlayerSnapshot {
+
+		private final int shirt;
+
+		private final Team team;
+
+		private final boolean goalkeeper;
+
+		private Direction opponent;
+
+		private double x, y, z, x0, y0, z0, speedSquared, direction;
+
+		private PlayerState state;
+
+		private GoalkeeperState gkState;
+
+		private boolean selected;
+
+		private PlayerSnapshot(Player player) {
+			shirt = player.getShirt();
+			team = player.getTeam();
+			goalkeeper = player instanceof Goalkeeper;
+		}
+
+		private void set(Player player, boolean selected) {
+			opponent = player.getOpponent();
+			x = player.getX();
+			y = player.getY();
+			z = player.getZ();
+			x0 = player.getX(0);
+			y0 = player.getY(0);
+			z0 = player.getZ(0);
+			speedSquared = player.getSpeedSquared();
+			direction = player.getDirection();
+			state = player.getState();
+			gkState = goalkeeper ? ((Goalkeeper) player).getGkState() : null;
+			this.selected = selected;
+		}
+
+		// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+		/**
+		 * @param alpha {@code [0, 1]} from the previous to the current time step
+		 * @return
+		 * @see GameLoop.Renderer
+		 */
+		public double getX(double alpha) {
+			return x0 + alpha * (x - x0);
+		}
+
+		public double getY(double alpha) {
+			return y0 + alpha * (y - y0);
+		}
+
+		public double getZ(double alpha) {
+			return z0 + alpha * (z - z0);
+		}
+
+		public double getSpeedSquared() {
+			return speedSquared;
+		}
+
+		/**
+		 * @return the angle relative to NORTH {@code (- PI, + PI]}.
+		 */
+		public double getDirection() {
+			return direction;
+		}
+
+		public PlayerState getState() {
+			return state;
+		}
+
+		/**
+		 * @return {@code null} unless a diving goalkeeper
+		 */
+		@Nullable
+		public GoalkeeperState getGkState() {
+			return gkState;
+		}
+
+		public boolean isGoalkeeper() {
+			return goalkeeper;
+		}
+
+		public boolean isSelected() {
+			return selected;
+		}
+
+		public int getShirt() {
+			return shirt;
+		}
+
+		public Team getTeam() {
+			return team;
+		}
+
+		public Direction getOpponent() {
+			return opponent;
+		}
+		// </editor-fold>
+	}
+
+	private final BallSnapshot ball = new BallSnapshot();
+
+	private final List<PlayerSnapshot> players;
+
+	private double timestamp;
+
+	private PlayerSnapshot selected;
+
+	GameSnapshot(Iterable<Player> players) {
+		List<PlayerSnapshot> snapshots = Lists.newArrayList();
+		for (Player player : players) {
+			snapshots.add(new PlayerSnapshot(player));
+		}
+		this.players = Collections.unmodifiableList(snapshots);
+	}
+
+	void set(GamePhysics game) {
+		timestamp = game.getTimestamp();
+		ball.set(game.getBall());
+		int i = 0;
+		for (Player player : game.getPlayers()) {
+			PlayerSnapshot snapshot = players.get(i++);
+			snapshot.set(player, player == game.getSelected() || player == game.getSelectedB());
+			if (player == game.getSelected())
+				selected = snapshot;
+		}
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public BallSnapshot getBall() {
+		return ball;
+	}
+
+	public List<PlayerSnapshot> getPlayers() {
+		return players;
+	}
+
+	public PlayerSnapshot getSelected() {
+		return selected;
+	}
+
+	public double getTimestamp() {
+		return timestamp;
+	}
+	// </editor-fold>
+}
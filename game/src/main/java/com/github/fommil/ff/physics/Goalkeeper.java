@@ -15,13 +15,10 @@
 package com.github.fommil.ff.physics;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
-import java.util.Collection;
-import java.util.List;
+import java.util.Random;
 import javax.annotation.Nullable;
-import org.ode4j.math.DMatrix3;
+import org.ode4j.math.DQuaternion;
 import org.ode4j.math.DVector3;
-import org.ode4j.math.DVector3C;
 import org.ode4j.ode.DSpace;
 import org.ode4j.ode.DWorld;
 import org.ode4j.ode.internal.Rotation;
@@ -43,6 +40,9 @@ public class Goalkeeper extends Player {
 
 	}
 
+	// cached by update, once per time step
+	private volatile GoalkeeperState gkState;
+
 	/**
 	 * @param i
 	 * @param team
@@ -50,58 +50,89 @@ public class Goalkeeper extends Player {
 	 * @param world
 	 * @param space
 	 */
-	public Goalkeeper(int i, Team team, PlayerStats stats, DWorld world, DSpace space) {
+	Goalkeeper(int i, Team team, PlayerStats stats, DWorld world, DSpace space, Scratch scratch) {
 		// TODO: consider rolling Goalkeeper functionality into Player
-		super(i, team, stats, world, space);
+		super(i, team, stats, world, space, scratch);
+	}
+
+	@Override
+	long getCategoryBits(boolean blocking) {
+		return CollisionBits.GOALKEEPER;
+	}
+
+	@Override
+	long getCollideBits(boolean blocking) {
+		return CollisionBits.GOALKEEPER_COLLIDE;
+	}
+
+	@Override
+	void update(double time, Random random) {
+		super.update(time, random);
+		gkState = calculateGkState();
 	}
 
 	@Override
-	void setActions(Collection<Action> actions) {
+	void setActions(int actions) {
 		if (getGkState() != null)
 			return;
 
-		Collection<Action> sanitised = Lists.newArrayList(actions);
-		sanitised.remove(Action.TACKLE);
-		sanitised.remove(Action.HEAD);
-		if (actions.contains(Action.DIVE))
-			sanitised.remove(Action.KICK);
+		int sanitised = actions & ~(Action.TACKLE.mask() | Action.HEAD.mask());
+		if (Action.has(actions, Action.DIVE))
+			sanitised &= ~Action.KICK.mask();
 
-		if (!sanitised.contains(Action.DIVE)) {
+		if (!Action.has(sanitised, Action.DIVE)) {
 			super.setActions(sanitised);
 			return;
 		}
-		sanitised.remove(Action.UP);
-		sanitised.remove(Action.DOWN);
-		DVector3 move = Action.asVector(sanitised);
-
-		DMatrix3 rotation = new DMatrix3();
-		DMatrix3 tilt = new DMatrix3();
-
-		double direction = 0;
-		if (getOpponent() == Direction.SOUTH) {
-			direction = Math.PI;
+		sanitised &= ~(Action.UP.mask() | Action.DOWN.mask());
+		// so that the dive is simulated, see canBeKinematic
+		this.actions = sanitised;
+		int mark = scratch.mark();
+		try {
+			DVector3 move = scratch.vector(Action.getX(sanitised), Action.getY(sanitised), 0);
+
+			DQuaternion rotation = scratch.quaternion();
+			DQuaternion tilt = scratch.quaternion();
+			DQuaternion product = scratch.quaternion();
+
+			double direction = 0;
+			if (getOpponent() == Direction.SOUTH) {
+				direction = Math.PI;
+			}
+			Rotation.dQFromAxisAndAngle(rotation, 0, 0, -1, direction);
+			double tiltAngle = 0;
+			if (Action.has(sanitised, Action.RIGHT))
+				tiltAngle = Math.PI / 4;
+			else if (Action.has(sanitised, Action.LEFT))
+				tiltAngle = -Math.PI / 4;
+			Rotation.dQFromAxisAndAngle(tilt, 0, 1, 0, tiltAngle);
+			Rotation.dQMultiply0(product, rotation, tilt);
+
+			move.scale(10); // TODO: goalkeeper stats
+			move.set2(5);
+
+			wake();
+			body.setLinearVel(move);
+			body.setQuaternion(product);
+		} finally {
+			scratch.release(mark);
 		}
-		Rotation.dRFromAxisAndAngle(rotation, 0, 0, -1, direction);
-		double tiltAngle = 0;
-		if (sanitised.contains(Action.RIGHT))
-			tiltAngle = Math.PI / 4;
-		else if (sanitised.contains(Action.LEFT))
-			tiltAngle = -Math.PI / 4;
-		Rotation.dRFromAxisAndAngle(tilt, 0, 1, 0, tiltAngle);
-		rotation.eqMul(rotation.clone(), tilt);
-
-		move.scale(10); // TODO: goalkeeper stats
-		move.set2(5);
-
-		body.setLinearVel(move);
-		body.setRotation(rotation);
 	}
 
+	/**
+	 * @return the diving state as of the last time step, or {@code null} if standing
+	 */
 	public GoalkeeperState getGkState() {
-		DVector3C position = body.getPosition();
-		DVector3C velocity = body.getLinearVel();
-		double z = position.get2() - HEIGHT / 2;
-		double vz = velocity.get2();
+		return gkState;
+	}
+
+	void rewind(GoalkeeperState gkState) {
+		this.gkState = gkState;
+	}
+
+	private GoalkeeperState calculateGkState() {
+		double z = getZ() - HEIGHT / 2;
+		double vz = body.getLinearVel().get2();
 		double tilt = getTilt();
 		if (tilt < Math.PI / 8 && z < 0.1 && Math.abs(vz) < 0.1)
 			return null;
@@ -123,16 +154,15 @@ public class Goalkeeper extends Player {
 	public void dive(@Nullable Direction direction) {
 		Preconditions.checkArgument(direction == null || direction == Direction.EAST || direction == Direction.WEST, direction);
 
-		List<Action> auto = Lists.newArrayList();
+		int auto = Action.DIVE.mask();
 		if (direction != null)
 			switch (direction) {
 				case EAST:
-					auto.add(Action.RIGHT);
+					auto |= Action.RIGHT.mask();
 					break;
 				case WEST:
-					auto.add(Action.LEFT);
+					auto |= Action.LEFT.mask();
 			}
-		auto.add(Action.DIVE);
 		setActions(auto);
 	}
 
@@ -15,7 +15,6 @@
 package com.github.fommil.ff.physics;
 
 import com.google.common.base.Preconditions;
-import org.ode4j.math.DVector3;
 import com.github.fommil.ff.Direction;
 import com.github.fommil.ff.Pitch;
 
@@ -45,51 +44,48 @@ class GoalkeeperController {
 		bottomDefault = new Position(bottomGoal.x, bottomGoal.y + 5, bottomGoal.z);
 	}
 
-	public void autoPilot(Goalkeeper p, Ball ball) {
+	public void autoPilot(Goalkeeper p, Ball ball, BallTrajectory trajectory) {
 		Preconditions.checkNotNull(p);
 		Preconditions.checkNotNull(ball);
+		Preconditions.checkNotNull(trajectory);
 		Position target;
 
-		Position position = p.getPosition();
-		Position ballPosition = ball.getPosition();
-		double ballSpeed = ball.getVelocity().speed();
-		double distance = ballPosition.distance(position);
+		double bx = ball.getX();
+		double by = ball.getY();
+		double ballSpeed = Math.sqrt(ball.getSpeedSquared());
+		double distance = Math.sqrt(p.distanceSquared(ball));
 		if (p.getOpponent() == Direction.SOUTH) {
 			target = topDefault;
 		} else {
 			target = bottomDefault;
 		}
-		if (distance > 15 || Math.abs(target.y - ballPosition.y) > 10) {
+		if (distance > 15 || Math.abs(target.y - by) > 10) {
 			// step 1: stand in a default position
 			p.autoPilot(target);
 			return;
 		} else if (distance > 5) {
 			// step 2: stand between the ball and the goal
-			DVector3 b = ballPosition.toDVector();
-			double xOffset = (b.get0() - target.x) / 2.0;
-			double yOffset = Math.abs(b.get1() - topGoal.y) / 3.0;
+			double xOffset = (bx - target.x) / 2.0;
+			double yOffset = Math.abs(by - topGoal.y) / 3.0;
 			if (p.getOpponent() == Direction.SOUTH) {
-				target = new Position(topGoal.x + xOffset, topGoal.y - yOffset, 0);
+				p.autoPilot(topGoal.x + xOffset, topGoal.y - yOffset);
 			} else {
-				target = new Position(bottomGoal.x + xOffset, bottomGoal.y + yOffset, 0);
+				p.autoPilot(bottomGoal.x + xOffset, bottomGoal.y + yOffset);
 			}
-			p.autoPilot(target);
 		} else if (distance > 1 && ballSpeed < 10) {
-			// step 3: go for the ball
-			p.autoPilot(ballPosition);
+			// step 3: go for the ball, where it can be reached
+			double t = trajectory.getInterceptTime(p.getX(), p.getY(), Player.SPEED, Player.HEIGHT);
+			if (Double.isNaN(t))
+				p.autoPilot(bx, by);
+			else
+				p.autoPilot(trajectory.getXAt(t), trajectory.getYAt(t));
 		} else if (ballSpeed > 8) {
-			// step 4: dive!
-			DVector3 s = position.toDVector();
-
-			Velocity ballVelocity = ball.getVelocity();
-			DVector3 goingTo = ballPosition.toDVector().add(ballVelocity.toDVector());
-
-			// TODO: smarter dive logic: go to where the ball will be at goalie's y position
-
-			DVector3 diff = goingTo.sub(s);
-			if (diff.get0() > 0.5)
+			// step 4: dive! to where the ball will be at goalie's y position
+			double t = trajectory.getTimeToY(p.getY());
+			double diff = (Double.isNaN(t) ? bx : trajectory.getXAt(t)) - p.getX();
+			if (diff > 0.5)
 				p.dive(Direction.EAST);
-			else if (diff.get0() < -0.5)
+			else if (diff < -0.5)
 				p.dive(Direction.WEST);
 			else
 				p.dive(null);
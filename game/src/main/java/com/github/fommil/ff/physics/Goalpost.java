@@ -15,14 +15,12 @@
 package com.github.fommil.ff.physics;
 
 import com.google.common.base.Preconditions;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 import org.ode4j.math.DVector3;
 import org.ode4j.ode.DBody;
 import org.ode4j.ode.DBox;
 import org.ode4j.ode.DFixedJoint;
 import org.ode4j.ode.DGeom;
-import org.ode4j.ode.DGeom.DNearCallback;
 import org.ode4j.ode.DSpace;
 import org.ode4j.ode.DWorld;
 import org.ode4j.ode.OdeHelper;
@@ -40,10 +38,18 @@ public class Goalpost {
 
 	private final DBody body;
 
-	private final DBox goal;
-
 	private final Direction facing;
 
+	// the goal mouth: the y of the goal line, the x of its centre, the half width between
+	// the posts and the height of the underside of the crossbar
+	private final double line, centre, halfWidth, crossbar;
+
+	// +1 if the goal is further up the pitch than its line, otherwise -1
+	private final double behind;
+
+	// the footprint of the frame on the ground
+	private final double minX, maxX, minY, maxY;
+
 	/**
 	 * @param bbox
 	 * @param posts the width of the posts, inset from the bounding box
@@ -94,26 +100,57 @@ public class Goalpost {
 		roof.setBody(body);
 		roof.setOffsetPosition(0, 0, height - thickness / 2);
 
-		// goal is not registered with the world
-		goal = OdeHelper.createBox(width - thickness, depth - thickness / 2, height - thickness / 2);
-		DVector3 pos = new DVector3(body.getPosition());
-		pos.add(1, backUp * thickness / 4);
-		pos.add(2, height / 2 + thickness / 4);
-		goal.setPosition(pos);
+		for (DGeom geom : new DGeom[]{left, right, back, roof}) {
+			geom.setCategoryBits(CollisionBits.GOAL);
+			geom.setCollideBits(CollisionBits.GOAL_COLLIDE);
+		}
+
+		behind = backUp;
+		line = centre.get1() - behind * depth / 2;
+		this.centre = centre.get0();
+		halfWidth = width / 2 - thickness;
+		crossbar = height - thickness;
+		minX = centre.get0() - width / 2;
+		maxX = centre.get0() + width / 2;
+		minY = centre.get1() - depth / 2;
+		maxY = centre.get1() + depth / 2;
 	}
 
-	boolean isInside(Ball ball) {
-		Preconditions.checkNotNull(ball);
+	/**
+	 * @param x
+	 * @param y
+	 * @return the square of the horizontal distance to the frame, zero if inside it
+	 */
+	double distanceSquared(double x, double y) {
+		double dx = Math.max(0, Math.max(minX - x, x - maxX));
+		double dy = Math.max(0, Math.max(minY - y, y - maxY));
+		return dx * dx + dy * dy;
+	}
 
-		final AtomicBoolean inside = new AtomicBoolean();
-		goal.collide2(ball.getGeom(), null, new DNearCallback() {
+	/**
+	 * @param ball
+	 * @return true if the whole of the ball is over the (extended) goal line
+	 */
+	boolean isOverLine(Ball ball) {
+		return behind * (ball.getY() - line) >= Ball.RADIUS;
+	}
 
-			@Override
-			public void call(Object data, DGeom o1, DGeom o2) {
-				inside.set(true);
-			}
-		});
-		return inside.get();
+	/**
+	 * Should be called when the ball has just gone {@link #isOverLine(Ball)}. The ball is
+	 * traced back along its velocity to where it crossed the line, so that a fast shot
+	 * that is well inside the goal (or has gone wide) by the next time step is not missed.
+	 *
+	 * @param ball
+	 * @return true if the ball crossed the line between the posts and under the crossbar
+	 */
+	boolean isCrossedInMouth(Ball ball) {
+		double over = ball.getY() - line - behind * Ball.RADIUS;
+		double vy = ball.getVelocityY();
+		// time since the crossing, zero if the ball was placed over the line
+		double since = over * vy > 0 ? over / vy : 0;
+		double x = ball.getX() - since * ball.getVelocityX();
+		double z = ball.getZ() + Ball.RADIUS - since * ball.getVelocityZ();
+		return Math.abs(x - centre) <= halfWidth && z <= crossbar;
 	}
 
 	public Direction getFacing() {
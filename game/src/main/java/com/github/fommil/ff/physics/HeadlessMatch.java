@@ -0,0 +1,226 @@
+/*
+ * Copyright Samuel Halliday 2013
+ *
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.util.Map;
+import java.util.logging.Logger;
+import com.github.fommil.ff.Direction;
+import com.github.fommil.ff.Pitch;
+import com.github.fommil.ff.Tactics;
+import com.github.fommil.ff.Team;
+import com.github.fommil.ff.swos.TacticsParser;
+
+/**
+ * Plays a match without a view, stepping the physics as fast as the CPU allows.
+ * The user is played by a {@link ComputerController}.
+ * <p>
+ * No AWT classes are used, so this runs with {@code -Djava.awt.headless=true}.
+ *
+ * @author Samuel Halliday
+ */
+public class HeadlessMatch {
+
+	private static final Logger log = Logger.getLogger(HeadlessMatch.class.getName());
+
+	/**
+	 * The outcome of a {@link HeadlessMatch}.
+	 */
+	public static class Result {
+
+		private final int goalsA, goalsB;
+
+		private final long ticks;
+
+		private final double seconds;
+
+		private final long nanos;
+
+		private final long fingerprint;
+
+		Result(int goalsA, int goalsB, long ticks, double seconds, long nanos, long fingerprint) {
+			this.goalsA = goalsA;
+			this.goalsB = goalsB;
+			this.ticks = ticks;
+			this.seconds = seconds;
+			this.nanos = nanos;
+			this.fingerprint = fingerprint;
+		}
+
+		/**
+		 * @return simulated minutes per wall clock second
+		 */
+		public double getSpeedup() {
+			return (seconds / 60) / (nanos / 1000000000.0);
+		}
+
+		@Override
+		public String toString() {
+			return goalsA + " - " + goalsB + " after " + ticks + " ticks (" + seconds + "s) in "
+					+ (nanos / 1000000) + "ms";
+		}
+
+		// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+		public int getGoalsA() {
+			return goalsA;
+		}
+
+		public int getGoalsB() {
+			return goalsB;
+		}
+
+		public long getTicks() {
+			return ticks;
+		}
+
+		public double getSeconds() {
+			return seconds;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return a hash of the final positions, bit for bit, the same for the same match
+		 */
+		public long getFingerprint() {
+			return fingerprint;
+		}
+		// </editor-fold>
+	}
+
+	/**
+	 * @param args the SWOS directory and (optionally) the number of minutes to play
+	 * @throws Exception
+	 */
+	public static final void main(String[] args) throws Exception {
+		Preconditions.checkArgument(args.length > 0, "usage: HeadlessMatch <SWOS directory> [minutes]");
+		File swos = new File(args[0]);
+		double minutes = args.length > 1 ? Double.parseDouble(args[1]) : 90;
+
+		Map<String, Tactics> swosTactics = TacticsParser.getSwosTactics(swos);
+		Team a = new Team();
+		a.setCurrentTactics(swosTactics.get("442"));
+		Team b = new Team();
+		b.setCurrentTactics(swosTactics.get("433"));
+
+		Result result = new HeadlessMatch(a, b, new Pitch()).play(60 * minutes);
+		log.info(result + ", " + result.getSpeedup() + " minutes per second");
+	}
+
+	private final GamePhysics game;
+
+	private final ComputerController controller;
+
+	private final double dt;
+
+	private int goalsA, goalsB;
+
+	private boolean restart;
+
+	/**
+	 * Uses the same time step as the interactive game.
+	 *
+	 * @param a
+	 * @param b
+	 * @param pitch
+	 */
+	public HeadlessMatch(Team a, Team b, Pitch pitch) {
+		this(a, b, pitch, 0.01);
+	}
+
+	/**
+	 * @param a
+	 * @param b
+	 * @param pitch
+	 * @param dt in seconds
+	 */
+	public HeadlessMatch(Team a, Team b, Pitch pitch, double dt) {
+		Preconditions.checkArgument(dt > 0, dt);
+		this.dt = dt;
+		game = new GamePhysics(a, b, pitch);
+		controller = new ComputerController(game);
+		game.addListener(new GameListener() {
+
+			@Override
+			public void goal(Direction facing) {
+				// the goal faces the team that is defending it
+				if (facing == Direction.SOUTH)
+					goalsA++;
+				else
+					goalsB++;
+				restart = true;
+			}
+
+			@Override
+			public void kick(Player player) {
+			}
+
+			@Override
+			public void bounce(Ball ball) {
+			}
+		});
+	}
+
+	/**
+	 * Play the match to completion, after which this instance may not be used again.
+	 *
+	 * @param seconds of game time
+	 * @return
+	 */
+	public Result play(double seconds) {
+		Preconditions.checkArgument(seconds > 0, seconds);
+		long start = System.nanoTime();
+		long ticks = 0;
+		long fingerprint;
+		try {
+			while (game.getTimestamp() < seconds) {
+				controller.update();
+				game.step(dt);
+				ticks++;
+				if (restart) {
+					game.kickOff();
+					restart = false;
+				}
+			}
+			fingerprint = fingerprint();
+		} finally {
+			game.clean();
+		}
+		return new Result(goalsA, goalsB, ticks, game.getTimestamp(), System.nanoTime() - start, fingerprint);
+	}
+
+	private long fingerprint() {
+		Ball ball = game.getBall();
+		long hash = hash(hash(hash(17, ball.getX()), ball.getY()), ball.getZ());
+		for (Player player : game.getPlayers()) {
+			hash = hash(hash(hash(hash, player.getX()), player.getY()), player.getZ());
+		}
+		return hash;
+	}
+
+	private long hash(long hash, double value) {
+		return 31 * hash + Double.doubleToRawLongBits(value);
+	}
+
+	/**
+	 * @return the game being played, for inspection.
+	 */
+	public GamePhysics getGame() {
+		return game;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations, with a resolution of 1/16 (about 6%) of the value,
+ * for reporting percentiles of latency and jitter. Any number of threads may record.
+ *
+ * @author Samuel Halliday
+ */
+public class Histogram {
+
+	private static final int SUB_BITS = 4;
+
+	private static final int SUB = 1 << SUB_BITS;
+
+	// up to 2^40 of the unit
+	private static final int BUCKETS = (40 - SUB_BITS + 1) * SUB;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private static int index(long value) {
+		if (value < SUB)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int mantissa = (int) (value >>> (exponent - SUB_BITS)) & (SUB - 1);
+		return Math.min(BUCKETS - 1, (exponent - SUB_BITS + 1) * SUB + mantissa);
+	}
+
+	// the smallest value in the bucket
+	private static long value(int index) {
+		if (index < SUB)
+			return index;
+		int exponent = index / SUB + SUB_BITS - 1;
+		long mantissa = SUB + index % SUB;
+		return mantissa << (exponent - SUB_BITS);
+	}
+
+	/**
+	 * @param value negative values are recorded as zero
+	 */
+	public void record(long value) {
+		counts.incrementAndGet(index(Math.max(0, value)));
+	}
+
+	/**
+	 * @return the number of values recorded
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * @param percentile {@code [0, 100]}
+	 * @return the lower bound of the bucket at the percentile, or zero if empty
+	 */
+	public long getPercentile(double percentile) {
+		Preconditions.checkArgument(percentile >= 0 && percentile <= 100, percentile);
+		long count = getCount();
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank)
+				return value(i);
+		}
+		return value(BUCKETS - 1);
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+	}
+
+	/**
+	 * @return the 50th, 90th, 99th, 99.9th percentiles and the maximum
+	 */
+	@Override
+	public String toString() {
+		return "p50=" + getPercentile(50) + " p90=" + getPercentile(90) + " p99=" + getPercentile(99)
+				+ " p99.9=" + getPercentile(99.9) + " max=" + getPercentile(100) + " (" + getCount() + ")";
+	}
+}
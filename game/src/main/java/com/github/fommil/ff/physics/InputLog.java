@@ -0,0 +1,159 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+
+/**
+ * The user input for every time step of a {@link GamePhysics}, which together with the
+ * random seed (and the teams, pitch and time step) reproduces a match exactly.
+ * Each time step is recorded as a single {@code int}: team A's user in the low 16 bits and
+ * team B's (if any) above {@link #TEAM_B_SHIFT}. For each user, the {@link Action} ordinals
+ * are in the low bits and the {@link Aftertouch} ordinals above {@link #AFTERTOUCH_SHIFT}.
+ *
+ * @author Samuel Halliday
+ * @see GamePhysics#record(InputLog)
+ * @see GamePhysics#replay(InputLog)
+ */
+public class InputLog {
+
+	static final int AFTERTOUCH_SHIFT = 12;
+
+	static final int TEAM_B_SHIFT = 16;
+
+	private static final Action[] ACTIONS = Action.values();
+
+	private static final Aftertouch[] AFTERTOUCHES = Aftertouch.values();
+
+	static int pack(Collection<Action> actions, Collection<Aftertouch> aftertouches) {
+		return pack(Action.mask(actions), Aftertouch.mask(aftertouches));
+	}
+
+	static int pack(int actions, int aftertouches) {
+		Preconditions.checkArgument((actions & ~Action.ALL) == 0, actions);
+		Preconditions.checkArgument((aftertouches & ~Aftertouch.ALL) == 0, aftertouches);
+		return actions | (aftertouches << AFTERTOUCH_SHIFT);
+	}
+
+	static int getActionMask(int input) {
+		return input & Action.ALL;
+	}
+
+	static int getAftertouchMask(int input) {
+		return (input >>> AFTERTOUCH_SHIFT) & Aftertouch.ALL;
+	}
+
+	static EnumSet<Action> getActions(int input) {
+		EnumSet<Action> actions = EnumSet.noneOf(Action.class);
+		for (Action action : ACTIONS) {
+			if ((input & (1 << action.ordinal())) != 0)
+				actions.add(action);
+		}
+		return actions;
+	}
+
+	static EnumSet<Aftertouch> getAftertouches(int input) {
+		EnumSet<Aftertouch> aftertouches = EnumSet.noneOf(Aftertouch.class);
+		for (Aftertouch aftertouch : AFTERTOUCHES) {
+			if ((input & (1 << (AFTERTOUCH_SHIFT + aftertouch.ordinal()))) != 0)
+				aftertouches.add(aftertouch);
+		}
+		return aftertouches;
+	}
+
+	/**
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 * @see #write(OutputStream)
+	 */
+	public static InputLog read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		InputLog log = new InputLog(data.readLong());
+		int size = data.readInt();
+		log.inputs = new int[Math.max(size, 16)];
+		for (int i = 0; i < size; i++) {
+			log.inputs[i] = data.readInt();
+		}
+		log.size = size;
+		return log;
+	}
+
+	private final long seed;
+
+	private int[] inputs = new int[1024];
+
+	private int size;
+
+	/**
+	 * @param seed of the game to be recorded
+	 */
+	public InputLog(long seed) {
+		this.seed = seed;
+	}
+
+	void add(int input) {
+		if (size == inputs.length)
+			inputs = Arrays.copyOf(inputs, 2 * size);
+		inputs[size++] = input;
+	}
+
+	int get(int tick) {
+		Preconditions.checkElementIndex(tick, size);
+		return inputs[tick];
+	}
+
+	void set(int tick, int input) {
+		Preconditions.checkElementIndex(tick, size);
+		inputs[tick] = input;
+	}
+
+	/**
+	 * The stream is not closed.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeLong(seed);
+		data.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			data.writeInt(inputs[i]);
+		}
+		data.flush();
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the number of time steps recorded
+	 */
+	public int size() {
+		return size;
+	}
+	// </editor-fold>
+}
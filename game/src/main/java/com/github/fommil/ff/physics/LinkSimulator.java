@@ -0,0 +1,146 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends datagrams with an artificial latency and packet loss, so that network play can be
+ * tested on a single machine over loopback. Delayed datagrams are only sent by
+ * {@link #flush()}, which must be called regularly.
+ *
+ * @author Samuel Halliday
+ */
+public class LinkSimulator {
+
+	private static class Delayed {
+
+		private final ByteBuffer packet;
+
+		private final SocketAddress target;
+
+		private final long due;
+
+		Delayed(ByteBuffer packet, SocketAddress target, long due) {
+			this.packet = packet;
+			this.target = target;
+			this.due = due;
+		}
+	}
+
+	private final DatagramChannel channel;
+
+	private final long latency;
+
+	private final double loss;
+
+	private final Random random;
+
+	// the latency is constant, so the queue is ordered by due time
+	private final Queue<Delayed> queue = new ArrayDeque<Delayed>();
+
+	private long sent, dropped;
+
+	/**
+	 * A perfect link.
+	 *
+	 * @param channel
+	 */
+	public LinkSimulator(DatagramChannel channel) {
+		this(channel, 0, 0, 0);
+	}
+
+	/**
+	 * @param channel
+	 * @param latency in milliseconds, one way
+	 * @param loss probability {@code [0, 1)} of dropping a datagram
+	 * @param seed for the dropped datagrams
+	 */
+	public LinkSimulator(DatagramChannel channel, long latency, double loss, long seed) {
+		Preconditions.checkNotNull(channel);
+		Preconditions.checkArgument(latency >= 0, latency);
+		Preconditions.checkArgument(loss >= 0 && loss < 1, loss);
+		this.channel = channel;
+		this.latency = TimeUnit.MILLISECONDS.toNanos(latency);
+		this.loss = loss;
+		random = new Random(seed);
+	}
+
+	/**
+	 * @param packet the remaining bytes are sent, the buffer may be reused immediately
+	 * @param target
+	 * @throws IOException
+	 */
+	public void send(ByteBuffer packet, SocketAddress target) throws IOException {
+		Preconditions.checkNotNull(packet);
+		Preconditions.checkNotNull(target);
+		if (loss > 0 && random.nextDouble() < loss) {
+			dropped++;
+			packet.position(packet.limit());
+			return;
+		}
+		if (latency == 0) {
+			channel.send(packet, target);
+			sent++;
+			return;
+		}
+		ByteBuffer copy = ByteBuffer.allocate(packet.remaining());
+		copy.put(packet).flip();
+		queue.add(new Delayed(copy, target, System.nanoTime() + latency));
+		flush();
+	}
+
+	/**
+	 * Send the delayed datagrams that are due.
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		long now = System.nanoTime();
+		while (!queue.isEmpty() && queue.peek().due - now <= 0) {
+			Delayed delayed = queue.remove();
+			channel.send(delayed.packet, delayed.target);
+			sent++;
+		}
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public DatagramChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * @return the number of datagrams that have been sent
+	 */
+	public long getSent() {
+		return sent;
+	}
+
+	/**
+	 * @return the number of datagrams that have been deliberately lost
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+	// </editor-fold>
+}
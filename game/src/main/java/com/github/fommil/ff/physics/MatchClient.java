@@ -0,0 +1,256 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import com.github.fommil.ff.physics.Player.PlayerState;
+import static com.github.fommil.ff.physics.MatchServer.*;
+
+/**
+ * Plays a match hosted by a {@link MatchServer}. The channel is made non-blocking, so that
+ * many clients can share a {@link java.nio.channels.Selector}: {@link #receive()} decodes
+ * whatever has arrived and {@link #flush()} sends whatever could not be sent earlier.
+ * <p>
+ * The accessors describe the latest state. Instances are not thread safe.
+ *
+ * @author Samuel Halliday
+ */
+public class MatchClient {
+
+	private static final PlayerState[] STATES = PlayerState.values();
+
+	private final SocketChannel channel;
+
+	private final ByteBuffer in = ByteBuffer.allocate(1024);
+
+	private final ByteBuffer out = ByteBuffer.allocate(256);
+
+	// tick, selected, selectedB, then (x, y, z, pose) for the ball and every player
+	private int[] state;
+
+	private int entities = -1;
+
+	private long states;
+
+	private int input = -1;
+
+	/**
+	 * @param channel connected to the server
+	 * @throws IOException
+	 */
+	public MatchClient(SocketChannel channel) throws IOException {
+		Preconditions.checkNotNull(channel);
+		Preconditions.checkArgument(channel.isConnected(), "not connected");
+		this.channel = channel;
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+	}
+
+	/**
+	 * @param match as returned by {@link MatchServer#host}
+	 * @param team 0 for team A, 1 for team B
+	 * @throws IOException
+	 */
+	public void join(int match, int team) throws IOException {
+		Preconditions.checkArgument(team == 0 || team == 1, team);
+		out.put(JOIN);
+		out.putInt(match);
+		out.put((byte) team);
+		flush();
+	}
+
+	/**
+	 * Sends the input if it is different to the last input that was sent.
+	 *
+	 * @param actions
+	 * @param aftertouches
+	 * @throws IOException
+	 */
+	public void send(Collection<Action> actions, Collection<Aftertouch> aftertouches) throws IOException {
+		send(InputLog.pack(actions, aftertouches));
+	}
+
+	/**
+	 * Sends the input if it is different to the last input that was sent.
+	 *
+	 * @param actions a mask of {@link Action}
+	 * @param aftertouches a mask of {@link Aftertouch}
+	 * @throws IOException
+	 */
+	public void send(int actions, int aftertouches) throws IOException {
+		send(InputLog.pack(actions, aftertouches));
+	}
+
+	void send(int packed) throws IOException {
+		if (packed == input)
+			return;
+		input = packed;
+		if (out.remaining() < INPUT_SIZE)
+			throw new IOException("server is not reading");
+		out.put(INPUT);
+		out.putShort((short) packed);
+		flush();
+	}
+
+	/**
+	 * @return true if everything has been sent
+	 * @throws IOException
+	 */
+	public boolean flush() throws IOException {
+		out.flip();
+		channel.write(out);
+		boolean done = !out.hasRemaining();
+		out.compact();
+		return done;
+	}
+
+	/**
+	 * @return true if there is a new state
+	 * @throws IOException
+	 */
+	public boolean receive() throws IOException {
+		long before = states;
+		for (;;) {
+			int read = channel.read(in);
+			if (read < 0)
+				throw new EOFException("disconnected");
+			in.flip();
+			while (decode()) {
+				states++;
+			}
+			in.compact();
+			if (read == 0 || in.hasRemaining())
+				break;
+		}
+		return states != before;
+	}
+
+	private boolean decode() throws IOException {
+		if (in.remaining() < STATE_HEADER)
+			return false;
+		int start = in.position();
+		if (in.get(start) != STATE)
+			throw new IOException("unknown message " + in.get(start));
+		int count = in.get(start + STATE_HEADER - 1) & 0xFF;
+		if (in.remaining() < STATE_HEADER + count * ENTITY_SIZE)
+			return false;
+		in.get();
+		if (count != entities) {
+			entities = count;
+			state = new int[3 + 4 * count];
+		}
+		state[0] = in.getInt();
+		state[1] = in.get();
+		state[2] = in.get();
+		in.get();
+		for (int i = 3; i < state.length; i += 4) {
+			state[i] = in.getShort();
+			state[i + 1] = in.getShort();
+			state[i + 2] = in.getShort();
+			state[i + 3] = in.getShort() & 0xFFFF;
+		}
+		return true;
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="STATE ACCESSORS">
+	private int[] current() {
+		Preconditions.checkState(state != null, "no state has been received");
+		return state;
+	}
+
+	/**
+	 * @return the number of states that have been received
+	 */
+	public long getStates() {
+		return states;
+	}
+
+	public int getTick() {
+		return current()[0];
+	}
+
+	/**
+	 * @return the index of team A's selected player
+	 */
+	public int getSelected() {
+		return current()[1];
+	}
+
+	/**
+	 * @return the index of team B's selected player, or -1
+	 */
+	public int getSelectedB() {
+		return current()[2];
+	}
+
+	/**
+	 * @return the number of players
+	 */
+	public int getPlayers() {
+		return entities - 1;
+	}
+
+	public double getBallX() {
+		return position(0, 0);
+	}
+
+	public double getBallY() {
+		return position(0, 1);
+	}
+
+	public double getBallZ() {
+		return position(0, 2);
+	}
+
+	/**
+	 * @param i player index
+	 * @return
+	 */
+	public double getPlayerX(int i) {
+		return position(i + 1, 0);
+	}
+
+	public double getPlayerY(int i) {
+		return position(i + 1, 1);
+	}
+
+	public double getPlayerZ(int i) {
+		return position(i + 1, 2);
+	}
+
+	public PlayerState getPlayerState(int i) {
+		return STATES[current()[3 + (i + 1) * 4 + 3] >> 8];
+	}
+
+	/**
+	 * @param i
+	 * @return the angle relative to NORTH {@code (- PI, + PI]}.
+	 */
+	public double getPlayerDirection(int i) {
+		int direction = (byte) current()[3 + (i + 1) * 4 + 3];
+		// half a turn is PI, not - PI
+		return (direction == -128 ? 128 : direction) / DIRECTION_SCALE;
+	}
+
+	private double position(int entity, int field) {
+		return current()[3 + entity * 4 + field] / POSITION_SCALE;
+	}
+	// </editor-fold>
+}
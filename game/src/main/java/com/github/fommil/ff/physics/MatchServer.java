@@ -0,0 +1,537 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import com.github.fommil.ff.Pitch;
+import com.github.fommil.ff.Tactics;
+import com.github.fommil.ff.Team;
+import com.github.fommil.ff.swos.TacticsParser;
+
+/**
+ * A dedicated server that hosts many two user matches, with the game played only on the
+ * server. Clients (see {@link MatchClient}) connect over TCP, join a team in a match, send
+ * their input whenever it changes and are sent the state every few time steps.
+ * <p>
+ * The matches are stepped by a {@link TickScheduler} and the sockets are served by a few
+ * selector threads, there is no thread per connection or per match. A client that does not
+ * read fast enough misses states rather than holding up the match. A match that fails is
+ * ended and its users are disconnected, the other matches carry on.
+ * <p>
+ * Messages (big endian):
+ * <pre>
+ * client: JOIN match (int) team (byte: 0 for A, 1 for B)  |  INPUT input (short, packed by InputLog)
+ * server: STATE tick (int) selected (byte) selectedB (byte) entities (byte) (x y z pose)*
+ * </pre>
+ * where the entities are the ball and then every player, the positions are {@code short}
+ * centimetres and the pose is the {@code short} {@code state << 8 | direction}.
+ *
+ * @author Samuel Halliday
+ */
+public class MatchServer implements Closeable {
+
+	private static final Logger log = Logger.getLogger(MatchServer.class.getName());
+
+	static final byte JOIN = 'J';
+
+	static final byte INPUT = 'I';
+
+	static final byte STATE = 'S';
+
+	static final int JOIN_SIZE = 1 + 4 + 1;
+
+	static final int INPUT_SIZE = 1 + 2;
+
+	static final int STATE_HEADER = 1 + 4 + 1 + 1 + 1;
+
+	static final int ENTITY_SIZE = 4 * 2;
+
+	static final double POSITION_SCALE = 100;
+
+	static final double DIRECTION_SCALE = 256 / (2 * Math.PI);
+
+	// ticks that a match may fall behind before skipping them
+	private static final int MAX_LAG = 10;
+
+	/**
+	 * @param args the SWOS directory and (optionally) the port and the number of matches
+	 * @throws Exception
+	 */
+	public static final void main(String[] args) throws Exception {
+		Preconditions.checkArgument(args.length > 0, "usage: MatchServer <SWOS directory> [port] [matches]");
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 7777;
+		int matches = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		Map<String, Tactics> tactics = TacticsParser.getSwosTactics(new File(args[0]));
+		int processors = Runtime.getRuntime().availableProcessors();
+
+		MatchServer server = new MatchServer(new InetSocketAddress(port), 0.01, 5, 2, processors);
+		for (int i = 0; i < matches; i++) {
+			Team a = new Team();
+			a.setCurrentTactics(tactics.get("442"));
+			Team b = new Team();
+			b.setCurrentTactics(tactics.get("433"));
+			server.host(a, b, new Pitch(), i);
+		}
+		log.info("hosting " + matches + " matches on " + server.getAddress());
+		for (;;) {
+			Thread.sleep(10000);
+			log.info(server.getConnections() + " connections, tick lateness (us) " + server.getLateness());
+			server.getLateness().reset();
+		}
+	}
+
+	private class Match implements Runnable {
+
+		private final GamePhysics game;
+
+		private final List<Player> players;
+
+		// by team, set by the selector threads
+		private final AtomicReferenceArray<Connection> users = new AtomicReferenceArray<Connection>(2);
+
+		// immutable once published
+		private volatile byte[] latest;
+
+		// the game failed and is no longer stepped
+		private volatile boolean ended;
+
+		Match(GamePhysics game) {
+			this.game = game;
+			players = Lists.newArrayList(game.getPlayers());
+		}
+
+		@Override
+		public void run() {
+			if (ended)
+				return;
+			try {
+				game.step(dt);
+			} catch (RuntimeException e) {
+				log.log(Level.SEVERE, "ending match at tick " + game.getTick(), e);
+				ended = true;
+				markDirty();
+				return;
+			}
+			if (game.getTick() % ticksPerUpdate != 0)
+				return;
+			latest = encode();
+			markDirty();
+		}
+
+		// the users' selector threads send the latest state, or disconnect them if ended
+		private void markDirty() {
+			for (int i = 0; i < 2; i++) {
+				Connection user = users.get(i);
+				if (user != null)
+					user.io.markDirty();
+			}
+		}
+
+		private byte[] encode() {
+			ByteBuffer out = ByteBuffer.allocate(STATE_HEADER + (1 + players.size()) * ENTITY_SIZE);
+			out.put(STATE);
+			out.putInt(game.getTick());
+			out.put((byte) players.indexOf(game.getSelected()));
+			out.put((byte) players.indexOf(game.getSelectedB()));
+			out.put((byte) (1 + players.size()));
+			Ball ball = game.getBall();
+			putPosition(out, ball.getX(), ball.getY(), ball.getZ());
+			out.putShort((short) 0);
+			for (Player player : players) {
+				putPosition(out, player.getX(), player.getY(), player.getZ());
+				int direction = (int) Math.round(player.getDirection() * DIRECTION_SCALE) & 0xFF;
+				out.putShort((short) (player.getState().ordinal() << 8 | direction));
+			}
+			return out.array();
+		}
+
+		private void putPosition(ByteBuffer out, double x, double y, double z) {
+			out.putShort((short) Math.round(x * POSITION_SCALE));
+			out.putShort((short) Math.round(y * POSITION_SCALE));
+			out.putShort((short) Math.round(z * POSITION_SCALE));
+		}
+	}
+
+	private static class Connection {
+
+		private final SocketChannel channel;
+
+		private final IoThread io;
+
+		private SelectionKey key;
+
+		private final ByteBuffer in = ByteBuffer.allocate(64);
+
+		private ByteBuffer out = ByteBuffer.allocate(0);
+
+		private Match match;
+
+		private int team;
+
+		// the most recent state written to the output buffer
+		private byte[] sent;
+
+		Connection(SocketChannel channel, IoThread io) {
+			this.channel = channel;
+			this.io = io;
+		}
+	}
+
+	private class IoThread implements Runnable {
+
+		private final Selector selector;
+
+		private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<SocketChannel>();
+
+		// there are new states to send
+		private final AtomicBoolean dirty = new AtomicBoolean();
+
+		private final List<Connection> connections = Lists.newArrayList();
+
+		IoThread() throws IOException {
+			selector = Selector.open();
+		}
+
+		void markDirty() {
+			if (!dirty.getAndSet(true))
+				selector.wakeup();
+		}
+
+		void add(SocketChannel channel) {
+			accepted.add(channel);
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (running) {
+					selector.select();
+					register();
+					for (SelectionKey key : selector.selectedKeys()) {
+						if (!key.isValid())
+							continue;
+						if (key.isAcceptable()) {
+							accept();
+							continue;
+						}
+						Connection connection = (Connection) key.attachment();
+						try {
+							if (key.isReadable())
+								read(connection);
+							if (key.isValid() && key.isWritable())
+								write(connection);
+						} catch (IOException e) {
+							disconnect(connection);
+						}
+					}
+					selector.selectedKeys().clear();
+					if (dirty.getAndSet(false))
+						sendStates();
+				}
+			} catch (ClosedSelectorException e) {
+				// closed
+			} catch (IOException e) {
+				if (running)
+					log.log(Level.SEVERE, "selector failed", e);
+			}
+		}
+
+		private void register() throws IOException {
+			SocketChannel channel;
+			while ((channel = accepted.poll()) != null) {
+				Connection connection = new Connection(channel, this);
+				connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+				connections.add(connection);
+			}
+		}
+
+		private void accept() throws IOException {
+			SocketChannel channel;
+			while ((channel = server.accept()) != null) {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				ios.get(next++ % ios.size()).add(channel);
+				connected.incrementAndGet();
+			}
+		}
+
+		private void read(Connection connection) throws IOException {
+			ByteBuffer in = connection.in;
+			if (connection.channel.read(in) < 0) {
+				disconnect(connection);
+				return;
+			}
+			in.flip();
+			while (in.hasRemaining()) {
+				byte type = in.get(in.position());
+				if (type == JOIN && in.remaining() >= JOIN_SIZE) {
+					in.get();
+					join(connection, in.getInt(), in.get());
+				} else if (type == INPUT && in.remaining() >= INPUT_SIZE) {
+					in.get();
+					input(connection, in.getShort() & 0xFFFF);
+				} else if (type != JOIN && type != INPUT) {
+					throw new IOException("unknown message " + type);
+				} else
+					break;
+			}
+			in.compact();
+		}
+
+		private void join(Connection connection, int id, int team) throws IOException {
+			if (connection.match != null || id < 0 || id >= matches.size() || (team != 0 && team != 1))
+				throw new IOException("bad join");
+			Match match = matches.get(id);
+			if (match.ended)
+				throw new IOException("match has ended");
+			if (!match.users.compareAndSet(team, null, connection))
+				throw new IOException("team is taken");
+			connection.match = match;
+			connection.team = team;
+			int size = match.latest == null ? STATE_HEADER : match.latest.length;
+			connection.out = ByteBuffer.allocate(size);
+			connection.out.flip();
+		}
+
+		private void input(Connection connection, int input) throws IOException {
+			Match match = connection.match;
+			if (match == null)
+				throw new IOException("input before join");
+			GamePhysics game = match.game;
+			game.setUserInput(connection.team == 0 ? game.getTeamA() : game.getTeamB(), input);
+		}
+
+		private void sendStates() {
+			for (int i = connections.size() - 1; i >= 0; i--) {
+				Connection connection = connections.get(i);
+				Match match = connection.match;
+				if (match == null)
+					continue;
+				if (match.ended) {
+					disconnect(connection);
+					continue;
+				}
+				byte[] state = match.latest;
+				if (state == null || state == connection.sent)
+					continue;
+				if (connection.out.hasRemaining()) {
+					// still sending an older state
+					skipped.incrementAndGet();
+					continue;
+				}
+				if (connection.out.capacity() < state.length)
+					connection.out = ByteBuffer.allocate(state.length);
+				connection.out.clear();
+				connection.out.put(state).flip();
+				connection.sent = state;
+				try {
+					write(connection);
+				} catch (IOException e) {
+					disconnect(connection);
+				}
+			}
+		}
+
+		private void write(Connection connection) throws IOException {
+			connection.channel.write(connection.out);
+			int ops = SelectionKey.OP_READ;
+			if (connection.out.hasRemaining())
+				ops |= SelectionKey.OP_WRITE;
+			connection.key.interestOps(ops);
+		}
+
+		private void disconnect(Connection connection) {
+			connection.key.cancel();
+			try {
+				connection.channel.close();
+			} catch (IOException e) {
+				log.log(Level.FINE, "closing", e);
+			}
+			connections.remove(connection);
+			connected.decrementAndGet();
+			Match match = connection.match;
+			if (match != null && match.users.compareAndSet(connection.team, connection, null)) {
+				GamePhysics game = match.game;
+				game.setUserInput(connection.team == 0 ? game.getTeamA() : game.getTeamB(), 0);
+			}
+		}
+	}
+
+	private final double dt;
+
+	private final int ticksPerUpdate;
+
+	private final ServerSocketChannel server;
+
+	private final List<IoThread> ios = Lists.newArrayList();
+
+	private final List<Thread> threads = Lists.newArrayList();
+
+	private final TickScheduler scheduler;
+
+	private final List<Match> matches = new CopyOnWriteArrayList<Match>();
+
+	private final AtomicInteger connected = new AtomicInteger();
+
+	private final AtomicInteger skipped = new AtomicInteger();
+
+	// only used by the accepting thread
+	private int next;
+
+	private volatile boolean running = true;
+
+	/**
+	 * @param address to listen on
+	 * @param dt in seconds, the time step of every match
+	 * @param ticksPerUpdate how often the clients are sent the state
+	 * @param selectors the number of threads serving the sockets
+	 * @param workers the number of threads stepping the matches
+	 * @throws IOException
+	 */
+	public MatchServer(InetSocketAddress address, double dt, int ticksPerUpdate, int selectors, int workers) throws IOException {
+		Preconditions.checkNotNull(address);
+		Preconditions.checkArgument(dt > 0, dt);
+		Preconditions.checkArgument(ticksPerUpdate > 0, ticksPerUpdate);
+		Preconditions.checkArgument(selectors > 0, selectors);
+		this.dt = dt;
+		this.ticksPerUpdate = ticksPerUpdate;
+		server = ServerSocketChannel.open();
+		server.socket().bind(address);
+		server.configureBlocking(false);
+		for (int i = 0; i < selectors; i++) {
+			ios.add(new IoThread());
+		}
+		server.register(ios.get(0).selector, SelectionKey.OP_ACCEPT);
+		for (int i = 0; i < selectors; i++) {
+			Thread thread = new Thread(ios.get(i), "selector-" + i);
+			thread.setDaemon(true);
+			threads.add(thread);
+			thread.start();
+		}
+		scheduler = new TickScheduler(workers, MAX_LAG);
+	}
+
+	/**
+	 * Start a match for two users, which is stepped until the server is closed.
+	 *
+	 * @param a
+	 * @param b
+	 * @param pitch
+	 * @param seed
+	 * @return the match number, for clients to join
+	 */
+	public synchronized int host(Team a, Team b, Pitch pitch, long seed) {
+		Preconditions.checkState(running, "closed");
+		Match match = new Match(new GamePhysics(a, b, pitch, Broadphase.simple(), seed, 2));
+		matches.add(match);
+		long period = Math.round(dt * TimeUnit.SECONDS.toNanos(1));
+		scheduler.schedule(match, period, TimeUnit.NANOSECONDS);
+		return matches.size() - 1;
+	}
+
+	/**
+	 * Stops the matches and disconnects all the clients.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		running = false;
+		scheduler.close();
+		for (IoThread io : ios) {
+			io.selector.close();
+		}
+		for (Thread thread : threads) {
+			Uninterruptibles.joinUninterruptibly(thread);
+		}
+		server.close();
+		for (IoThread io : ios) {
+			for (Connection connection : io.connections) {
+				connection.channel.close();
+			}
+		}
+		for (Match match : matches) {
+			match.game.clean();
+		}
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public InetSocketAddress getAddress() {
+		return (InetSocketAddress) server.socket().getLocalSocketAddress();
+	}
+
+	/**
+	 * @return from each time step's deadline to when it started, in microseconds
+	 */
+	public Histogram getLateness() {
+		return scheduler.getLateness();
+	}
+
+	public int getMatches() {
+		return matches.size();
+	}
+
+	/**
+	 * @param match
+	 * @return true if the match failed, its users were disconnected
+	 */
+	public boolean isEnded(int match) {
+		return matches.get(match).ended;
+	}
+
+	/**
+	 * @param match
+	 * @return the game, which must only be read by the caller
+	 */
+	public GamePhysics getGame(int match) {
+		return matches.get(match).game;
+	}
+
+	public int getConnections() {
+		return connected.get();
+	}
+
+	/**
+	 * @return the number of states that were not sent because a client was too slow
+	 */
+	public int getSkipped() {
+		return skipped.get();
+	}
+	// </editor-fold>
+}
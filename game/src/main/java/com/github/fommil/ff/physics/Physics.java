@@ -14,19 +14,22 @@
  */
 package com.github.fommil.ff.physics;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import java.util.Collection;
 import org.ode4j.ode.DGeom;
-import org.ode4j.ode.DGeom.DNearCallback;
 import org.ode4j.ode.DJointGroup;
-import org.ode4j.ode.DSimpleSpace;
+import org.ode4j.ode.DPlane;
+import org.ode4j.ode.DSpace;
 import org.ode4j.ode.DWorld;
 import org.ode4j.ode.OdeHelper;
 import org.ode4j.ode.internal.OdeInit;
 
 /**
  * Reduces the boilerplate when constructing an Open Dynamics Engine Physics World.
- * Only one instance can be alive at a time, due to the single-threaded nature of ODE construction.
+ * Many instances can be alive at a time, each stepped by (at most) one thread:
+ * construction and cleanup are serialised because ODE's are not thread safe, so
+ * subclasses must hold {@code ODE_LOCK} while they create their bodies.
  * ODE requires manual cleanup.
  *
  * @author Samuel Halliday
@@ -41,36 +44,59 @@ public abstract class Physics {
 		}
 	}
 
+	// held by subclasses while they create bodies, geometries and joints
+	static final Object ODE_LOCK = new Object();
+
 	final DWorld world;
 
-	final DSimpleSpace space;
+	final DSpace space;
 
 	final DJointGroup joints;
 
-	final DNearCallback collision;
+	final CollisionCallback collision;
 
-	volatile double time;
+	// only used by the stepping thread
+	final Scratch scratch = new Scratch();
 
-	Physics(double gravity) {
-		world = OdeHelper.createWorld();
-		world.setGravity(0, 0, -gravity);
+	volatile double time;
 
-		space = createSpace();
-		joints = createJointGroup();
+	private final Broadphase broadphase;
 
-		OdeHelper.createPlane(space, 0, 0, 1, 0);
+	Physics(double gravity) {
+		this(gravity, Broadphase.simple());
+	}
 
+	/**
+	 * @param gravity
+	 * @param broadphase used only by this instance
+	 */
+	Physics(double gravity, Broadphase broadphase) {
+		Preconditions.checkNotNull(broadphase);
+		this.broadphase = broadphase;
+		synchronized (ODE_LOCK) {
+			world = OdeHelper.createWorld();
+			world.setGravity(0, 0, -gravity);
+
+			space = createSpace();
+			joints = createJointGroup();
+
+			DPlane ground = OdeHelper.createPlane(space, 0, 0, 1, 0);
+			ground.setCategoryBits(CollisionBits.GROUND);
+			ground.setCollideBits(CollisionBits.GROUND_COLLIDE);
+		}
 		collision = getCollisionCallback();
 	}
 
 	protected void clean() {
-		joints.destroy();
-		space.destroy();
-		world.destroy();
+		synchronized (ODE_LOCK) {
+			joints.destroy();
+			space.destroy();
+			world.destroy();
+		}
 	}
 
-	protected DSimpleSpace createSpace() {
-		return OdeHelper.createSimpleSpace();
+	protected DSpace createSpace() {
+		return broadphase.createSpace();
 	}
 
 	protected DJointGroup createJointGroup() {
@@ -79,10 +105,8 @@ public abstract class Physics {
 
 	protected Collection<DGeom> getGeoms() {
 		Collection<DGeom> geoms = Lists.newArrayList();
-		int num = space.getNumGeoms();
-		for (int i = 0; i
-				< num; i++) {
-			geoms.add(space.getGeom(i));
+		for (DGeom geom : space.getGeoms()) {
+			geoms.add(geom);
 		}
 		return geoms;
 	}
@@ -95,15 +119,16 @@ public abstract class Physics {
 
 		beforeStep();
 
-		space.collide(null, collision);
+		broadphase.collide(space, collision);
 
 		world.step(dt);
 		joints.empty();
+		collision.reset();
 
 		afterStep();
 	}
 
-	protected abstract DNearCallback getCollisionCallback();
+	protected abstract CollisionCallback getCollisionCallback();
 
 	protected void beforeStep() {
 	}
@@ -0,0 +1,158 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import org.ode4j.ode.DAABBC;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * A {@link Broadphase} that bins geometries into a flat uniform grid over the pitch,
+ * because everything in a game of football is close to the ground. Geometries outside
+ * the grid are clamped into the edge cells and unbounded geometries (e.g. the ground plane)
+ * are paired with everything.
+ * <p>
+ * Each pair is only tested in the first cell (lowest x and y) that both geometries occupy,
+ * so no pair is reported twice. The final decision is left to ODE's own AABB test in
+ * {@link OdeHelper#spaceCollide2}, which also respects bodies, enabled flags and
+ * category bits. The working arrays are reused between steps, and the geometries are taken
+ * in the fixed order of {@link #getGeoms}, so the order of the space itself does not matter.
+ *
+ * @author Samuel Halliday
+ */
+class PitchGrid extends Broadphase {
+
+	private final double x0, y0, cell;
+
+	private final int nx, ny;
+
+	// counting sort of geometry indices by cell: cells[cellStart[c] .. cellStart[c + 1])
+	private final int[] cellStart;
+
+	private int[] cells = new int[256];
+
+	private DGeom[] geoms = new DGeom[64];
+
+	private int[] minX = new int[64], maxX = new int[64], minY = new int[64], maxY = new int[64];
+
+	private DGeom[] unbounded = new DGeom[4];
+
+	PitchGrid(Position lowerLeft, Position upperRight, double cell) {
+		Preconditions.checkArgument(upperRight.x > lowerLeft.x && upperRight.y > lowerLeft.y);
+		this.x0 = lowerLeft.x;
+		this.y0 = lowerLeft.y;
+		this.cell = cell;
+		nx = Math.max(1, (int) Math.ceil((upperRight.x - lowerLeft.x) / cell));
+		ny = Math.max(1, (int) Math.ceil((upperRight.y - lowerLeft.y) / cell));
+		cellStart = new int[nx * ny + 1];
+	}
+
+	@Override
+	DSpace createSpace() {
+		// the simple space is only a container, it is never asked to collide
+		return OdeHelper.createSimpleSpace();
+	}
+
+	@Override
+	void collide(DSpace space, DNearCallback callback) {
+		DGeom[] all = getGeoms(space);
+		if (geoms.length < all.length)
+			grow(all.length);
+
+		int n = 0, u = 0;
+		Arrays.fill(cellStart, 0);
+		for (DGeom geom : all) {
+			if (!geom.isEnabled())
+				continue;
+			DAABBC aabb = geom.getAABB();
+			if (Double.isInfinite(aabb.getMin0()) || Double.isInfinite(aabb.getMax0())
+					|| Double.isInfinite(aabb.getMin1()) || Double.isInfinite(aabb.getMax1())) {
+				if (u == unbounded.length)
+					unbounded = Arrays.copyOf(unbounded, 2 * u);
+				unbounded[u++] = geom;
+				continue;
+			}
+			geoms[n] = geom;
+			minX[n] = toCell(aabb.getMin0(), x0, nx);
+			maxX[n] = toCell(aabb.getMax0(), x0, nx);
+			minY[n] = toCell(aabb.getMin1(), y0, ny);
+			maxY[n] = toCell(aabb.getMax1(), y0, ny);
+			for (int y = minY[n]; y <= maxY[n]; y++) {
+				for (int x = minX[n]; x <= maxX[n]; x++) {
+					cellStart[y * nx + x + 1]++;
+				}
+			}
+			n++;
+		}
+
+		for (int c = 1; c < cellStart.length; c++) {
+			cellStart[c] += cellStart[c - 1];
+		}
+		int entries = cellStart[cellStart.length - 1];
+		if (cells.length < entries)
+			cells = new int[2 * entries];
+		// fill from the back, leaving cellStart pointing at the start of each cell
+		for (int i = n - 1; i >= 0; i--) {
+			for (int y = maxY[i]; y >= minY[i]; y--) {
+				for (int x = maxX[i]; x >= minX[i]; x--) {
+					cells[--cellStart[y * nx + x + 1]] = i;
+				}
+			}
+		}
+		// after the fill, cellStart[c + 1] is the start of cell c
+		for (int c = 0; c < nx * ny; c++) {
+			int start = cellStart[c + 1];
+			int end = c + 2 < cellStart.length ? cellStart[c + 2] : entries;
+			int cx = c % nx, cy = c / nx;
+			for (int a = start; a < end; a++) {
+				int i = cells[a];
+				for (int b = a + 1; b < end; b++) {
+					int j = cells[b];
+					if (Math.max(minX[i], minX[j]) == cx && Math.max(minY[i], minY[j]) == cy)
+						OdeHelper.spaceCollide2(geoms[i], geoms[j], null, callback);
+				}
+			}
+		}
+
+		for (int k = 0; k < u; k++) {
+			for (int l = k + 1; l < u; l++) {
+				OdeHelper.spaceCollide2(unbounded[k], unbounded[l], null, callback);
+			}
+			for (int i = 0; i < n; i++) {
+				OdeHelper.spaceCollide2(unbounded[k], geoms[i], null, callback);
+			}
+		}
+		Arrays.fill(geoms, 0, n, null);
+		Arrays.fill(unbounded, 0, u, null);
+	}
+
+	private int toCell(double coord, double origin, int count) {
+		int c = (int) Math.floor((coord - origin) / cell);
+		return Math.min(count - 1, Math.max(0, c));
+	}
+
+	private void grow(int num) {
+		int size = Math.max(num, 2 * geoms.length);
+		geoms = new DGeom[size];
+		minX = new int[size];
+		maxX = new int[size];
+		minY = new int[size];
+		maxY = new int[size];
+	}
+}
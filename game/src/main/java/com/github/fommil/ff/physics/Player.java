@@ -15,17 +15,16 @@
 package com.github.fommil.ff.physics;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.Random;
 import java.util.logging.Logger;
-import org.ode4j.math.DMatrix3;
 import org.ode4j.math.DMatrix3C;
+import org.ode4j.math.DQuaternion;
 import org.ode4j.math.DVector3;
 import org.ode4j.math.DVector3C;
 import org.ode4j.ode.DBody;
 import org.ode4j.ode.DBox;
+import org.ode4j.ode.DGeom;
 import org.ode4j.ode.DMass;
 import org.ode4j.ode.DSpace;
 import org.ode4j.ode.DWorld;
@@ -34,7 +33,6 @@ import org.ode4j.ode.internal.Rotation;
 import com.github.fommil.ff.Direction;
 import com.github.fommil.ff.PlayerStats;
 import com.github.fommil.ff.Team;
-import com.github.fommil.ff.swos.SoundParser;
 
 /**
  * The model (M) and controller (C) for a {@link Player} during game play.
@@ -51,7 +49,7 @@ public class Player {
 
 	private static final double DEPTH = 0.5;
 
-	private static final double SPEED = 6.5; // about 15 MPH
+	static final double SPEED = 6.5; // about 15 MPH
 
 	private static final double MASS = 60;
 
@@ -69,6 +67,20 @@ public class Player {
 
 	private static final double DOUBLE_KICK_RATIO = 1.1; // fudge factor for avoiding double kicks
 
+	private static final double TURN_TOLERANCE = 1e-6; // radians, contacts make tiny rotations every step
+
+	private static final double GROUNDED_TIME = 2; // seconds on the ground before getting up
+
+	private static final double INJURED_TIME = 5; // seconds since falling before an injured player gets up
+
+	private static final double REST_SPEED = 0.01; // m/s, contacts leave standing players with tiny velocities
+
+	private static final double REST_SPIN = 0.01; // rad/s
+
+	// commands that leave the ground or touch other bodies
+	private static final int DYNAMIC_ACTIONS = Action.KICK.mask() | Action.TACKLE.mask() | Action.HEAD.mask()
+			| Action.DIVE.mask();
+
 	private final Team team;
 
 	private Direction opponent;
@@ -90,32 +102,55 @@ public class Player {
 
 	private final DBox box;
 
+	private final DGeom[] geoms;
+
+	// as last set on the geometries
+	private boolean blocking;
+
 	protected final DBody body;
 
-	private volatile Collection<Action> actions = Collections.emptySet();
+	final Scratch scratch;
+
+	// a mask of Action, also set by Goalkeeper when diving
+	volatile int actions;
 
 	private volatile PlayerState forcedState;
 
-	Player(int i, Team team, PlayerStats stats, DWorld world, DSpace space) {
+	// cached by update, once per time step
+	private volatile PlayerState state = PlayerState.RUN;
+
+	private double tilt;
+
+	// when the player went to ground, NaN if they are on their feet
+	private double grounded = Double.NaN;
+
+	// the unit vector towards the opponent, where players face when standing
+	private double opponentX, opponentY;
+
+	// the number of time steps that the body has been still, see rest
+	private int still;
+
+	Player(int i, Team team, PlayerStats stats, DWorld world, DSpace space, Scratch scratch) {
 		Preconditions.checkArgument(i >= 1 && i <= 11, i);
 		Preconditions.checkNotNull(stats);
+		Preconditions.checkNotNull(scratch);
 		this.shirt = i;
+		this.scratch = scratch;
 		this.team = team;
 		this.stats = stats;
 		this.body = OdeHelper.createBody(world);
 		box = OdeHelper.createBox(space, WIDTH, DEPTH, HEIGHT);
 		box.setBody(body);
 
-		{
-			DBox foot = OdeHelper.createBox(space, 0.1, 0.5, HEIGHT / 3);
-			foot.setBody(body);
-			foot.setOffsetPosition(WIDTH / 2 - 0.05, DEPTH / 2, -HEIGHT / 6);
-		}
-		{
-			DBox foot = OdeHelper.createBox(space, 0.1, 0.5, HEIGHT / 3);
-			foot.setBody(body);
-			foot.setOffsetPosition(-WIDTH / 2 + 0.05, DEPTH / 2, -HEIGHT / 6);
-		}
+		DBox right = OdeHelper.createBox(space, 0.1, 0.5, HEIGHT / 3);
+		right.setBody(body);
+		right.setOffsetPosition(WIDTH / 2 - 0.05, DEPTH / 2, -HEIGHT / 6);
+
+		DBox left = OdeHelper.createBox(space, 0.1, 0.5, HEIGHT / 3);
+		left.setBody(body);
+		left.setOffsetPosition(-WIDTH / 2 + 0.05, DEPTH / 2, -HEIGHT / 6);
+
+		geoms = new DGeom[]{box, right, left};
 
 		DMass mass = OdeHelper.createMass();
 		mass.setBoxTotal(MASS, WIDTH, DEPTH, HEIGHT);
@@ -125,31 +160,35 @@ public class Player {
 		body.setData(this);
 	}
 
-	void kick(Ball ball) {
-		assert actions.contains(Action.KICK);
+	/**
+	 * @param ball
+	 * @return {@code true} if the ball was kicked
+	 */
+	boolean kick(Ball ball) {
+		assert Action.has(actions, Action.KICK);
 		if (distanceTo(ball) > 1.1)
-			return;
+			return false;
 
 		// avoid multiple kicks by ignoring kick when the ball is going in the same direction
 		// this is facing (but allowing for running speed)
-		DVector3 ballVelocity = ball.getVelocity().toDVector();
-		DVector3 facing = getFacing();
-		double dot = facing.dot(ballVelocity);
-		if (dot > getVelocity().speed() * DOUBLE_KICK_RATIO)
-			return;
-
-		hit(ball, 10, 5);
-
+		int mark = scratch.mark();
 		try {
-			SoundParser.play(SoundParser.Fx.BALL_KICK);
-		} catch (Exception ex) {
-			log.warning(ex.getMessage());
+			DVector3 facing = getFacing(scratch.vector());
+			double dot = facing.get0() * ball.getVelocityX() + facing.get1() * ball.getVelocityY()
+					+ facing.get2() * ball.getVelocityZ();
+			if (dot > Math.sqrt(getSpeedSquared()) * DOUBLE_KICK_RATIO)
+				return false;
+		} finally {
+			scratch.release(mark);
 		}
+
+		hit(ball, 10, 5);
+		return true;
 	}
 
 	void throwIn(Ball ball) {
 		assert getState() == PlayerState.THROWING;
-		assert actions.contains(Action.KICK);
+		assert Action.has(actions, Action.KICK);
 		if (distanceTo(ball) > 1)
 			return;
 		hit(ball, 5, 0);
@@ -158,14 +197,13 @@ public class Player {
 
 	private void hit(Ball ball, double power, double lift) {
 		double direction = getDirection();
-		DVector3 kick = new DVector3(power * Math.sin(direction), power * Math.cos(direction), lift);
-		ball.setVelocity(kick);
+		ball.setVelocity(power * Math.sin(direction), power * Math.cos(direction), lift);
 		ball.setAftertouch(true);
 	}
 
 	private double distanceTo(Ball ball) {
 		// TODO: better distance measure considering feet location and direction
-		return getPosition().distance(ball.getPosition());
+		return Math.sqrt(distanceSquared(ball));
 	}
 
 	/**
@@ -174,7 +212,15 @@ public class Player {
 	 * @param actions
 	 */
 	void setActions(Collection<Action> actions) {
-		Preconditions.checkNotNull(actions);
+		setActions(Action.mask(actions));
+	}
+
+	/**
+	 * Controller, must be called for each time step.
+	 *
+	 * @param actions a mask of {@link Action}
+	 */
+	void setActions(int actions) {
 		PlayerState state = getState();
 		switch (state) {
 			case THROW:
@@ -185,34 +231,75 @@ public class Player {
 				return;
 		}
 		this.actions = actions;
-		DVector3 move = Action.asVector(actions);
-		move.scale(SPEED);
-
-		DMatrix3 rotation = new DMatrix3();
-		DMatrix3 tilt = new DMatrix3();
-		double direction = GamePhysics.toAngle(move, opponent.getAngle());
+		int mark = scratch.mark();
+		try {
+			DVector3 move = scratch.vector(Action.getX(actions), Action.getY(actions), 0);
+			move.scale(SPEED);
+			if (!isTurned(actions, state))
+				turn(actions, state, move);
+
+			move.add(2, body.getLinearVel().get(2));
+			if (state == PlayerState.RUN) {
+				if (Action.has(actions, Action.HEAD)) {
+					move.scale(HEADER_BOOST);
+					move.add(0, 0, 3);
+					// TODO: trajectory that doesn't make player land with feet on ground after heading
+				} else if (Action.has(actions, Action.TACKLE)) {
+					move.scale(TACKLE_BOOST);
+				}
+			}
 
-		Rotation.dRFromAxisAndAngle(rotation, 0, 0, -1, direction);
-		Rotation.dRFromAxisAndAngle(tilt, -1, 0, 0, getTilt());
-		rotation.eqMul(rotation.clone(), tilt);
-
-		move.add(2, body.getLinearVel().get(2));
-		if (state == PlayerState.RUN) {
-			if (actions.contains(Action.HEAD)) {
-				move.scale(HEADER_BOOST);
-				move.add(0, 0, 3);
-				// TODO: trajectory that doesn't make player land with feet on ground after heading
-			} else if (actions.contains(Action.TACKLE)) {
-				move.scale(TACKLE_BOOST);
-				DMatrix3 horizontal = new DMatrix3();
-				Rotation.dRFromAxisAndAngle(horizontal, -1, 0, 0, Math.PI / 2);
-				rotation.eqMul(rotation.clone(), horizontal);
+			// setting the same velocity would be a no-op
+			DVector3C velocity = body.getLinearVel();
+			if (state != PlayerState.THROW && (velocity.get0() != move.get0()
+					|| velocity.get1() != move.get1() || velocity.get2() != move.get2())) {
+				wake();
+				body.setLinearVel(move);
 			}
+		} finally {
+			scratch.release(mark);
 		}
+	}
 
-		if (state != PlayerState.THROW)
-			body.setLinearVel(move);
-		body.setRotation(rotation);
+	// true if turn would not change the rotation of the body, within the tolerance: the body
+	// is facing the direction of the command, with any tilt about its horizontal axis
+	private boolean isTurned(int actions, PlayerState state) {
+		if (state == PlayerState.RUN && Action.has(actions, Action.TACKLE) && !Action.has(actions, Action.HEAD))
+			return false;
+		double x = Action.getX(actions);
+		double y = Action.getY(actions);
+		if (x == 0 && y == 0) {
+			x = opponentX;
+			y = opponentY;
+		}
+		DMatrix3C rotation = body.getRotation();
+		double forwardX = rotation.get01(), forwardY = rotation.get11();
+		return Math.abs(rotation.get20()) < TURN_TOLERANCE
+				&& forwardX * x + forwardY * y > 0
+				&& Math.abs(forwardX * y - forwardY * x) < TURN_TOLERANCE;
+	}
+
+	private void turn(int actions, PlayerState state, DVector3 move) {
+		// quaternions, because setting a rotation matrix allocates in ODE
+		DQuaternion rotation = scratch.quaternion();
+		DQuaternion tilt = scratch.quaternion();
+		DQuaternion product = scratch.quaternion();
+		double direction = GamePhysics.toAngle(move, opponent.getAngle());
+
+		Rotation.dQFromAxisAndAngle(rotation, 0, 0, -1, direction);
+		Rotation.dQFromAxisAndAngle(tilt, -1, 0, 0, getTilt());
+		Rotation.dQMultiply0(product, rotation, tilt);
+		rotation.set(product);
+
+		if (state == PlayerState.RUN && !Action.has(actions, Action.HEAD)
+				&& Action.has(actions, Action.TACKLE)) {
+			DQuaternion horizontal = scratch.quaternion();
+			Rotation.dQFromAxisAndAngle(horizontal, -1, 0, 0, Math.PI / 2);
+			Rotation.dQMultiply0(product, rotation, horizontal);
+			rotation.set(product);
+		}
+		wake();
+		body.setQuaternion(rotation);
 	}
 
 	/**
@@ -221,19 +308,37 @@ public class Player {
 	 * @param attractor
 	 */
 	void autoPilot(Position attractor) {
+		autoPilot(attractor, getAutoPilotTolerance());
+	}
+
+	/**
+	 * Controller. Ignore user input and go to the zone indicated.
+	 *
+	 * @param attractor
+	 * @param tolerance how close to get to the attractor along each axis
+	 */
+	void autoPilot(Position attractor, double tolerance) {
 		Preconditions.checkNotNull(attractor);
-		List<Action> auto = Lists.newArrayList();
-		double dx = body.getPosition().get0() - attractor.x;
-		if (dx < -getAutoPilotTolerance()) {
-			auto.add(Action.RIGHT);
-		} else if (dx > getAutoPilotTolerance()) {
-			auto.add(Action.LEFT);
+		autoPilot(attractor.x, attractor.y, tolerance);
+	}
+
+	void autoPilot(double x, double y) {
+		autoPilot(x, y, getAutoPilotTolerance());
+	}
+
+	void autoPilot(double x, double y, double tolerance) {
+		int auto = 0;
+		double dx = body.getPosition().get0() - x;
+		if (dx < -tolerance) {
+			auto |= Action.RIGHT.mask();
+		} else if (dx > tolerance) {
+			auto |= Action.LEFT.mask();
 		}
-		double dy = body.getPosition().get1() - attractor.y;
-		if (dy < -getAutoPilotTolerance()) {
-			auto.add(Action.UP);
-		} else if (dy > getAutoPilotTolerance()) {
-			auto.add(Action.DOWN);
+		double dy = body.getPosition().get1() - y;
+		if (dy < -tolerance) {
+			auto |= Action.UP.mask();
+		} else if (dy > tolerance) {
+			auto |= Action.DOWN.mask();
 		}
 		setActions(auto);
 	}
@@ -242,6 +347,21 @@ public class Player {
 		return AUTOPILOT_TOLERANCE;
 	}
 
+	/**
+	 * Place the player, upright and still, for a restart of play.
+	 *
+	 * @param p
+	 */
+	void reset(Position p) {
+		setKinematic(false);
+		setPosition(p);
+		body.setLinearVel(0, 0, 0);
+		body.setAngularVel(0, 0, 0);
+		actions = 0;
+		still = 0;
+		setState(PlayerState.RUN);
+	}
+
 	// only works for some states
 	@SuppressWarnings("fallthrough")
 	void setState(PlayerState state) {
@@ -251,6 +371,7 @@ public class Player {
 			case CELEBRATE:
 			case PUNISH:
 				setUpright();
+				grounded = Double.NaN;
 				this.forcedState = state;
 				break;
 			case INJURED:
@@ -259,24 +380,203 @@ public class Player {
 			default:
 				throw new UnsupportedOperationException();
 		}
+		this.state = state;
+		if (CollisionBits.isBlocking(state) != blocking)
+			updateCollisionBits();
 	}
 
 	private void setUpright() {
-		setPosition(getPosition());
-		DMatrix3 rotation = new DMatrix3();
-		Rotation.dRFromAxisAndAngle(rotation, 0, 0, -1, getDirection());
-		body.setRotation(rotation);
+		setPosition(body.getPosition());
+		int mark = scratch.mark();
+		try {
+			DQuaternion rotation = scratch.quaternion();
+			Rotation.dQFromAxisAndAngle(rotation, 0, 0, -1, getDirection());
+			body.setQuaternion(rotation);
+		} finally {
+			scratch.release(mark);
+		}
+		tilt = 0;
 	}
 
 	/**
-	 * @return
+	 * Model. Must be called once after each time step: the state is calculated from the
+	 * body and cached until the next call. Players who have fallen get up, or are injured,
+	 * after a period of time.
+	 *
+	 * @param time of the step
+	 * @param random decides if a fall results in an injury
 	 */
 	@SuppressWarnings("fallthrough")
+	void update(double time, Random random) {
+		tilt = calculateTilt();
+		state = calculateState();
+		switch (state) {
+			case TACKLE:
+				if (getSpeedSquared() > GamePhysics.MIN_SPEED * GamePhysics.MIN_SPEED)
+					break;
+			case GROUND:
+				if (Double.isNaN(grounded))
+					grounded = time;
+				else if (time - grounded > GROUNDED_TIME) {
+					if (state == PlayerState.GROUND && random.nextBoolean())
+						setState(PlayerState.INJURED);
+					else
+						setState(PlayerState.RUN);
+				}
+				break;
+			case INJURED:
+				if (Double.isNaN(grounded))
+					grounded = time;
+				else if (time - grounded > INJURED_TIME)
+					setState(PlayerState.RUN);
+				break;
+			case OUT_OF_CONTROL:
+				break;
+			default:
+				grounded = Double.NaN;
+		}
+		if (CollisionBits.isBlocking(state) != blocking)
+			updateCollisionBits();
+	}
+
+	/**
+	 * Level of detail, must be called once after each time step. Counts the time steps that
+	 * the player has been standing still without a command and takes the body out of the
+	 * simulation after the given number of them. The body is put back by any command that
+	 * changes it, or by ODE when an enabled body touches it.
+	 *
+	 * @param steps still time steps before the body is disabled, 0 to never disable it
+	 */
+	void rest(int steps) {
+		if (!body.isEnabled())
+			return;
+		if (steps == 0 || actions != 0 || state != PlayerState.RUN || !isStill()) {
+			still = 0;
+			return;
+		}
+		if (++still < steps)
+			return;
+		body.setLinearVel(0, 0, 0);
+		body.setAngularVel(0, 0, 0);
+		body.disable();
+		still = 0;
+	}
+
+	private boolean isStill() {
+		DVector3C angular = body.getAngularVel();
+		return getSpeedSquared() < REST_SPEED * REST_SPEED
+				&& angular.lengthSquared() < REST_SPIN * REST_SPIN;
+	}
+
+	/**
+	 * Put the body back into the simulation, if it was resting, before it is changed.
+	 */
+	void wake() {
+		if (!body.isEnabled())
+			body.enable();
+	}
+
+	boolean isResting() {
+		return !body.isEnabled();
+	}
+
+	/**
+	 * Level of detail. A kinematic player is moved at the velocity of their command, outside
+	 * of the ODE solver: gravity and contacts do not affect them, so they must be made
+	 * dynamic before they can touch the ball or an opponent.
+	 *
+	 * @param kinematic
+	 */
+	void setKinematic(boolean kinematic) {
+		if (kinematic == body.isKinematic())
+			return;
+		if (kinematic) {
+			// on their feet, as required by canBeKinematic
+			body.setLinearVel(getVelocityX(), getVelocityY(), 0);
+			body.setAngularVel(0, 0, 0);
+			body.setKinematic();
+		} else
+			body.setDynamic();
+	}
+
+	boolean isKinematic() {
+		return body.isKinematic();
+	}
+
+	/**
+	 * @return {@code true} if the player is running under control and their command does
+	 * not need the solver, as of the last call to {@link #setActions(int)}
+	 */
+	boolean canBeKinematic() {
+		return state == PlayerState.RUN && (actions & DYNAMIC_ACTIONS) == 0;
+	}
+
+	private void updateCollisionBits() {
+		blocking = CollisionBits.isBlocking(state);
+		long category = getCategoryBits(blocking);
+		long collide = getCollideBits(blocking);
+		for (DGeom geom : geoms) {
+			geom.setCategoryBits(category);
+			geom.setCollideBits(collide);
+		}
+	}
+
+	long getCategoryBits(boolean blocking) {
+		return CollisionBits.playerCategory(opponent, blocking);
+	}
+
+	long getCollideBits(boolean blocking) {
+		return CollisionBits.playerCollide(opponent, blocking);
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="REWIND">
+	PlayerState getForcedState() {
+		return forcedState;
+	}
+
+	/**
+	 * @return a mask of {@link Action}
+	 */
+	int getActions() {
+		return actions;
+	}
+
+	double getGrounded() {
+		return grounded;
+	}
+
+	int getStill() {
+		return still;
+	}
+
+	/**
+	 * Restore the fields that are not part of the body, see {@link RewindBuffer}.
+	 */
+	void rewind(PlayerState forcedState, PlayerState state, int actions, double tilt, double grounded, int still) {
+		this.forcedState = forcedState;
+		this.state = state;
+		this.actions = actions;
+		this.tilt = tilt;
+		this.grounded = grounded;
+		this.still = still;
+		if (CollisionBits.isBlocking(state) != blocking)
+			updateCollisionBits();
+	}
+	// </editor-fold>
+
+	/**
+	 * @return the state as of the last time step
+	 */
 	public PlayerState getState() {
+		return state;
+	}
+
+	@SuppressWarnings("fallthrough")
+	private PlayerState calculateState() {
 		if (forcedState != null) {
 			switch (forcedState) {
 				case THROW:
-					if (actions.contains(Action.KICK))
+					if (Action.has(actions, Action.KICK))
 						return PlayerState.THROWING;
 				case CELEBRATE:
 				case PUNISH:
@@ -292,16 +592,11 @@ public class Player {
 			return PlayerState.OUT_OF_CONTROL;
 		}
 
-		DVector3C position = body.getPosition();
-		DVector3C velocity = body.getLinearVel();
-
-
-		double tilt = getTilt();
-		double z = position.get2() - HEIGHT / 2;
-		double vz = velocity.get2();
+		double z = getZ() - HEIGHT / 2;
+		double vz = body.getLinearVel().get2();
 
 		if (tilt > Math.PI / 8) {
-			if (actions.contains(Action.TACKLE))
+			if (Action.has(actions, Action.TACKLE))
 				return PlayerState.TACKLE;
 			return PlayerState.GROUND;
 		}
@@ -314,36 +609,48 @@ public class Player {
 		}
 		if (z > 0.1)
 			return PlayerState.HEAD_END;
-		if (actions.contains(Action.KICK))
+		if (Action.has(actions, Action.KICK))
 			return PlayerState.KICK;
 		return PlayerState.RUN;
 	}
 
 	/**
+	 * Must be called by the thread that steps the physics.
+	 *
 	 * @return the angle relative to NORTH {@code (- PI, + PI]}.
 	 */
 	public double getDirection() {
-		return GamePhysics.toAngle(getFacing());
+		int mark = scratch.mark();
+		try {
+			return GamePhysics.toAngle(getFacing(scratch.vector()));
+		} finally {
+			scratch.release(mark);
+		}
 	}
 
-	DVector3 getFacing() {
+	// sets and returns the unit vector that the player is facing
+	private DVector3 getFacing(DVector3 rotated) {
 		DMatrix3C rotation = body.getRotation();
-		DVector3 rotated;
 		if (getTilt() > Math.PI / 4)
-			rotated = new DVector3(rotation.get02(), rotation.get12(), rotation.get22());
+			rotated.set(rotation.get02(), rotation.get12(), rotation.get22());
 		else
-			rotated = new DVector3(rotation.get01(), rotation.get11(), rotation.get21());
+			rotated.set(rotation.get01(), rotation.get11(), rotation.get21());
 		rotated.normalize();
 		return rotated;
 	}
 
-	// returns the angle (radians) off the vertical [0, PI]
+	// returns the angle (radians) off the vertical [0, PI], as of the last time step
 	double getTilt() {
+		return tilt;
+	}
+
+	private double calculateTilt() {
 		// TODO: a [-PI, PI] version for head over feet
+		// the dot product of the rotated z axis with the vertical
 		DMatrix3C rotation = body.getRotation();
-		DVector3 rotated = new DVector3(rotation.get02(), rotation.get12(), rotation.get22());
-		rotated.normalize();
-		return Math.acos(rotated.dot(new DVector3(0, 0, 1)));
+		double x = rotation.get02(), y = rotation.get12(), z = rotation.get22();
+		double cos = z / Math.sqrt(x * x + y * y + z * z);
+		return Math.acos(Math.max(-1, Math.min(1, cos)));
 	}
 
 	public Velocity getVelocity() {
@@ -354,14 +661,97 @@ public class Player {
 		return new Position(body.getPosition());
 	}
 
+	// <editor-fold defaultstate="collapsed" desc="PRIMITIVE ACCESSORS, AVOIDING ALLOCATION">
+	public double getX() {
+		return body.getPosition().get0();
+	}
+
+	public double getY() {
+		return body.getPosition().get1();
+	}
+
+	/**
+	 * @return the height of the centre of the player, as {@link #getPosition()}
+	 */
+	public double getZ() {
+		return body.getPosition().get2();
+	}
+
+	public double getVelocityX() {
+		return body.getLinearVel().get0();
+	}
+
+	public double getVelocityY() {
+		return body.getLinearVel().get1();
+	}
+
+	public double getVelocityZ() {
+		return body.getLinearVel().get2();
+	}
+
+	public double getSpeedSquared() {
+		DVector3C v = body.getLinearVel();
+		return v.get0() * v.get0() + v.get1() * v.get1() + v.get2() * v.get2();
+	}
+
+	/**
+	 * @param ball
+	 * @return the square of the distance between {@link #getPosition()} and {@link Ball#getPosition()}
+	 */
+	public double distanceSquared(Ball ball) {
+		return distanceSquared(ball.getX(), ball.getY(), ball.getZ());
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return the square of the distance between {@link #getPosition()} and the given point
+	 */
+	public double distanceSquared(double x, double y, double z) {
+		DVector3C p = body.getPosition();
+		double dx = p.get0() - x;
+		double dy = p.get1() - y;
+		double dz = p.get2() - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+	// </editor-fold>
+
+	// <editor-fold defaultstate="collapsed" desc="INTERPOLATION BETWEEN TIME STEPS">
+	// the position before the last time step
+	private double x0, y0, z0;
+
+	void savePosition() {
+		x0 = getX();
+		y0 = getY();
+		z0 = getZ();
+	}
+
+	/**
+	 * @param alpha {@code [0, 1]} from the previous to the current time step
+	 * @return
+	 * @see GameLoop.Renderer
+	 */
+	public double getX(double alpha) {
+		return x0 + alpha * (getX() - x0);
+	}
+
+	public double getY(double alpha) {
+		return y0 + alpha * (getY() - y0);
+	}
+
+	public double getZ(double alpha) {
+		return z0 + alpha * (getZ() - z0);
+	}
+	// </editor-fold>
+
 	void setPosition(Position p) {
 		setPosition(p.toDVector());
 	}
 
 	void setPosition(DVector3C p) {
-		DVector3 position = new DVector3(p);
-		position.set(2, HEIGHT / 2);
-		body.setPosition(position);
+		wake();
+		body.setPosition(p.get0(), p.get1(), HEIGHT / 2);
 	}
 
 	// [0, 1] bounciness when contacting the ball
@@ -391,6 +781,9 @@ public class Player {
 
 	public void setOpponent(Direction opponent) {
 		this.opponent = opponent;
+		opponentX = Math.sin(opponent.getAngle());
+		opponentY = Math.cos(opponent.getAngle());
+		updateCollisionBits();
 	}
 	// </editor-fold>
 }
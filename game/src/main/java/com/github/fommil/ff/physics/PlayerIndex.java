@@ -0,0 +1,229 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import com.github.fommil.ff.Pitch;
+
+/**
+ * A uniform grid over the pitch that answers nearest, k-nearest and radius queries about
+ * the players, e.g. the closest team-mate to the ball or how many opponents are pressing.
+ * <p>
+ * The grid is a counting sort of the players by cell, in the same style as
+ * {@link PitchGrid}, and is rebuilt without allocation the first time it is queried after
+ * {@link #invalidate()}, i.e. at most once per time step. Players off the pitch are clamped
+ * into the edge cells. Distances are as {@link Player#distanceSquared(double, double, double)}
+ * and ties are broken in favour of the player that came first when the index was created,
+ * so the answers are the same as a linear scan.
+ *
+ * @author Samuel Halliday
+ */
+class PlayerIndex {
+
+	/**
+	 * Restricts the players that are considered by a query.
+	 */
+	interface Filter {
+
+		boolean accept(Player player);
+	}
+
+	private final Player[] players;
+
+	private final double x0, y0, cell;
+
+	private final int nx, ny;
+
+	// counting sort of player indices by cell: sorted[cellStart[c] .. cellStart[c + 1])
+	private final int[] cellStart, sorted, cellOf;
+
+	// working space for k-nearest
+	private final double[] kDistances;
+
+	private final int[] kIds;
+
+	private boolean stale = true;
+
+	/**
+	 * @param pitch
+	 * @param players in the order that breaks ties
+	 * @param cell the width of the cells
+	 */
+	PlayerIndex(Pitch pitch, Iterable<Player> players, double cell) {
+		Preconditions.checkArgument(cell > 0, cell);
+		this.players = Iterables.toArray(players, Player.class);
+		Position lowerLeft = pitch.getBoundsLowerLeft();
+		Position upperRight = pitch.getBoundsUpperRight();
+		x0 = lowerLeft.x;
+		y0 = lowerLeft.y;
+		this.cell = cell;
+		nx = Math.max(1, (int) Math.ceil((upperRight.x - lowerLeft.x) / cell));
+		ny = Math.max(1, (int) Math.ceil((upperRight.y - lowerLeft.y) / cell));
+		cellStart = new int[nx * ny + 1];
+		sorted = new int[this.players.length];
+		cellOf = new int[this.players.length];
+		kDistances = new double[this.players.length];
+		kIds = new int[this.players.length];
+	}
+
+	/**
+	 * Must be called whenever the players have moved.
+	 */
+	void invalidate() {
+		stale = true;
+	}
+
+	private void rebuild() {
+		Arrays.fill(cellStart, 0);
+		for (int i = 0; i < players.length; i++) {
+			int c = toCell(players[i].getY(), y0, ny) * nx + toCell(players[i].getX(), x0, nx);
+			cellOf[i] = c;
+			cellStart[c + 1]++;
+		}
+		for (int c = 1; c < cellStart.length; c++) {
+			cellStart[c] += cellStart[c - 1];
+		}
+		// fill from the back, leaving cellStart pointing at the start of each cell
+		for (int i = players.length - 1; i >= 0; i--) {
+			sorted[--cellStart[cellOf[i] + 1]] = i;
+		}
+		// the fill moved every start back by one cell
+		System.arraycopy(cellStart, 1, cellStart, 0, cellStart.length - 1);
+		cellStart[cellStart.length - 1] = players.length;
+		stale = false;
+	}
+
+	private int toCell(double coord, double origin, int count) {
+		int c = (int) Math.floor((coord - origin) / cell);
+		return Math.min(count - 1, Math.max(0, c));
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param filter
+	 * @return the closest player that is accepted by the filter, or {@code null}
+	 */
+	@Nullable
+	Player nearest(double x, double y, double z, @Nullable Filter filter) {
+		return nearest(x, y, z, 1, filter, null) == 0 ? null : players[kIds[0]];
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param k
+	 * @param filter
+	 * @param out the closest players, closest first, or {@code null} to only count them
+	 * @return the number of players found, at most {@code k}
+	 */
+	int nearest(double x, double y, double z, int k, @Nullable Filter filter, @Nullable Player[] out) {
+		Preconditions.checkArgument(k > 0 && k <= players.length, k);
+		Preconditions.checkArgument(out == null || out.length >= k);
+		if (stale)
+			rebuild();
+		int cx = toCell(x, x0, nx), cy = toCell(y, y0, ny);
+		int found = 0;
+		int rings = Math.max(Math.max(cx, nx - 1 - cx), Math.max(cy, ny - 1 - cy));
+		for (int r = 0; r <= rings; r++) {
+			for (int gy = cy - r; gy <= cy + r; gy++) {
+				if (gy < 0 || gy >= ny)
+					continue;
+				// only the perimeter of the ring
+				int step = gy == cy - r || gy == cy + r ? 1 : Math.max(1, 2 * r);
+				for (int gx = cx - r; gx <= cx + r; gx += step) {
+					if (gx < 0 || gx >= nx)
+						continue;
+					int c = gy * nx + gx;
+					for (int s = cellStart[c]; s < cellStart[c + 1]; s++) {
+						int i = sorted[s];
+						Player player = players[i];
+						if (filter != null && !filter.accept(player))
+							continue;
+						found = insert(i, player.distanceSquared(x, y, z), k, found);
+					}
+				}
+			}
+			// every cell beyond this ring is further away than r cells
+			double bound = r * cell;
+			if (found == k && kDistances[k - 1] <= bound * bound)
+				break;
+		}
+		if (out != null) {
+			for (int j = 0; j < found; j++) {
+				out[j] = players[kIds[j]];
+			}
+		}
+		return found;
+	}
+
+	// insertion into the sorted k closest, returning the new size
+	private int insert(int id, double distance, int k, int found) {
+		int j = found;
+		while (j > 0 && (kDistances[j - 1] > distance || (kDistances[j - 1] == distance && kIds[j - 1] > id))) {
+			j--;
+		}
+		if (j == k)
+			return found;
+		int last = Math.min(found, k - 1);
+		System.arraycopy(kDistances, j, kDistances, j + 1, last - j);
+		System.arraycopy(kIds, j, kIds, j + 1, last - j);
+		kDistances[j] = distance;
+		kIds[j] = id;
+		return Math.min(found + 1, k);
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param radius
+	 * @param filter
+	 * @param out the players within the radius, in no particular order, or {@code null} to
+	 * only count them
+	 * @return the number of players within the radius, which may be more than are written
+	 * to {@code out}
+	 */
+	int within(double x, double y, double z, double radius, @Nullable Filter filter, @Nullable Player[] out) {
+		Preconditions.checkArgument(radius >= 0, radius);
+		if (stale)
+			rebuild();
+		double radius2 = radius * radius;
+		int minX = toCell(x - radius, x0, nx), maxX = toCell(x + radius, x0, nx);
+		int minY = toCell(y - radius, y0, ny), maxY = toCell(y + radius, y0, ny);
+		int found = 0;
+		for (int gy = minY; gy <= maxY; gy++) {
+			for (int gx = minX; gx <= maxX; gx++) {
+				int c = gy * nx + gx;
+				for (int s = cellStart[c]; s < cellStart[c + 1]; s++) {
+					Player player = players[sorted[s]];
+					if (filter != null && !filter.accept(player))
+						continue;
+					if (player.distanceSquared(x, y, z) > radius2)
+						continue;
+					if (out != null && found < out.length)
+						out[found] = player;
+					found++;
+				}
+			}
+		}
+		return found;
+	}
+}
@@ -19,7 +19,6 @@ import com.google.common.base.Preconditions;
 import org.ode4j.math.DVector3;
 import org.ode4j.math.DVector3C;
 
-import static java.lang.Math.pow;
 import static java.lang.Math.sqrt;
 
 /**
@@ -61,8 +60,19 @@ public final class Position {
 	 * @return
 	 */
 	public double distance(Position other) {
+		return sqrt(distanceSquared(other));
+	}
+
+	/**
+	 * @param other
+	 * @return the square of the distance, cheaper when only comparing distances.
+	 */
+	public double distanceSquared(Position other) {
 		Preconditions.checkNotNull(other);
-		return sqrt(pow(x - other.x, 2) + pow(y - other.y, 2) + pow(z - other.z, 2));
+		double dx = x - other.x;
+		double dy = y - other.y;
+		double dz = z - other.z;
+		return dx * dx + dy * dy + dz * dz;
 	}
 
 	@Override
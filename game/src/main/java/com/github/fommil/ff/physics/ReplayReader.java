@@ -0,0 +1,294 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import com.github.fommil.ff.physics.Player.PlayerState;
+import static com.github.fommil.ff.physics.ReplayWriter.*;
+
+/**
+ * Plays back a replay written by {@link ReplayWriter}. The file is memory mapped and only
+ * the header and footer are read up front: {@link #seek(double)} jumps to the keyframe
+ * at or before the requested time and decodes at most one keyframe interval of deltas.
+ * <p>
+ * The accessors describe the current frame. Instances are not thread safe.
+ *
+ * @author Samuel Halliday
+ */
+public class ReplayReader implements Closeable {
+
+	private static final PlayerState[] STATES = PlayerState.values();
+
+	private final RandomAccessFile file;
+
+	private final MappedByteBuffer buffer;
+
+	private final int start, ticksPerFrame, framesPerKeyframe;
+
+	private final int[] teams, shirts;
+
+	private final boolean[] goalkeepers;
+
+	private final double secondsPerTick;
+
+	private final int frames;
+
+	private final long[] keyframes;
+
+	private final long end;
+
+	private final int[] values;
+
+	private int frame = -1;
+
+	private int tick, selected;
+
+	/**
+	 * @param replay
+	 * @throws IOException
+	 */
+	public ReplayReader(File replay) throws IOException {
+		file = new RandomAccessFile(replay, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(buffer.limit() - 4) != MAGIC)
+				throw new IOException("not a replay " + replay);
+			if (buffer.getInt(4) != VERSION)
+				throw new IOException("unsupported version " + buffer.getInt(4));
+			buffer.position(8);
+			start = buffer.getInt();
+			ticksPerFrame = buffer.getInt();
+			framesPerKeyframe = buffer.getInt();
+			int players = buffer.getInt();
+			teams = new int[players];
+			shirts = new int[players];
+			goalkeepers = new boolean[players];
+			for (int i = 0; i < players; i++) {
+				teams[i] = buffer.get();
+				shirts[i] = buffer.get();
+				goalkeepers[i] = buffer.get() != 0;
+			}
+			values = new int[(1 + players) * FIELDS];
+
+			end = buffer.getLong(buffer.limit() - 12);
+			buffer.position((int) end);
+			secondsPerTick = Double.longBitsToDouble(buffer.getLong());
+			frames = buffer.getInt();
+			keyframes = new long[buffer.getInt()];
+			for (int i = 0; i < keyframes.length; i++) {
+				keyframes[i] = buffer.getLong();
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Jump to the last frame at or before the given time.
+	 *
+	 * @param seconds
+	 */
+	public void seek(double seconds) {
+		Preconditions.checkArgument(seconds >= 0, seconds);
+		Preconditions.checkState(frames > 0, "empty replay");
+		long tick = secondsPerTick == 0 ? start : Math.round(seconds / secondsPerTick);
+		int to = (int) Math.max(0, Math.min((tick - start) / ticksPerFrame, frames - 1));
+		int key = to / framesPerKeyframe;
+		if (frame < key * framesPerKeyframe || frame > to) {
+			buffer.position((int) keyframes[key]);
+			frame = key * framesPerKeyframe - 1;
+		}
+		while (frame < to) {
+			next();
+		}
+	}
+
+	/**
+	 * Advance to the next frame.
+	 *
+	 * @return {@code false} if there are no more frames
+	 */
+	public boolean next() {
+		if (frame + 1 >= frames)
+			return false;
+		if (frame == -1)
+			buffer.position((int) keyframes[0]);
+		byte type = buffer.get();
+		if (type == KEYFRAME) {
+			tick = getVarInt();
+			selected = getVarInt();
+			for (int i = 0; i < values.length; i++) {
+				values[i] = getVarInt();
+			}
+		} else if (type == DELTA) {
+			tick += ticksPerFrame;
+			selected = getVarInt();
+			for (int i = 0; i < values.length; i += FIELDS) {
+				int mask = buffer.get() & 0xFF;
+				for (int field = 0; field < FIELDS; field++) {
+					if ((mask & (1 << field)) != 0)
+						values[i + field] += getVarInt();
+				}
+			}
+		} else {
+			throw new IllegalStateException("corrupt replay at " + (buffer.position() - 1));
+		}
+		frame++;
+		return true;
+	}
+
+	private int getVarInt() {
+		int zigzag = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			zigzag |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="FRAME ACCESSORS">
+	private void checkFrame() {
+		Preconditions.checkState(frame >= 0, "call next() or seek() first");
+	}
+
+	public double getTimestamp() {
+		checkFrame();
+		return tick * secondsPerTick;
+	}
+
+	public int getTick() {
+		checkFrame();
+		return tick;
+	}
+
+	/**
+	 * @return the index of the selected player
+	 */
+	public int getSelected() {
+		checkFrame();
+		return selected;
+	}
+
+	public double getBallX() {
+		return position(0, 0);
+	}
+
+	public double getBallY() {
+		return position(0, 1);
+	}
+
+	public double getBallZ() {
+		return position(0, 2);
+	}
+
+	public Velocity getBallVelocity() {
+		return velocity(0);
+	}
+
+	/**
+	 * @param i player index
+	 * @return
+	 */
+	public double getPlayerX(int i) {
+		return position(i + 1, 0);
+	}
+
+	public double getPlayerY(int i) {
+		return position(i + 1, 1);
+	}
+
+	public double getPlayerZ(int i) {
+		return position(i + 1, 2);
+	}
+
+	public Velocity getPlayerVelocity(int i) {
+		return velocity(i + 1);
+	}
+
+	public PlayerState getPlayerState(int i) {
+		checkFrame();
+		return STATES[values[(i + 1) * FIELDS + STATE]];
+	}
+
+	/**
+	 * @param i
+	 * @return the angle relative to NORTH {@code (- PI, + PI]}.
+	 */
+	public double getPlayerDirection(int i) {
+		checkFrame();
+		return values[(i + 1) * FIELDS + DIRECTION] / DIRECTION_SCALE;
+	}
+
+	private double position(int entity, int field) {
+		checkFrame();
+		return values[entity * FIELDS + field] / POSITION_SCALE;
+	}
+
+	private Velocity velocity(int entity) {
+		checkFrame();
+		int i = entity * FIELDS + 3;
+		return new Velocity(values[i] / VELOCITY_SCALE, values[i + 1] / VELOCITY_SCALE, values[i + 2] / VELOCITY_SCALE);
+	}
+	// </editor-fold>
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public int getPlayers() {
+		return shirts.length;
+	}
+
+	/**
+	 * @param i
+	 * @return 0 for team A, 1 for team B
+	 */
+	public int getTeam(int i) {
+		return teams[i];
+	}
+
+	public int getShirt(int i) {
+		return shirts[i];
+	}
+
+	public boolean isGoalkeeper(int i) {
+		return goalkeepers[i];
+	}
+
+	public int getFrames() {
+		return frames;
+	}
+
+	/**
+	 * @return the length of the replay
+	 */
+	public double getDuration() {
+		return frames == 0 ? 0 : (start + (frames - 1) * ticksPerFrame) * secondsPerTick;
+	}
+	// </editor-fold>
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records a {@link GamePhysics} into a compact binary replay, read by {@link ReplayReader}.
+ * <p>
+ * Positions, velocities and directions are quantized to integers (millimetres,
+ * centimetres per second and 1/256 of a turn). Every few frames there is a full keyframe,
+ * the frames in between only contain the fields that changed, as variable length deltas,
+ * so players standing still cost one byte per frame. A footer indexes the keyframes so
+ * that the reader can seek without parsing the file.
+ * <p>
+ * File layout (big endian):
+ * <pre>
+ * header:   MAGIC, VERSION, first tick, ticksPerFrame, framesPerKeyframe, players, (team, shirt, goalkeeper)*
+ * frames:   KEYFRAME tick selected value*  |  DELTA selected (mask delta*)*
+ * footer:   secondsPerTick (double), frames, keyframes, keyframe offset (long)*
+ * trailer:  footer offset (long), MAGIC
+ * </pre>
+ * where the values are zig-zag varints, for the ball and then every player, of
+ * {@code x, y, z, vx, vy, vz, state, direction}.
+ *
+ * @author Samuel Halliday
+ */
+public class ReplayWriter implements Closeable {
+
+	static final int MAGIC = 0x46465250; // FFRP
+
+	static final int VERSION = 1;
+
+	static final byte KEYFRAME = 'K';
+
+	static final byte DELTA = 'D';
+
+	static final int FIELDS = 8;
+
+	static final int STATE = 6;
+
+	static final int DIRECTION = 7;
+
+	static final double POSITION_SCALE = 1000;
+
+	static final double VELOCITY_SCALE = 100;
+
+	static final double DIRECTION_SCALE = 256 / (2 * Math.PI);
+
+	private final GamePhysics game;
+
+	private final OutputStream out;
+
+	private final List<Player> players;
+
+	private final int start, ticksPerFrame, framesPerKeyframe;
+
+	private int last;
+
+	private int[] previous, current;
+
+	private byte[] buffer = new byte[1024];
+
+	private int length;
+
+	private long offset;
+
+	private int frames;
+
+	private long[] keyframes = new long[64];
+
+	private int keyframeCount;
+
+	/**
+	 * The current state of the game is the first frame.
+	 *
+	 * @param game
+	 * @param out will be closed by {@link #close()}
+	 * @param ticksPerFrame 1 to record every time step
+	 * @param framesPerKeyframe
+	 * @throws IOException
+	 */
+	public ReplayWriter(GamePhysics game, OutputStream out, int ticksPerFrame, int framesPerKeyframe) throws IOException {
+		Preconditions.checkNotNull(game);
+		Preconditions.checkNotNull(out);
+		Preconditions.checkArgument(ticksPerFrame > 0, ticksPerFrame);
+		Preconditions.checkArgument(framesPerKeyframe > 0, framesPerKeyframe);
+		this.game = game;
+		this.out = out;
+		this.ticksPerFrame = ticksPerFrame;
+		this.framesPerKeyframe = framesPerKeyframe;
+		players = Lists.newArrayList(game.getPlayers());
+		previous = new int[(1 + players.size()) * FIELDS];
+		current = new int[previous.length];
+
+		start = game.getTick();
+		putInt(MAGIC);
+		putInt(VERSION);
+		putInt(start);
+		putInt(ticksPerFrame);
+		putInt(framesPerKeyframe);
+		putInt(players.size());
+		for (Player player : players) {
+			put(player.getTeam() == game.getTeamA() ? 0 : 1);
+			put(player.getShirt());
+			put(player instanceof Goalkeeper ? 1 : 0);
+		}
+		writeFrame(start);
+	}
+
+	/**
+	 * Must be called after every time step, only every {@code ticksPerFrame} are recorded.
+	 *
+	 * @throws IOException
+	 */
+	public void record() throws IOException {
+		int tick = game.getTick();
+		if (tick == last || (tick - start) % ticksPerFrame != 0)
+			return;
+		writeFrame(tick);
+	}
+
+	private void writeFrame(int tick) throws IOException {
+		last = tick;
+		quantize();
+		int selected = players.indexOf(game.getSelected());
+		if (frames % framesPerKeyframe == 0) {
+			if (keyframeCount == keyframes.length)
+				keyframes = Arrays.copyOf(keyframes, 2 * keyframeCount);
+			keyframes[keyframeCount++] = offset + length;
+			put(KEYFRAME);
+			putVarInt(tick);
+			putVarInt(selected);
+			for (int value : current) {
+				putVarInt(value);
+			}
+		} else {
+			put(DELTA);
+			putVarInt(selected);
+			for (int i = 0; i < current.length; i += FIELDS) {
+				int mask = 0;
+				for (int field = 0; field < FIELDS; field++) {
+					if (current[i + field] != previous[i + field])
+						mask |= 1 << field;
+				}
+				put(mask);
+				for (int field = 0; field < FIELDS; field++) {
+					if ((mask & (1 << field)) != 0)
+						putVarInt(current[i + field] - previous[i + field]);
+				}
+			}
+		}
+		flush();
+		int[] swap = previous;
+		previous = current;
+		current = swap;
+		frames++;
+	}
+
+	private void quantize() {
+		Ball ball = game.getBall();
+		current[0] = position(ball.getX());
+		current[1] = position(ball.getY());
+		current[2] = position(ball.getZ());
+		current[3] = velocity(ball.getVelocityX());
+		current[4] = velocity(ball.getVelocityY());
+		current[5] = velocity(ball.getVelocityZ());
+		int i = FIELDS;
+		for (Player player : players) {
+			current[i] = position(player.getX());
+			current[i + 1] = position(player.getY());
+			current[i + 2] = position(player.getZ());
+			current[i + 3] = velocity(player.getVelocityX());
+			current[i + 4] = velocity(player.getVelocityY());
+			current[i + 5] = velocity(player.getVelocityZ());
+			current[i + STATE] = player.getState().ordinal();
+			current[i + DIRECTION] = (int) Math.round(player.getDirection() * DIRECTION_SCALE);
+			i += FIELDS;
+		}
+	}
+
+	private int position(double value) {
+		return (int) Math.round(value * POSITION_SCALE);
+	}
+
+	private int velocity(double value) {
+		return (int) Math.round(value * VELOCITY_SCALE);
+	}
+
+	/**
+	 * Writes the footer and closes the stream.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			long footer = offset + length;
+			int ticks = game.getTick();
+			putLong(Double.doubleToLongBits(ticks == 0 ? 0 : game.getTimestamp() / ticks));
+			putInt(frames);
+			putInt(keyframeCount);
+			for (int i = 0; i < keyframeCount; i++) {
+				putLong(keyframes[i]);
+			}
+			putLong(footer);
+			putInt(MAGIC);
+			flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="ENCODING">
+	private void put(int b) {
+		if (length == buffer.length)
+			buffer = Arrays.copyOf(buffer, 2 * length);
+		buffer[length++] = (byte) b;
+	}
+
+	private void putInt(int value) {
+		put(value >>> 24);
+		put(value >>> 16);
+		put(value >>> 8);
+		put(value);
+	}
+
+	private void putLong(long value) {
+		putInt((int) (value >>> 32));
+		putInt((int) value);
+	}
+
+	// zig-zag, so small negative numbers are also short
+	private void putVarInt(int value) {
+		int zigzag = (value << 1) ^ (value >> 31);
+		while ((zigzag & ~0x7F) != 0) {
+			put((zigzag & 0x7F) | 0x80);
+			zigzag >>>= 7;
+		}
+		put(zigzag);
+	}
+
+	private void flush() throws IOException {
+		out.write(buffer, 0, length);
+		offset += length;
+		length = 0;
+	}
+	// </editor-fold>
+}
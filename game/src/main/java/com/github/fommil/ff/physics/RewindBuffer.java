@@ -0,0 +1,262 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import java.util.List;
+import org.ode4j.math.DMatrix3;
+import org.ode4j.math.DMatrix3C;
+import org.ode4j.math.DQuaternion;
+import org.ode4j.math.DQuaternionC;
+import org.ode4j.math.DVector3C;
+import org.ode4j.ode.DBody;
+import com.github.fommil.ff.Tactics.BallZone;
+import com.github.fommil.ff.physics.Goalkeeper.GoalkeeperState;
+import com.github.fommil.ff.physics.Player.PlayerState;
+
+/**
+ * A ring buffer of the last time steps of a {@link GamePhysics}, for instant replays and
+ * rollback. Every body's position, rotation, linear and angular velocity is kept in a flat
+ * pre-allocated array, along with whether it is resting or kinematic and the player and
+ * game states, so {@link #capture()} does not allocate and any of the captured time steps
+ * can be restored without re-simulating.
+ * <p>
+ * Capturing after a restore discards the time steps that came after it.
+ * <p>
+ * The order of the geometries in the collision space, which changes as the bodies move, is
+ * not captured: every {@link Broadphase} collides them in a fixed order, so the contact
+ * joints of the re-simulation are the same, bit for bit.
+ *
+ * @author Samuel Halliday
+ */
+public class RewindBuffer {
+
+	// position, quaternion, rotation, linear velocity, angular velocity
+	private static final int STRIDE = 3 + 4 + 9 + 3 + 3;
+
+	private final GamePhysics game;
+
+	private final int capacity;
+
+	private final Ball ball;
+
+	private final Player[] players;
+
+	private final DBody[] bodies;
+
+	private final double[] kinematics;
+
+	private final double[] times, tilts, grounded;
+
+	private final boolean[] aftertouch, aftertouchB;
+
+	// the bodies that were not resting, see GamePhysics#setLevelOfDetail
+	private final boolean[] enabled;
+
+	private final boolean[] kinematic;
+
+	// enum, immutable object and immutable collection references, so capturing does not allocate
+	private final Object[] forcedStates, states, gkStates, gameStates, throwIns, throwInZones;
+
+	private final int[] selected, selectedB, ballInside, actions, still, ballStill;
+
+	private final DQuaternion quaternion = new DQuaternion();
+
+	private int oldest = Integer.MAX_VALUE, newest = -1;
+
+	/**
+	 * @param game
+	 * @param capacity the number of time steps
+	 */
+	public RewindBuffer(GamePhysics game, int capacity) {
+		Preconditions.checkNotNull(game);
+		Preconditions.checkArgument(capacity > 0, capacity);
+		this.game = game;
+		this.capacity = capacity;
+		ball = game.getBall();
+		List<Player> list = Lists.newArrayList(game.getPlayers());
+		players = list.toArray(new Player[list.size()]);
+		bodies = new DBody[1 + players.length];
+		bodies[0] = ball.getGeom().getBody();
+		for (int i = 0; i < players.length; i++) {
+			bodies[i + 1] = players[i].body;
+		}
+		kinematics = new double[capacity * bodies.length * STRIDE];
+		enabled = new boolean[capacity * bodies.length];
+		times = new double[capacity];
+		aftertouch = new boolean[capacity];
+		aftertouchB = new boolean[capacity];
+		selected = new int[capacity];
+		selectedB = new int[capacity];
+		ballInside = new int[capacity];
+		ballStill = new int[capacity];
+		gameStates = new Object[capacity];
+		throwIns = new Object[capacity];
+		throwInZones = new Object[capacity];
+		int size = capacity * players.length;
+		tilts = new double[size];
+		grounded = new double[size];
+		forcedStates = new Object[size];
+		states = new Object[size];
+		actions = new int[size];
+		still = new int[size];
+		kinematic = new boolean[size];
+		gkStates = new Object[size];
+	}
+
+	/**
+	 * Capture the current time step, must be called after every step.
+	 */
+	public void capture() {
+		int tick = game.getTick();
+		int slot = tick % capacity;
+		int k = slot * bodies.length * STRIDE;
+		int e = slot * bodies.length;
+		for (DBody body : bodies) {
+			enabled[e++] = body.isEnabled();
+			k = put(body.getPosition(), k);
+			DQuaternionC q = body.getQuaternion();
+			kinematics[k++] = q.get0();
+			kinematics[k++] = q.get1();
+			kinematics[k++] = q.get2();
+			kinematics[k++] = q.get3();
+			DMatrix3C r = body.getRotation();
+			for (int i = 0; i < 3; i++) {
+				for (int j = 0; j < 3; j++) {
+					kinematics[k++] = r.get(i, j);
+				}
+			}
+			k = put(body.getLinearVel(), k);
+			k = put(body.getAngularVel(), k);
+		}
+		times[slot] = game.getTimestamp();
+		aftertouch[slot] = ball.isAftertouch();
+		ballStill[slot] = ball.getStill();
+		aftertouchB[slot] = game.isAftertouchB();
+		ballInside[slot] = game.getBallInside();
+		gameStates[slot] = game.getGameState();
+		throwIns[slot] = game.getThrowIn();
+		throwInZones[slot] = game.getThrowInZone();
+		selected[slot] = -1;
+		selectedB[slot] = -1;
+		int p = slot * players.length;
+		for (int i = 0; i < players.length; i++, p++) {
+			Player player = players[i];
+			forcedStates[p] = player.getForcedState();
+			states[p] = player.getState();
+			actions[p] = player.getActions();
+			still[p] = player.getStill();
+			kinematic[p] = player.isKinematic();
+			tilts[p] = player.getTilt();
+			grounded[p] = player.getGrounded();
+			gkStates[p] = player instanceof Goalkeeper ? ((Goalkeeper) player).getGkState() : null;
+			if (player == game.getSelected())
+				selected[slot] = i;
+			else if (player == game.getSelectedB())
+				selectedB[slot] = i;
+		}
+		newest = tick;
+		oldest = Math.max(Math.min(oldest, tick), tick - capacity + 1);
+	}
+
+	private int put(DVector3C v, int k) {
+		kinematics[k] = v.get0();
+		kinematics[k + 1] = v.get1();
+		kinematics[k + 2] = v.get2();
+		return k + 3;
+	}
+
+	/**
+	 * Restore the bodies and player states to a captured time step.
+	 *
+	 * @param tick between {@link #getOldest()} and {@link #getNewest()}
+	 */
+	public void restore(int tick) {
+		Preconditions.checkArgument(tick >= oldest && tick <= newest, tick);
+		int slot = tick % capacity;
+		// before the kinematics, which it changes
+		for (int i = 0, p = slot * players.length; i < players.length; i++, p++) {
+			players[i].setKinematic(kinematic[p]);
+		}
+		int k = slot * bodies.length * STRIDE;
+		int e = slot * bodies.length;
+		for (DBody body : bodies) {
+			if (enabled[e++])
+				body.enable();
+			else
+				body.disable();
+			body.setPosition(kinematics[k], kinematics[k + 1], kinematics[k + 2]);
+			quaternion.set(kinematics[k + 3], kinematics[k + 4], kinematics[k + 5], kinematics[k + 6]);
+			body.setQuaternion(quaternion);
+			setExactRotation(body, k + 3);
+			body.setLinearVel(kinematics[k + 16], kinematics[k + 17], kinematics[k + 18]);
+			body.setAngularVel(kinematics[k + 19], kinematics[k + 20], kinematics[k + 21]);
+			k += STRIDE;
+		}
+		ball.setAftertouch(aftertouch[slot]);
+		ball.setStill(ballStill[slot]);
+		int p = slot * players.length;
+		for (int i = 0; i < players.length; i++, p++) {
+			Player player = players[i];
+			player.rewind((PlayerState) forcedStates[p], (PlayerState) states[p],
+					actions[p], tilts[p], grounded[p], still[p]);
+			if (player instanceof Goalkeeper)
+				((Goalkeeper) player).rewind((GoalkeeperState) gkStates[p]);
+		}
+		int s = selected[slot];
+		int sb = selectedB[slot];
+		game.rewind(tick, times[slot], s < 0 ? game.getSelected() : players[s], sb < 0 ? null : players[sb],
+				aftertouchB[slot], ballInside[slot], (GameState) gameStates[slot], (Position) throwIns[slot],
+				(BallZone) throwInZones[slot]);
+	}
+
+	// ODE normalises the quaternion again, which can change the last bit, so the body's own
+	// quaternion and rotation matrix are overwritten (the geometries have already been moved)
+	private void setExactRotation(DBody body, int k) {
+		DQuaternionC q = body.getQuaternion();
+		DMatrix3C r = body.getRotation();
+		if (!(q instanceof DQuaternion) || !(r instanceof DMatrix3))
+			return;
+		((DQuaternion) q).set(kinematics[k], kinematics[k + 1], kinematics[k + 2], kinematics[k + 3]);
+		DMatrix3 rotation = (DMatrix3) r;
+		k += 4;
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				rotation.set(i, j, kinematics[k++]);
+			}
+		}
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the oldest tick that can be restored
+	 */
+	public int getOldest() {
+		return oldest;
+	}
+
+	/**
+	 * @return the most recently captured tick
+	 */
+	public int getNewest() {
+		return newest;
+	}
+	// </editor-fold>
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.logging.Logger;
+import com.github.fommil.ff.Team;
+
+/**
+ * One peer of a two user match over UDP, using GGPO style rollback: the local user's input
+ * is applied immediately and the remote user's input is predicted to be unchanged.
+ * When the remote input arrives and contradicts a prediction, the game is restored from a
+ * {@link RewindBuffer} to the time step of the misprediction and the following time steps
+ * are re-simulated (without telling the {@link GameListener}s) before the next step.
+ * This relies on {@link GamePhysics} being deterministic.
+ * <p>
+ * The local user sets their input on the {@link GamePhysics} as normal (e.g. with a
+ * {@code KeyboardController}). Both peers must start from identical games, created with
+ * the same teams, pitch, seed and two users. Every datagram repeats all the local input
+ * that the remote peer has not acknowledged, so lost datagrams need not be resent.
+ * <p>
+ * If the remote input falls more than the prediction window behind, the game stalls.
+ * All methods must be called by the thread that is stepping the game.
+ *
+ * @author Samuel Halliday
+ * @see <a href="http://ggpo.net/">GGPO</a>
+ */
+public class RollbackSession {
+
+	private static final Logger log = Logger.getLogger(RollbackSession.class.getName());
+
+	private static final int MAGIC = 0x46464e54;
+
+	// magic, acknowledgement, first tick, count
+	private static final int HEADER = 4 + 4 + 4 + 2;
+
+	private static final int MAX_INPUTS = 64;
+
+	private static final int MASK = (1 << InputLog.TEAM_B_SHIFT) - 1;
+
+	private final GamePhysics game;
+
+	private final Team local;
+
+	private final int localShift, remoteShift;
+
+	private final double dt;
+
+	private final int window;
+
+	private final RewindBuffer rewind;
+
+	// the input of every time step, confirmed or predicted
+	private final InputLog inputs;
+
+	private final LinkSimulator link;
+
+	private final DatagramChannel channel;
+
+	private final SocketAddress remote;
+
+	// confirmed remote input, by time step
+	private final int[] remoteInputs;
+
+	// the remote input is confirmed for earlier time steps
+	private int confirmed;
+
+	// the remote peer has the local input for earlier time steps
+	private int acknowledged;
+
+	private final ByteBuffer in = ByteBuffer.allocate(HEADER + 2 * MAX_INPUTS);
+
+	private final ByteBuffer out = ByteBuffer.allocate(HEADER + 2 * MAX_INPUTS);
+
+	private long rollbacks, resimulated;
+
+	/**
+	 * @param game that has not been stepped
+	 * @param local the team played by the local user
+	 * @param dt in seconds, must be the same for both peers
+	 * @param window the most time steps that may be predicted
+	 * @param link for sending, its channel is used for receiving
+	 * @param remote the address of the other peer
+	 * @throws IOException
+	 */
+	public RollbackSession(GamePhysics game, Team local, double dt, int window, LinkSimulator link,
+			SocketAddress remote) throws IOException {
+		Preconditions.checkArgument(game.getSelectedB() != null, "game must have two users");
+		Preconditions.checkArgument(local == game.getTeamA() || local == game.getTeamB(), "not a team in the game");
+		Preconditions.checkArgument(dt > 0, dt);
+		Preconditions.checkArgument(window > 0, window);
+		Preconditions.checkNotNull(remote);
+		this.game = game;
+		this.local = local;
+		localShift = local == game.getTeamA() ? 0 : InputLog.TEAM_B_SHIFT;
+		remoteShift = InputLog.TEAM_B_SHIFT - localShift;
+		this.dt = dt;
+		this.window = window;
+		this.link = link;
+		this.remote = remote;
+		channel = link.getChannel();
+		channel.configureBlocking(false);
+		// a remote peer can only be a window ahead of the local input it has
+		remoteInputs = new int[2 * window + 2];
+		rewind = new RewindBuffer(game, window + 1);
+		inputs = new InputLog(game.getSeed());
+		game.replay(inputs);
+		rewind.capture();
+	}
+
+	/**
+	 * Take the next time step, unless the remote input is too far behind. Corrects any
+	 * mispredictions beforehand and sends the local input afterwards.
+	 *
+	 * @return true if the game was stepped, false if it stalled
+	 * @throws IOException
+	 */
+	public boolean advance() throws IOException {
+		receive();
+		int tick = game.getTick();
+		boolean step = tick + 1 - confirmed <= window;
+		if (step) {
+			int input = game.getUserInput(local) << localShift;
+			inputs.add(input | (getRemoteInput(tick) << remoteShift));
+			game.step(dt);
+			rewind.capture();
+		}
+		send();
+		return step;
+	}
+
+	/**
+	 * Exchange input and correct any mispredictions without taking a time step,
+	 * e.g. while paused or waiting for the remote peer to catch up.
+	 *
+	 * @throws IOException
+	 */
+	public void poll() throws IOException {
+		receive();
+		send();
+	}
+
+	// the confirmed remote input, or the prediction
+	private int getRemoteInput(int tick) {
+		if (tick < confirmed)
+			return remoteInputs[tick % remoteInputs.length];
+		if (confirmed == 0)
+			return 0;
+		return remoteInputs[(confirmed - 1) % remoteInputs.length];
+	}
+
+	private void receive() throws IOException {
+		link.flush();
+		int simulated = inputs.size();
+		int mispredicted = simulated;
+		for (;;) {
+			in.clear();
+			if (channel.receive(in) == null)
+				break;
+			in.flip();
+			if (in.remaining() < HEADER || in.getInt() != MAGIC) {
+				log.warning("ignoring unknown datagram");
+				continue;
+			}
+			int ack = in.getInt();
+			int first = in.getInt();
+			int count = in.getShort() & 0xFFFF;
+			if (ack < 0 || first < 0 || count > in.remaining() / 2) {
+				log.warning("ignoring corrupt datagram");
+				continue;
+			}
+			acknowledged = Math.max(acknowledged, Math.min(ack, simulated));
+			for (int i = 0; i < count; i++) {
+				int tick = first + i;
+				int input = in.getShort() & MASK;
+				// duplicates, or after a lost datagram
+				if (tick != confirmed || tick > simulated + window)
+					continue;
+				if (tick < simulated && input != ((inputs.get(tick) >>> remoteShift) & MASK))
+					mispredicted = Math.min(mispredicted, tick);
+				remoteInputs[tick % remoteInputs.length] = input;
+				confirmed++;
+			}
+		}
+		if (mispredicted < simulated)
+			rollback(mispredicted, simulated);
+	}
+
+	private void rollback(int from, int to) {
+		rewind.restore(from);
+		game.setMuted(true);
+		try {
+			for (int tick = from; tick < to; tick++) {
+				int input = inputs.get(tick) & (MASK << localShift);
+				inputs.set(tick, input | (getRemoteInput(tick) << remoteShift));
+				game.step(dt);
+				rewind.capture();
+			}
+		} finally {
+			game.setMuted(false);
+		}
+		rollbacks++;
+		resimulated += to - from;
+	}
+
+	private void send() throws IOException {
+		int first = acknowledged;
+		int count = Math.min(inputs.size() - first, MAX_INPUTS);
+		out.clear();
+		out.putInt(MAGIC);
+		out.putInt(confirmed);
+		out.putInt(first);
+		out.putShort((short) count);
+		for (int i = 0; i < count; i++) {
+			out.putShort((short) (inputs.get(first + i) >>> localShift));
+		}
+		out.flip();
+		link.send(out, remote);
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public GamePhysics getGame() {
+		return game;
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	/**
+	 * @return the input of every time step, which is final before {@link #getConfirmed()}
+	 */
+	public InputLog getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * @return the number of time steps for which the remote input has been received
+	 */
+	public int getConfirmed() {
+		return confirmed;
+	}
+
+	/**
+	 * @return the number of mispredictions that have been corrected
+	 */
+	public long getRollbacks() {
+		return rollbacks;
+	}
+
+	/**
+	 * @return the number of time steps that have been re-simulated
+	 */
+	public long getResimulated() {
+		return resimulated;
+	}
+	// </editor-fold>
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import org.ode4j.math.DQuaternion;
+import org.ode4j.math.DVector3;
+
+/**
+ * Reusable temporaries for the vector and matrix arithmetic of the bodies in a
+ * {@link Physics}, so that controlling the bodies on every time step does not allocate.
+ * <p>
+ * Temporaries are taken as a stack: a method takes a {@link #mark()}, uses as many
+ * {@link #vector()} and {@link #quaternion()} as it needs and then {@link #release(int)}s them,
+ * normally in a {@code finally} block. The contents of a new temporary are undefined and
+ * it must not be kept after the release, e.g. by storing it in a field.
+ * <p>
+ * Not thread safe: only the thread that steps the {@link Physics} may use it.
+ *
+ * @author Samuel Halliday
+ */
+class Scratch {
+
+	private static final int CAPACITY = 16;
+
+	private final DVector3[] vectors = new DVector3[CAPACITY];
+
+	private final DQuaternion[] quaternions = new DQuaternion[CAPACITY];
+
+	private int nextVector, nextQuaternion;
+
+	Scratch() {
+		for (int i = 0; i < CAPACITY; i++) {
+			vectors[i] = new DVector3();
+			quaternions[i] = new DQuaternion();
+		}
+	}
+
+	/**
+	 * @return to be passed to {@link #release(int)}
+	 */
+	int mark() {
+		return nextVector << 16 | nextQuaternion;
+	}
+
+	/**
+	 * Make every temporary that was taken since the mark available again.
+	 *
+	 * @param mark
+	 */
+	void release(int mark) {
+		int vector = mark >>> 16;
+		int quaternion = mark & 0xFFFF;
+		Preconditions.checkArgument(vector <= nextVector && quaternion <= nextQuaternion, "released out of order");
+		nextVector = vector;
+		nextQuaternion = quaternion;
+	}
+
+	DVector3 vector() {
+		Preconditions.checkState(nextVector < CAPACITY, "too many vectors");
+		return vectors[nextVector++];
+	}
+
+	DVector3 vector(double x, double y, double z) {
+		DVector3 vector = vector();
+		vector.set(x, y, z);
+		return vector;
+	}
+
+	DQuaternion quaternion() {
+		Preconditions.checkState(nextQuaternion < CAPACITY, "too many quaternions");
+		return quaternions[nextQuaternion++];
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.logging.Logger;
+import com.github.fommil.ff.physics.Player.PlayerState;
+import static com.github.fommil.ff.physics.SpectatorServer.*;
+
+/**
+ * Watches a match that is broadcast by a {@link SpectatorServer}. The channel is
+ * non-blocking, so that many clients can share a {@link java.nio.channels.Selector}:
+ * {@link #receive()} decodes whatever has arrived and acknowledges the latest snapshot.
+ * <p>
+ * The accessors describe the latest snapshot. Instances are not thread safe.
+ *
+ * @author Samuel Halliday
+ */
+public class SpectatorClient {
+
+	private static final Logger log = Logger.getLogger(SpectatorClient.class.getName());
+
+	private static final PlayerState[] STATES = PlayerState.values();
+
+	private final DatagramChannel channel;
+
+	private final SocketAddress server;
+
+	private final ByteBuffer in = ByteBuffer.allocate(MAX_DATAGRAM);
+
+	private final ByteBuffer out = ByteBuffer.allocate(JOIN_SIZE);
+
+	// echoed back to the server to join, as received in its challenge
+	private long cookie;
+
+	private int[] teams, shirts;
+
+	private boolean[] goalkeepers;
+
+	// decoded snapshots that may be used as a baseline
+	private int[][] history;
+
+	private final int[] sequences = new int[HISTORY];
+
+	private int sequence = FULL;
+
+	private long datagrams, bytes;
+
+	/**
+	 * Sends a request to join, which should be repeated with {@link #join()} if nothing is
+	 * received. The server's challenge is answered by {@link #receive()}.
+	 *
+	 * @param channel
+	 * @param server
+	 * @throws IOException
+	 */
+	public SpectatorClient(DatagramChannel channel, SocketAddress server) throws IOException {
+		Preconditions.checkNotNull(channel);
+		Preconditions.checkNotNull(server);
+		this.channel = channel;
+		this.server = server;
+		channel.configureBlocking(false);
+		join();
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	public void join() throws IOException {
+		out.clear();
+		out.putInt(MAGIC);
+		out.putInt(FULL);
+		out.putLong(cookie);
+		out.flip();
+		channel.send(out, server);
+	}
+
+	private void acknowledge(int acknowledged) throws IOException {
+		out.clear();
+		out.putInt(MAGIC);
+		out.putInt(acknowledged);
+		out.flip();
+		channel.send(out, server);
+	}
+
+	/**
+	 * @return true if there is a new snapshot
+	 * @throws IOException
+	 */
+	public boolean receive() throws IOException {
+		int before = sequence;
+		for (;;) {
+			in.clear();
+			if (channel.receive(in) == null)
+				break;
+			in.flip();
+			datagrams++;
+			bytes += in.limit();
+			if (in.remaining() == JOIN_SIZE && in.getInt(0) == MAGIC && in.getInt(4) == CHALLENGE) {
+				cookie = in.getLong(8);
+				join();
+				continue;
+			}
+			if (in.remaining() < 17 || in.getInt() != MAGIC)
+				continue;
+			try {
+				decode();
+			} catch (BufferUnderflowException e) {
+				log.warning("ignoring truncated snapshot");
+			}
+		}
+		if (sequence == before)
+			return false;
+		acknowledge(sequence);
+		return true;
+	}
+
+	private void decode() {
+		int next = in.getInt();
+		int baseline = in.getInt();
+		if (next <= sequence)
+			return;
+		int[] previous = null;
+		if (baseline != FULL) {
+			if (history == null || sequences[baseline % HISTORY] != baseline) {
+				log.fine("missing baseline " + baseline);
+				return;
+			}
+			previous = history[baseline % HISTORY];
+		}
+		int tick = in.getInt();
+		int selected = in.get();
+		if (baseline == FULL)
+			readRoster();
+		// until it has been completely decoded
+		sequences[next % HISTORY] = FULL;
+		int[] current = history[next % HISTORY];
+		current[0] = tick;
+		current[1] = selected;
+		int entities = 1 + shirts.length;
+		int masks = in.position();
+		in.position(masks + (entities + 1) / 2);
+		for (int e = 0; e < entities; e++) {
+			int mask = in.get(masks + e / 2) >> (4 * (e % 2));
+			int i = HEADER + e * FIELDS;
+			for (int field = 0; field < FIELDS; field++) {
+				int base = previous == null ? 0 : previous[i + field];
+				if ((mask & (1 << field)) == 0)
+					current[i + field] = base;
+				else if (field == POSE)
+					current[i + field] = in.getShort() & 0xFFFF;
+				else
+					current[i + field] = base + getVarInt(in);
+			}
+		}
+		sequences[next % HISTORY] = next;
+		sequence = next;
+	}
+
+	private void readRoster() {
+		int players = in.get() & 0xFF;
+		if (shirts != null && shirts.length == players) {
+			in.position(in.position() + players);
+			return;
+		}
+		teams = new int[players];
+		shirts = new int[players];
+		goalkeepers = new boolean[players];
+		for (int i = 0; i < players; i++) {
+			int b = in.get() & 0xFF;
+			teams[i] = b >> 7;
+			goalkeepers[i] = (b & 0x40) != 0;
+			shirts[i] = b & 0x3F;
+		}
+		history = new int[HISTORY][HEADER + (1 + players) * FIELDS];
+		for (int i = 0; i < HISTORY; i++) {
+			sequences[i] = FULL;
+		}
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="SNAPSHOT ACCESSORS">
+	private int[] current() {
+		Preconditions.checkState(sequence != FULL, "no snapshot has been received");
+		return history[sequence % HISTORY];
+	}
+
+	public int getSequence() {
+		return sequence;
+	}
+
+	public int getTick() {
+		return current()[0];
+	}
+
+	/**
+	 * @return the index of the selected player
+	 */
+	public int getSelected() {
+		return current()[1];
+	}
+
+	public double getBallX() {
+		return position(0, 0);
+	}
+
+	public double getBallY() {
+		return position(0, 1);
+	}
+
+	public double getBallZ() {
+		return position(0, 2);
+	}
+
+	/**
+	 * @param i player index
+	 * @return
+	 */
+	public double getPlayerX(int i) {
+		return position(i + 1, 0);
+	}
+
+	public double getPlayerY(int i) {
+		return position(i + 1, 1);
+	}
+
+	public double getPlayerZ(int i) {
+		return position(i + 1, 2);
+	}
+
+	public PlayerState getPlayerState(int i) {
+		return STATES[current()[HEADER + (i + 1) * FIELDS + POSE] >> 8];
+	}
+
+	/**
+	 * @param i
+	 * @return the angle relative to NORTH {@code (- PI, + PI]}.
+	 */
+	public double getPlayerDirection(int i) {
+		int direction = (byte) current()[HEADER + (i + 1) * FIELDS + POSE];
+		// half a turn is PI, not - PI
+		return (direction == -128 ? 128 : direction) / DIRECTION_SCALE;
+	}
+
+	private double position(int entity, int field) {
+		return current()[HEADER + entity * FIELDS + field] / POSITION_SCALE;
+	}
+	// </editor-fold>
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public DatagramChannel getChannel() {
+		return channel;
+	}
+
+	public int getPlayers() {
+		current();
+		return shirts.length;
+	}
+
+	/**
+	 * @param i
+	 * @return 0 for team A, 1 for team B
+	 */
+	public int getTeam(int i) {
+		return teams[i];
+	}
+
+	public int getShirt(int i) {
+		return shirts[i];
+	}
+
+	public boolean isGoalkeeper(int i) {
+		return goalkeepers[i];
+	}
+
+	/**
+	 * @return the number of datagrams received
+	 */
+	public long getDatagrams() {
+		return datagrams;
+	}
+
+	/**
+	 * @return the number of bytes received, excluding the UDP and IP headers
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+	// </editor-fold>
+}
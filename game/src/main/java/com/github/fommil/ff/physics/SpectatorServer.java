@@ -0,0 +1,493 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Broadcasts a live {@link GamePhysics} to read-only {@link SpectatorClient}s over UDP.
+ * <p>
+ * The thread that steps the game calls {@link #publish()}, which quantizes every
+ * {@code ticksPerSnapshot} time steps into a pre-allocated frame and hands it over without
+ * waiting. The frames are sent by another thread running {@link #run()}, with a non-blocking
+ * channel, so a slow or dead spectator never holds up the game: datagrams that do not fit
+ * in the socket buffer are dropped.
+ * <p>
+ * Each spectator acknowledges the snapshots that it receives and is sent the difference
+ * from the last one that it acknowledged, or a full snapshot if that is too old. Positions
+ * are in centimetres and the state and direction of a player are packed into one
+ * {@code short}. Spectators with the same baseline share the same encoded datagram, so
+ * the cost of encoding does not grow with the audience.
+ * <p>
+ * Snapshot layout (big endian):
+ * <pre>
+ * MAGIC, sequence, baseline (or FULL), tick, selected (byte), [players, roster (byte)*], masks, fields
+ * </pre>
+ * where the masks are a nibble per entity (the ball and then every player) of which of
+ * {@code x, y, z, pose} changed from the baseline, followed by the changed fields: zig-zag
+ * varint deltas of the positions and the absolute pose. A full snapshot is the difference
+ * from zero and also has the roster: {@code team << 7 | goalkeeper << 6 | shirt}.
+ * <p>
+ * To join, a spectator sends {@code MAGIC, FULL, cookie (long)} and is answered with
+ * {@code MAGIC, CHALLENGE, cookie}, a keyed hash of its address, which it must echo back
+ * before it is sent any snapshots. The answer is no bigger than the request, so the
+ * server cannot be used to flood a spoofed address, and the number of spectators is
+ * capped. Spectators then send {@code MAGIC, acknowledged sequence} to acknowledge.
+ *
+ * @author Samuel Halliday
+ */
+public class SpectatorServer implements Runnable, Closeable {
+
+	private static final Logger log = Logger.getLogger(SpectatorServer.class.getName());
+
+	static final int MAGIC = 0x46465350; // FFSP
+
+	static final int FULL = -1;
+
+	static final int CHALLENGE = -2;
+
+	// MAGIC, FULL or CHALLENGE, cookie
+	static final int JOIN_SIZE = 16;
+
+	static final int MAX_SPECTATORS = 1024;
+
+	// snapshots that may be used as a baseline
+	static final int HISTORY = 32;
+
+	static final int FIELDS = 4;
+
+	static final int POSE = 3;
+
+	// tick, selected
+	static final int HEADER = 2;
+
+	static final double POSITION_SCALE = 100;
+
+	static final double DIRECTION_SCALE = 256 / (2 * Math.PI);
+
+	static final int MAX_DATAGRAM = 1024;
+
+	private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+	private static class Spectator {
+
+		private final SocketAddress address;
+
+		private int acknowledged = FULL;
+
+		private long heard;
+
+		// has not been sent anything yet
+		private boolean joined = true;
+
+		Spectator(SocketAddress address) {
+			this.address = address;
+		}
+	}
+
+	private final GamePhysics game;
+
+	private final DatagramChannel channel;
+
+	private final Selector selector;
+
+	private final int ticksPerSnapshot;
+
+	private final List<Player> players;
+
+	private final byte[] roster;
+
+	private final int maxSpectators;
+
+	// keyed with a secret, so that the cookies cannot be predicted
+	private final HashFunction cookies;
+
+	// owned by the game thread
+
+	private final TripleBuffer<int[]> frames;
+
+	// owned by the network thread
+
+	private final Map<SocketAddress, Spectator> spectators = Maps.newHashMap();
+
+	private final int[][] history;
+
+	private int sequence = -1, lastTick = -1;
+
+	// by baseline slot, then the full snapshot, valid for the current sequence
+	private final ByteBuffer[] encoded = new ByteBuffer[HISTORY + 1];
+
+	private final boolean[] encodedValid = new boolean[HISTORY + 1];
+
+	private final ByteBuffer in = ByteBuffer.allocate(64);
+
+	private final ByteBuffer challenge = ByteBuffer.allocate(JOIN_SIZE);
+
+	private volatile boolean running = true;
+
+	private volatile long sent, bytes, dropped, encodings, refused;
+
+	/**
+	 * @param game
+	 * @param channel bound to the address the spectators send to
+	 * @param ticksPerSnapshot
+	 * @throws IOException
+	 */
+	public SpectatorServer(GamePhysics game, DatagramChannel channel, int ticksPerSnapshot) throws IOException {
+		this(game, channel, ticksPerSnapshot, MAX_SPECTATORS);
+	}
+
+	/**
+	 * @param game
+	 * @param channel bound to the address the spectators send to
+	 * @param ticksPerSnapshot
+	 * @param maxSpectators further requests to join are ignored
+	 * @throws IOException
+	 */
+	public SpectatorServer(GamePhysics game, DatagramChannel channel, int ticksPerSnapshot, int maxSpectators) throws IOException {
+		Preconditions.checkNotNull(game);
+		Preconditions.checkNotNull(channel);
+		Preconditions.checkArgument(ticksPerSnapshot > 0, ticksPerSnapshot);
+		Preconditions.checkArgument(maxSpectators > 0, maxSpectators);
+		this.game = game;
+		this.channel = channel;
+		this.ticksPerSnapshot = ticksPerSnapshot;
+		this.maxSpectators = maxSpectators;
+		SecureRandom random = new SecureRandom();
+		cookies = Hashing.sipHash24(random.nextLong(), random.nextLong());
+		players = Lists.newArrayList(game.getPlayers());
+		Preconditions.checkArgument(players.size() < 128, "too many players");
+		roster = new byte[players.size()];
+		for (int i = 0; i < roster.length; i++) {
+			Player player = players.get(i);
+			int team = player.getTeam() == game.getTeamA() ? 0 : 1;
+			int goalkeeper = player instanceof Goalkeeper ? 1 : 0;
+			roster[i] = (byte) (team << 7 | goalkeeper << 6 | player.getShirt());
+		}
+		int size = HEADER + (1 + players.size()) * FIELDS;
+		frames = new TripleBuffer<int[]>(new int[size], new int[size], new int[size]);
+		history = new int[HISTORY][size];
+		for (int i = 0; i < encoded.length; i++) {
+			encoded[i] = ByteBuffer.allocate(MAX_DATAGRAM);
+		}
+		channel.configureBlocking(false);
+		selector = Selector.open();
+		channel.register(selector, SelectionKey.OP_READ);
+		quantize(frames.getBack());
+		frames.publish();
+	}
+
+	/**
+	 * Must be called by the game thread after every time step, never blocks.
+	 */
+	public void publish() {
+		if (game.getTick() % ticksPerSnapshot != 0)
+			return;
+		quantize(frames.getBack());
+		frames.publish();
+		selector.wakeup();
+	}
+
+	private void quantize(int[] frame) {
+		frame[0] = game.getTick();
+		frame[1] = players.indexOf(game.getSelected());
+		Ball ball = game.getBall();
+		int i = HEADER;
+		frame[i] = position(ball.getX());
+		frame[i + 1] = position(ball.getY());
+		frame[i + 2] = position(ball.getZ());
+		for (Player player : players) {
+			i += FIELDS;
+			frame[i] = position(player.getX());
+			frame[i + 1] = position(player.getY());
+			frame[i + 2] = position(player.getZ());
+			int direction = (int) Math.round(player.getDirection() * DIRECTION_SCALE) & 0xFF;
+			frame[i + POSE] = player.getState().ordinal() << 8 | direction;
+		}
+	}
+
+	private int position(double value) {
+		return (int) Math.round(value * POSITION_SCALE);
+	}
+
+	/**
+	 * Sends the snapshots until {@link #close()}.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				selector.select(1000);
+				selector.selectedKeys().clear();
+				service();
+			}
+		} catch (ClosedSelectorException e) {
+			// closed
+		} catch (IOException e) {
+			if (running)
+				log.log(Level.WARNING, "spectator server failed", e);
+		}
+	}
+
+	/**
+	 * Receive the acknowledgements and send the latest snapshot, if it is new.
+	 *
+	 * @throws IOException
+	 */
+	void service() throws IOException {
+		long now = System.nanoTime();
+		int joined = receive(now);
+		int[] frame = frames.getFront();
+		boolean fresh = frame[0] != lastTick;
+		if (fresh) {
+			lastTick = frame[0];
+			sequence++;
+			System.arraycopy(frame, 0, history[sequence % HISTORY], 0, frame.length);
+			Arrays.fill(encodedValid, false);
+		} else if (joined == 0 || sequence < 0)
+			return;
+
+		Iterator<Spectator> it = spectators.values().iterator();
+		while (it.hasNext()) {
+			Spectator spectator = it.next();
+			if (now - spectator.heard > TIMEOUT) {
+				it.remove();
+				continue;
+			}
+			// new spectators are sent the latest snapshot immediately
+			if (!fresh && !spectator.joined)
+				continue;
+			spectator.joined = false;
+			int baseline = spectator.acknowledged;
+			if (baseline != FULL && (baseline >= sequence || sequence - baseline >= HISTORY))
+				baseline = FULL;
+			ByteBuffer datagram = getEncoded(baseline);
+			datagram.rewind();
+			if (channel.send(datagram, spectator.address) == 0) {
+				dropped++;
+			} else {
+				sent++;
+				bytes += datagram.limit();
+			}
+		}
+	}
+
+	// returns the number of new spectators
+	private int receive(long now) throws IOException {
+		int joined = 0;
+		for (;;) {
+			in.clear();
+			SocketAddress address = channel.receive(in);
+			if (address == null)
+				return joined;
+			in.flip();
+			if (in.remaining() < 8 || in.getInt() != MAGIC)
+				continue;
+			int acknowledged = in.getInt();
+			Spectator spectator = spectators.get(address);
+			if (spectator == null) {
+				if (acknowledged != FULL || in.remaining() < 8)
+					continue;
+				long cookie = getCookie(address);
+				if (in.getLong() != cookie) {
+					challenge(address, cookie);
+					continue;
+				}
+				if (spectators.size() >= maxSpectators) {
+					refused++;
+					continue;
+				}
+				spectator = new Spectator(address);
+				spectators.put(address, spectator);
+				joined++;
+			}
+			spectator.heard = now;
+			if (acknowledged == FULL || acknowledged > spectator.acknowledged && acknowledged <= sequence)
+				spectator.acknowledged = acknowledged;
+		}
+	}
+
+	private long getCookie(SocketAddress address) {
+		InetSocketAddress inet = (InetSocketAddress) address;
+		return cookies.newHasher()
+				.putBytes(inet.getAddress().getAddress())
+				.putInt(inet.getPort())
+				.hash().asLong();
+	}
+
+	// the same size as the request, so there is no amplification
+	private void challenge(SocketAddress address, long cookie) throws IOException {
+		challenge.clear();
+		challenge.putInt(MAGIC);
+		challenge.putInt(CHALLENGE);
+		challenge.putLong(cookie);
+		challenge.flip();
+		channel.send(challenge, address);
+	}
+
+	private ByteBuffer getEncoded(int baseline) {
+		int slot = baseline == FULL ? HISTORY : baseline % HISTORY;
+		ByteBuffer out = encoded[slot];
+		if (!encodedValid[slot]) {
+			encode(out, baseline);
+			encodedValid[slot] = true;
+			encodings++;
+		}
+		return out;
+	}
+
+	private void encode(ByteBuffer out, int baseline) {
+		int[] current = history[sequence % HISTORY];
+		int[] previous = baseline == FULL ? null : history[baseline % HISTORY];
+		out.clear();
+		out.putInt(MAGIC);
+		out.putInt(sequence);
+		out.putInt(baseline);
+		out.putInt(current[0]);
+		out.put((byte) current[1]);
+		if (baseline == FULL) {
+			out.put((byte) roster.length);
+			out.put(roster);
+		}
+		int entities = 1 + roster.length;
+		int masks = out.position();
+		for (int e = 0; e < entities; e += 2) {
+			out.put((byte) 0);
+		}
+		for (int e = 0; e < entities; e++) {
+			int i = HEADER + e * FIELDS;
+			int mask = 0;
+			for (int field = 0; field < FIELDS; field++) {
+				int value = current[i + field];
+				int base = previous == null ? 0 : previous[i + field];
+				if (value == base)
+					continue;
+				mask |= 1 << field;
+				if (field == POSE)
+					out.putShort((short) value);
+				else
+					putVarInt(out, value - base);
+			}
+			int m = masks + e / 2;
+			out.put(m, (byte) (out.get(m) | mask << (4 * (e % 2))));
+		}
+		out.flip();
+	}
+
+	// zig-zag, so small negative numbers are also short
+	static void putVarInt(ByteBuffer out, int value) {
+		int zigzag = (value << 1) ^ (value >> 31);
+		while ((zigzag & ~0x7F) != 0) {
+			out.put((byte) ((zigzag & 0x7F) | 0x80));
+			zigzag >>>= 7;
+		}
+		out.put((byte) zigzag);
+	}
+
+	static int getVarInt(ByteBuffer in) {
+		int zigzag = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = in.get();
+			zigzag |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				break;
+		}
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+
+	/**
+	 * Stops {@link #run()}, the channel is not closed.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		selector.close();
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	public int getTicksPerSnapshot() {
+		return ticksPerSnapshot;
+	}
+
+	/**
+	 * @return the number of spectators, only accurate on the network thread
+	 */
+	public int getSpectators() {
+		return spectators.size();
+	}
+
+	/**
+	 * @return the number of datagrams sent
+	 */
+	public long getSent() {
+		return sent;
+	}
+
+	/**
+	 * @return the number of bytes sent, excluding the UDP and IP headers
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of datagrams that did not fit in the socket buffer
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return the number of times that a snapshot was encoded
+	 */
+	public long getEncodings() {
+		return encodings;
+	}
+
+	public int getMaxSpectators() {
+		return maxSpectators;
+	}
+
+	/**
+	 * @return the number of requests to join that were ignored because the server was full
+	 */
+	public long getRefused() {
+		return refused;
+	}
+	// </editor-fold>
+}
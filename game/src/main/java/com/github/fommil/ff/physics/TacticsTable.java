@@ -0,0 +1,93 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import com.github.fommil.ff.Direction;
+import com.github.fommil.ff.Pitch;
+import com.github.fommil.ff.Tactics;
+import com.github.fommil.ff.Tactics.PlayerZone;
+
+/**
+ * The positions on the pitch that {@link Tactics} send each outfield player to, for every
+ * zone that the ball may be in, precomputed for one team so that moving the players
+ * does not look up or allocate anything.
+ *
+ * @author Samuel Halliday
+ */
+class TacticsTable {
+
+	private static final int BALL_ZONES = 35, SHIRTS = 10;
+
+	private final Tactics tactics;
+
+	private final int version;
+
+	// indexed by ball zone and shirt
+	private final double[] xs = new double[BALL_ZONES * SHIRTS], ys = new double[BALL_ZONES * SHIRTS];
+
+	/**
+	 * @param tactics
+	 * @param pitch
+	 * @param facing
+	 */
+	TacticsTable(Tactics tactics, Pitch pitch, Direction facing) {
+		Preconditions.checkNotNull(tactics);
+		Preconditions.checkNotNull(facing);
+		this.tactics = tactics;
+		version = tactics.getVersion();
+		Position lower = pitch.getPitchLowerLeft();
+		Position upper = pitch.getPitchUpperRight();
+		for (int bz = 0; bz < BALL_ZONES; bz++) {
+			for (int shirt = 2; shirt < 12; shirt++) {
+				int packed = tactics.getPackedZone(bz, shirt, facing);
+				int i = bz * SHIRTS + shirt - 2;
+				if (packed < 0) {
+					xs[i] = Double.NaN;
+					ys[i] = Double.NaN;
+				} else {
+					xs[i] = PlayerZone.getCentreX(packed >> 4, lower, upper);
+					ys[i] = PlayerZone.getCentreY(packed & 0xF, lower, upper);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param current
+	 * @return true if this was built from the given tactics, and they have not changed since
+	 */
+	boolean isCurrent(Tactics current) {
+		return current == tactics && current.getVersion() == version;
+	}
+
+	/**
+	 * @param ballZone as {@link Tactics.BallZone#getIndex()}
+	 * @param shirt
+	 * @return the x coordinate, or {@code NaN} if the tactics do not define a zone
+	 */
+	double getX(int ballZone, int shirt) {
+		return xs[ballZone * SHIRTS + shirt - 2];
+	}
+
+	/**
+	 * @param ballZone as {@link Tactics.BallZone#getIndex()}
+	 * @param shirt
+	 * @return the y coordinate, or {@code NaN} if the tactics do not define a zone
+	 */
+	double getY(int ballZone, int shirt) {
+		return ys[ballZone * SHIRTS + shirt - 2];
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.Closeable;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs many periodic tasks, e.g. stepping matches, at their own fixed rates on a small pool
+ * of threads. The task with the earliest deadline always runs next, so when the threads
+ * fall behind every task is delayed by the same amount rather than some being starved.
+ * A task never runs concurrently with itself, and a task that falls more than
+ * {@code maxLag} periods behind skips the missed ticks. A task that throws is logged and
+ * never run again, so a task should handle its own failures.
+ * <p>
+ * The lateness of every tick (from its deadline to when it started) is recorded, in
+ * microseconds, in {@link #getLateness()}.
+ *
+ * @author Samuel Halliday
+ */
+public class TickScheduler implements Closeable {
+
+	private static final Logger log = Logger.getLogger(TickScheduler.class.getName());
+
+	private static class Task implements Comparable<Task> {
+
+		private final Runnable runnable;
+
+		private final long period;
+
+		private long deadline;
+
+		Task(Runnable runnable, long period, long deadline) {
+			this.runnable = runnable;
+			this.period = period;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public int compareTo(Task other) {
+			long diff = deadline - other.deadline;
+			return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+		}
+	}
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition changed = lock.newCondition();
+
+	private final PriorityQueue<Task> queue = new PriorityQueue<Task>();
+
+	private final List<Thread> threads = Lists.newArrayList();
+
+	private final int maxLag;
+
+	private final Histogram lateness = new Histogram();
+
+	private volatile boolean running = true;
+
+	/**
+	 * @param threads
+	 * @param maxLag in periods
+	 */
+	public TickScheduler(int threads, int maxLag) {
+		Preconditions.checkArgument(threads > 0, threads);
+		Preconditions.checkArgument(maxLag > 0, maxLag);
+		this.maxLag = maxLag;
+		for (int i = 0; i < threads; i++) {
+			Thread thread = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					work();
+				}
+			}, "ticks-" + i);
+			thread.setDaemon(true);
+			this.threads.add(thread);
+			thread.start();
+		}
+	}
+
+	/**
+	 * @param runnable called once per period, starting now
+	 * @param period
+	 * @param unit
+	 */
+	public void schedule(Runnable runnable, long period, TimeUnit unit) {
+		Preconditions.checkNotNull(runnable);
+		Preconditions.checkArgument(period > 0, period);
+		Task task = new Task(runnable, unit.toNanos(period), System.nanoTime());
+		lock.lock();
+		try {
+			queue.add(task);
+			changed.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void work() {
+		while (running) {
+			Task task;
+			lock.lock();
+			try {
+				task = queue.peek();
+				if (task == null) {
+					changed.await();
+					continue;
+				}
+				long wait = task.deadline - System.nanoTime();
+				if (wait > 0) {
+					changed.awaitNanos(wait);
+					continue;
+				}
+				queue.remove();
+			} catch (InterruptedException e) {
+				continue;
+			} finally {
+				lock.unlock();
+			}
+
+			long start = System.nanoTime();
+			lateness.record(TimeUnit.NANOSECONDS.toMicros(start - task.deadline));
+			try {
+				task.runnable.run();
+			} catch (RuntimeException e) {
+				log.log(Level.WARNING, "dropping task", e);
+				continue;
+			}
+			task.deadline += task.period;
+			if (start - task.deadline > maxLag * task.period)
+				task.deadline = start;
+
+			lock.lock();
+			try {
+				queue.add(task);
+				changed.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Stops the threads, waiting for running tasks to finish.
+	 */
+	@Override
+	public void close() {
+		running = false;
+		for (Thread thread : threads) {
+			thread.interrupt();
+		}
+		for (Thread thread : threads) {
+			Uninterruptibles.joinUninterruptibly(thread);
+		}
+	}
+
+	// <editor-fold defaultstate="collapsed" desc="BOILERPLATE GETTERS/SETTERS">
+	/**
+	 * @return from each deadline to the start of its tick, in microseconds
+	 */
+	public Histogram getLateness() {
+		return lateness;
+	}
+	// </editor-fold>
+}
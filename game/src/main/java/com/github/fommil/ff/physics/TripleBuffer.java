@@ -0,0 +1,78 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Preconditions;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free hand over of pre-allocated buffers from one writer thread to one reader thread.
+ * The writer fills {@link #getBack()} and {@link #publish()}es it, the reader takes the
+ * latest published buffer with {@link #getFront()}. Neither ever waits for the other and a
+ * buffer is never written while it is being read.
+ * <p>
+ * The reader must be finished with a front buffer before it calls {@link #getFront()} again.
+ *
+ * @author Samuel Halliday
+ */
+final class TripleBuffer<T> {
+
+	// set on the middle index when it has been published but not yet read
+	private static final int FRESH = 4;
+
+	private static final int INDEX = 3;
+
+	private final Object[] buffers;
+
+	// owned by the writer
+	private int back = 0;
+
+	// owned by the reader
+	private int front = 1;
+
+	private final AtomicInteger middle = new AtomicInteger(2);
+
+	TripleBuffer(T first, T second, T third) {
+		Preconditions.checkNotNull(first);
+		Preconditions.checkNotNull(second);
+		Preconditions.checkNotNull(third);
+		buffers = new Object[]{first, second, third};
+	}
+
+	/**
+	 * @return the buffer to be written, only to be called by the writer
+	 */
+	@SuppressWarnings("unchecked")
+	T getBack() {
+		return (T) buffers[back];
+	}
+
+	/**
+	 * Make the back buffer available to the reader and start a new one.
+	 */
+	void publish() {
+		back = middle.getAndSet(back | FRESH) & INDEX;
+	}
+
+	/**
+	 * @return the most recently published buffer, only to be called by the reader
+	 */
+	@SuppressWarnings("unchecked")
+	T getFront() {
+		if ((middle.get() & FRESH) != 0)
+			front = middle.getAndSet(front) & INDEX;
+		return (T) buffers[front];
+	}
+}
@@ -25,7 +25,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -46,9 +46,19 @@ public class SoundParser {
 
 	private static final Logger log = Logger.getLogger(SoundParser.class.getName());
 
-	private static final Map<Fx, byte[]> fxCache = Maps.newEnumMap(Fx.class);
+	private final File swos;
 
-	private static final Map<Fx, Date> playing = Maps.newEnumMap(Fx.class);
+	private final ConcurrentMap<Fx, byte[]> fxCache = Maps.newConcurrentMap();
+
+	private final ConcurrentMap<Fx, Date> playing = Maps.newConcurrentMap();
+
+	/**
+	 * @param swos the SWOS installation directory
+	 */
+	public SoundParser(File swos) {
+		Preconditions.checkNotNull(swos);
+		this.swos = swos;
+	}
 
 	/**
 	 * @param fx
@@ -58,13 +68,12 @@ public class SoundParser {
 	 * @deprecated because this is a hack
 	 */
 	@Deprecated
-	public static void play(final Fx fx) {
+	public void play(final Fx fx) {
 		Preconditions.checkNotNull(fx);
 
-		if (playing.containsKey(fx))
+		if (playing.putIfAbsent(fx, new Date()) != null)
 			return;
 
-		playing.put(fx, new Date());
 		Thread player = new Thread(new Runnable() {
 
 			@Override
@@ -73,10 +82,10 @@ public class SoundParser {
 					byte[] bytes;
 					if (!fxCache.containsKey(fx)) {
 						String filename = fx.getFilename();
-						File file = new File(Main.SWOS + filename);
+						File file = new File(swos + filename);
 						Preconditions.checkArgument(file.exists());
 						bytes = SwosUtils.getBytes(file);
-						fxCache.put(fx, bytes);
+						fxCache.putIfAbsent(fx, bytes);
 					} else {
 						bytes = fxCache.get(fx);
 					}
@@ -97,6 +106,7 @@ public class SoundParser {
 					clip.drain();
 				} catch (Exception e) {
 					log.warning(fx.getFilename());
+					playing.remove(fx);
 				}
 			}
 		});
@@ -220,10 +230,11 @@ public class SoundParser {
 	 */
 	public static final void main(String[] args) throws Exception {
 
+		SoundParser parser = new SoundParser(Main.SWOS);
 		//for (String filename : Commentary.END_GAME.getFilenames()) {
 		for (Fx fx : Fx.values()) {
 			System.out.println(fx.name());
-			play(fx);
+			parser.play(fx);
 		}
 	}
 }
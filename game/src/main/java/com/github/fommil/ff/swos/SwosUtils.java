@@ -108,11 +108,17 @@ public final class SwosUtils {
 	public static byte[] intsToUnsignedBytes(int[] sprite) {
 		throw new UnsupportedOperationException("Not yet implemented");
 	}
-	/* lazy initialisation */
+	/* lazy initialisation, thread safe by the class loader */
 
-	private static volatile List<Color> PAL_GAME;
+	private static class GamePalette {
 
-	private static volatile List<Color> PAL;
+		static final List<Color> PAL_GAME = buildPalette(PAL_GAME_RAW);
+	}
+
+	private static class Palette {
+
+		static final List<Color> PAL = buildPalette(PAL_RAW);
+	}
 
 	// TODO: do not depend on hard-coded palette - read from the SWOS data files
 	private static final int[] PAL_RAW = new int[]{
@@ -214,18 +220,14 @@ public final class SwosUtils {
 	 * @return the "game" palette - used by the pitch files and rotating R.
 	 */
 	public static List<Color> getGamePalette() {
-		if (PAL_GAME != null)
-			return PAL_GAME;
-		return PAL_GAME = buildPalette(PAL_GAME_RAW);
+		return GamePalette.PAL_GAME;
 	}
 
 	/**
 	 * @return the standard palette.
 	 */
 	public static List<Color> getPalette() {
-		if (PAL != null)
-			return PAL;
-		return PAL = buildPalette(PAL_RAW);
+		return Palette.PAL;
 	}
 
 	private static List<Color> buildPalette(int[] raw) {
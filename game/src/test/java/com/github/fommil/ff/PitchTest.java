@@ -0,0 +1,131 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff;
+
+import org.junit.Test;
+import com.github.fommil.ff.Tactics.BallZone;
+import com.github.fommil.ff.physics.Position;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class PitchTest {
+
+	private final Pitch swos = new Pitch();
+
+	@Test
+	public void testSwosGeometry() {
+		assertEquals(8.1, swos.getMinX(), 1e-9);
+		assertEquals(59.0, swos.getMaxX(), 1e-9);
+		assertEquals(11.1, swos.getMinY(), 1e-9);
+		assertEquals(75.1, swos.getMaxY(), 1e-9);
+		// the goal lines are the front of the goals
+		assertEquals(swos.getMaxY(), swos.getGoalTop().y - swos.getGoalDepth() / 2, 1e-9);
+		assertEquals(swos.getMinY(), swos.getGoalBottom().y + swos.getGoalDepth() / 2, 1e-9);
+		// shared, because they are immutable
+		assertSame(swos.getCentre(), swos.getCentre());
+	}
+
+	// the original BallZone.getIndex, before it was moved to Pitch
+	private static int getIndex(double x, double y, Position lower, Position upper) {
+		double width = upper.x - lower.x;
+		double height = upper.y - lower.y;
+
+		int xx = (int) (5 * (upper.x - x) / width);
+		int yy = (int) (7 * (y - lower.y) / height);
+
+		return Math.max(0, Math.min(xx, 4)) + 5 * Math.max(0, Math.min(yy, 6));
+	}
+
+	@Test
+	public void testBallZone() {
+		Position lower = swos.getPitchLowerLeft();
+		Position upper = swos.getPitchUpperRight();
+		for (double x = lower.x - 5; x < upper.x + 5; x += 0.7) {
+			for (double y = lower.y - 5; y < upper.y + 5; y += 0.7) {
+				int expected = getIndex(x, y, lower, upper);
+				assertEquals(expected, swos.getBallZone(x, y));
+				assertEquals(expected, new BallZone(new Position(x, y, 0), swos).getIndex());
+			}
+		}
+		// either side of the zone boundaries, which are a fifth of the width and a
+		// seventh of the length apart
+		double width = upper.x - lower.x;
+		double height = upper.y - lower.y;
+		double y = lower.y + height / 14;
+		for (int i = 1; i < 5; i++) {
+			double x = upper.x - i * width / 5;
+			assertEquals(i - 1, swos.getBallZone(x + 0.01, y));
+			assertEquals(i, swos.getBallZone(x - 0.01, y));
+		}
+		double x = upper.x - width / 10;
+		for (int j = 1; j < 7; j++) {
+			double yj = lower.y + j * height / 7;
+			assertEquals(5 * (j - 1), swos.getBallZone(x, yj - 0.01));
+			assertEquals(5 * j, swos.getBallZone(x, yj + 0.01));
+		}
+		// clamped outside the pitch
+		assertEquals(4, swos.getBallZone(lower.x - 10, lower.y - 10));
+		assertEquals(30, swos.getBallZone(upper.x + 10, upper.y + 10));
+		// (0, 0) is team A's right defending corner
+		assertEquals(0, swos.getBallZone(upper.x, lower.y));
+		assertEquals(34, swos.getBallZone(lower.x, upper.y));
+		assertEquals(17, swos.getBallZone(swos.getCentre().x, swos.getCentre().y));
+	}
+
+	@Test
+	public void testOutOfPlay() {
+		Position centre = swos.getCentre();
+		assertFalse(swos.isOutOfPlay(centre.x, centre.y));
+		assertTrue(swos.isOverTouchline(swos.getMinX() - 0.01));
+		assertFalse(swos.isOverGoalLine(centre.y));
+		assertTrue(swos.isOutOfPlay(centre.x, swos.getMaxY() + 0.01));
+		assertEquals(swos.getMaxX(), swos.getNearestTouchline(swos.getMaxX() + 3), 0);
+		assertEquals(swos.getMinX(), swos.getNearestTouchline(swos.getMinX() - 3), 0);
+	}
+
+	@Test
+	public void testPenaltyArea() {
+		Position top = swos.getPenaltySpotTop();
+		Position bottom = swos.getPenaltySpotBottom();
+		assertTrue(swos.isInPenaltyArea(top.x, top.y, Direction.SOUTH));
+		assertFalse(swos.isInPenaltyArea(top.x, top.y, Direction.NORTH));
+		assertTrue(swos.isInPenaltyArea(bottom.x, bottom.y, Direction.NORTH));
+		Position centre = swos.getCentre();
+		assertFalse(swos.isInPenaltyArea(centre.x, centre.y, Direction.NORTH));
+		assertFalse(swos.isInPenaltyArea(swos.getMinX() + 1, top.y, Direction.SOUTH));
+	}
+
+	@Test
+	public void testOtherSizes() {
+		// the same size as SWOS, within half a pixel
+		Pitch same = new Pitch(50.9, 64);
+		assertEquals(swos.getGoalTop().x, same.getGoalTop().x, 0.05);
+		assertEquals(swos.getGoalTop().y, same.getGoalTop().y, 1e-9);
+		assertEquals(swos.getPenaltySpotBottom().y, same.getPenaltySpotBottom().y, 1e-9);
+		assertEquals(swos.getBoundsUpperRight().x, same.getBoundsUpperRight().x, 1e-9);
+
+		Pitch big = new Pitch(68, 105);
+		assertEquals(68, big.getMaxX() - big.getMinX(), 1e-9);
+		assertEquals(105, big.getMaxY() - big.getMinY(), 1e-9);
+		Position centre = big.getCentre();
+		assertEquals(17, big.getBallZone(centre.x, centre.y));
+		assertEquals(centre.x, big.getGoalTop().x, 1e-9);
+		assertEquals(big.getMaxY(), big.getGoalTop().y - big.getGoalDepth() / 2, 1e-9);
+		assertTrue(big.isInPenaltyArea(big.getPenaltySpotTop().x, big.getPenaltySpotTop().y, Direction.SOUTH));
+		assertTrue(big.getBoundsUpperRight().y > big.getGoalTop().y + big.getGoalDepth());
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import java.lang.management.ManagementFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.github.fommil.ff.Pitch;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class BallTrajectoryTest {
+
+	private static final double dt = 0.01;
+
+	private final Position start = new Pitch().getCentre();
+
+	private DummyPhysics physics;
+
+	private Ball ball;
+
+	@Before
+	public void setUp() {
+		physics = new DummyPhysics();
+		ball = physics.createBall();
+		ball.setPosition(start);
+	}
+
+	@After
+	public void clean() {
+		physics.clean();
+	}
+
+	// as GamePhysics, which only damps the ball when it touches something
+	private void step() {
+		ball.setDamping(0);
+		physics.step(dt);
+	}
+
+	private BallTrajectory trajectory() {
+		return new BallTrajectory(ball, GamePhysics.GRAVITY, dt, 3);
+	}
+
+	@Test
+	public void testMatchesPhysics() {
+		double[][] kicks = {{8, 10, 8}, {0, 15, 0}, {0, 5, 12}, {20, 2, 3}};
+		for (double[] kick : kicks) {
+			ball.setPosition(start);
+			ball.setVelocity(kick[0], kick[1], kick[2]);
+			BallTrajectory trajectory = trajectory();
+			assertEquals(start.x, trajectory.getX(0), 1e-9);
+			for (int i = 1; i <= 300; i++) {
+				step();
+				double time = i * dt;
+				assertEquals(ball.getX(), trajectory.getXAt(time), 0.05);
+				assertEquals(ball.getY(), trajectory.getYAt(time), 0.05);
+				assertEquals(ball.getZ(), trajectory.getZAt(time), 0.05);
+			}
+		}
+	}
+
+	@Test
+	public void testTimeToY() {
+		ball.setVelocity(0, 10, 8);
+		BallTrajectory trajectory = trajectory();
+		// the ground damps the ball on the first time step
+		assertEquals(5 / 9.0, trajectory.getTimeToY(start.y + 5), dt);
+		assertEquals(0, trajectory.getTimeToY(start.y), 0);
+		assertTrue(Double.isNaN(trajectory.getTimeToY(start.y - 1)));
+	}
+
+	@Test
+	public void testIntercept() {
+		ball.setVelocity(0, 10, 8);
+		BallTrajectory trajectory = trajectory();
+		// the ball is over their head until it comes back down
+		double t = trajectory.getInterceptTime(start.x, start.y + 5, Player.SPEED, Player.HEIGHT);
+		assertTrue(t > 1);
+		assertTrue(trajectory.getZAt(t) <= Player.HEIGHT);
+		assertEquals(0, trajectory.getInterceptTime(start.x, start.y, Player.SPEED, Player.HEIGHT), 0);
+
+		// run to where the ball stops
+		ball.setVelocity(5, 0, 0);
+		trajectory.invalidate();
+		assertTrue(trajectory.isStopping());
+		int last = trajectory.size() - 1;
+		double distance = 50 - (trajectory.getX(last) - start.x);
+		t = trajectory.getInterceptTime(start.x + 50, start.y, Player.SPEED, Player.HEIGHT);
+		assertEquals(distance / Player.SPEED, t, 1e-9);
+		assertEquals(trajectory.getX(last), trajectory.getXAt(t), 0);
+	}
+
+	@Test
+	public void testDoesNotAllocate() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		ball.setVelocity(8, 10, 8);
+		BallTrajectory trajectory = trajectory();
+		for (int i = 0; i < 1000; i++) {
+			trajectory.invalidate();
+			trajectory.getInterceptTime(start.x, start.y + 5, Player.SPEED, Player.HEIGHT);
+		}
+		long id = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < 1000; i++) {
+			trajectory.invalidate();
+			trajectory.getInterceptTime(start.x, start.y + 5, Player.SPEED, Player.HEIGHT);
+			trajectory.getTimeToY(start.y + 5);
+		}
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+		// allow for the measurement itself
+		assertTrue(allocated + " bytes", allocated < 1024);
+	}
+}
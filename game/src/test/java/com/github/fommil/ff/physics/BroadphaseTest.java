@@ -0,0 +1,120 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+import org.ode4j.ode.DAABBC;
+import org.ode4j.ode.DContactBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.OdeHelper;
+import com.github.fommil.ff.Pitch;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that every {@link Broadphase} finds the same pairs, see {@code BroadphaseBenchmark}
+ * for how long each takes.
+ *
+ * @author Samuel Halliday
+ */
+public class BroadphaseTest {
+
+	private final Pitch pitch = new Pitch();
+
+	private Broadphase[] createBroadphases() {
+		return new Broadphase[]{
+			Broadphase.simple(), Broadphase.hash(), Broadphase.sweepAndPrune(), Broadphase.grid(pitch, 2)
+		};
+	}
+
+	private static final String[] NAMES = {"simple", "hash", "sap", "grid"};
+
+	// only records pairs that are touching, because some strategies are more conservative
+	private static class Recorder implements DNearCallback {
+
+		final Multiset<String> pairs = HashMultiset.create();
+
+		private final DContactBuffer contacts = new DContactBuffer(8);
+
+		@Override
+		public void call(Object data, DGeom o1, DGeom o2) {
+			if (OdeHelper.collide(o1, o2, 8, contacts.getGeomBuffer()) == 0)
+				return;
+			String k1 = key(o1.getAABB());
+			String k2 = key(o2.getAABB());
+			pairs.add(k1.compareTo(k2) < 0 ? k1 + " " + k2 : k2 + " " + k1);
+		}
+
+		private String key(DAABBC aabb) {
+			return aabb.getMin0() + "," + aabb.getMin1() + "," + aabb.getMin2();
+		}
+	}
+
+	@Test
+	public void testSamePairs() throws Exception {
+		for (long seed = 0; seed < 10; seed++) {
+			Multiset<String> expected = null;
+			Broadphase[] broadphases = createBroadphases();
+			for (int i = 0; i < broadphases.length; i++) {
+				DummyPhysics physics = DummyPhysics.createScene(broadphases[i], 22, 50, seed);
+				Recorder recorder = new Recorder();
+				broadphases[i].collide(physics.space, recorder);
+				physics.clean();
+				if (expected == null) {
+					expected = recorder.pairs;
+					assertFalse(expected.isEmpty());
+				} else
+					assertEquals(NAMES[i], expected, recorder.pairs);
+			}
+		}
+	}
+
+	@Test
+	public void testGridDoesNotAllocate() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		Broadphase grid = Broadphase.grid(pitch, 2);
+		DummyPhysics physics = DummyPhysics.createScene(grid, 22, 50, 0);
+		try {
+			DNearCallback ignore = new DNearCallback() {
+
+				@Override
+				public void call(Object data, DGeom o1, DGeom o2) {
+				}
+			};
+			for (int i = 0; i < 1000; i++) {
+				grid.collide(physics.space, ignore);
+			}
+			long id = Thread.currentThread().getId();
+			long overhead = threads.getThreadAllocatedBytes(id);
+			overhead = threads.getThreadAllocatedBytes(id) - overhead;
+			long before = threads.getThreadAllocatedBytes(id);
+			for (int i = 0; i < 1000; i++) {
+				grid.collide(physics.space, ignore);
+			}
+			assertEquals(0, threads.getThreadAllocatedBytes(id) - before - overhead);
+		} finally {
+			physics.clean();
+		}
+	}
+}
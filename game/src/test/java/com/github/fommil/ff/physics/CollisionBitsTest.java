@@ -0,0 +1,67 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import org.junit.Test;
+import com.github.fommil.ff.Direction;
+import static com.github.fommil.ff.physics.CollisionBits.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class CollisionBitsTest {
+
+	// as ODE's broadphase test
+	private boolean tested(long category1, long collide1, long category2, long collide2) {
+		return (category1 & collide2) != 0 || (category2 & collide1) != 0;
+	}
+
+	private boolean players(Direction o1, boolean b1, Direction o2, boolean b2) {
+		return tested(playerCategory(o1, b1), playerCollide(o1, b1), playerCategory(o2, b2), playerCollide(o2, b2));
+	}
+
+	@Test
+	public void testPlayers() {
+		for (boolean b1 : new boolean[]{false, true}) {
+			for (boolean b2 : new boolean[]{false, true}) {
+				assertFalse(players(Direction.NORTH, b1, Direction.NORTH, b2));
+				assertFalse(players(Direction.SOUTH, b1, Direction.SOUTH, b2));
+				assertEquals(b1 || b2, players(Direction.NORTH, b1, Direction.SOUTH, b2));
+				assertEquals(b1 || b2, players(Direction.SOUTH, b1, Direction.NORTH, b2));
+				assertTrue(players(null, b1, Direction.NORTH, b2));
+			}
+		}
+	}
+
+	@Test
+	public void testGoalkeepers() {
+		for (Direction opponent : new Direction[]{Direction.NORTH, Direction.SOUTH}) {
+			assertFalse(tested(GOALKEEPER, GOALKEEPER_COLLIDE, playerCategory(opponent, true), playerCollide(opponent, true)));
+		}
+		assertFalse(tested(GOALKEEPER, GOALKEEPER_COLLIDE, GOALKEEPER, GOALKEEPER_COLLIDE));
+		assertTrue(tested(GOALKEEPER, GOALKEEPER_COLLIDE, BALL, ALL));
+		assertTrue(tested(GOALKEEPER, GOALKEEPER_COLLIDE, GROUND, GROUND_COLLIDE));
+	}
+
+	@Test
+	public void testStatic() {
+		assertFalse(tested(GOAL, GOAL_COLLIDE, GROUND, GROUND_COLLIDE));
+		assertTrue(tested(GOAL, GOAL_COLLIDE, BALL, ALL));
+		assertTrue(tested(GROUND, GROUND_COLLIDE, BALL, ALL));
+		assertTrue(tested(GOAL, GOAL_COLLIDE, playerCategory(Direction.NORTH, false), playerCollide(Direction.NORTH, false)));
+		assertTrue(tested(GROUND, GROUND_COLLIDE, playerCategory(Direction.SOUTH, false), playerCollide(Direction.SOUTH, false)));
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import com.github.fommil.ff.Pitch;
+import com.github.fommil.ff.Team;
+
+/**
+ * Matches between teams with {@link DummyTactics}, for tests of the game play.
+ *
+ * @author Samuel Halliday
+ */
+public class DummyGame {
+
+	public static Team createTeam() {
+		Team team = new Team();
+		team.setCurrentTactics(DummyTactics.create());
+		return team;
+	}
+
+	public static GamePhysics create() {
+		return new GamePhysics(createTeam(), createTeam(), new Pitch());
+	}
+
+	/**
+	 * @param seed
+	 * @param users
+	 * @return a match that is reproducible between JVMs
+	 */
+	public static GamePhysics create(long seed, int users) {
+		return new GamePhysics(createTeam(), createTeam(), new Pitch(), Broadphase.simple(), seed, users);
+	}
+
+	/**
+	 * @param game
+	 * @return the state of the match, bit for bit, to compare matches that should be identical
+	 */
+	public static List<Long> state(GamePhysics game) {
+		List<Long> state = Lists.newArrayList();
+		Ball ball = game.getBall();
+		for (double d : new double[]{ball.getX(), ball.getY(), ball.getZ(), ball.getSpeedSquared(), game.getTimestamp()}) {
+			state.add(Double.doubleToRawLongBits(d));
+		}
+		for (Player p : game.getPlayers()) {
+			for (double d : new double[]{p.getX(), p.getY(), p.getZ(), p.getSpeedSquared(), p.getDirection(), p.getTilt()}) {
+				state.add(Double.doubleToRawLongBits(d));
+			}
+			state.add((long) p.getState().ordinal());
+			state.add(p.isResting() ? 1L : 0L);
+			state.add(p.isKinematic() ? 1L : 0L);
+		}
+		state.add(ball.isResting() ? 1L : 0L);
+		state.add((long) game.getSelected().getShirt());
+		if (game.getSelectedB() != null)
+			state.add((long) game.getSelectedB().getShirt());
+		state.add((long) game.getTick());
+		return state;
+	}
+}
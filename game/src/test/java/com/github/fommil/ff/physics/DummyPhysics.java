@@ -14,10 +14,10 @@
  */
 package com.github.fommil.ff.physics;
 
-import org.ode4j.ode.DGeom.DNearCallback;
 import com.github.fommil.ff.Direction;
 import com.github.fommil.ff.Pitch;
 import com.github.fommil.ff.PlayerStats;
+import java.util.Random;
 
 /**
  *
@@ -27,28 +27,70 @@ public class DummyPhysics extends Physics {
 
 	private final Pitch pitch = new Pitch();
 
+	/**
+	 * @param broadphase
+	 * @param players crowded around the centre spot
+	 * @param balls scattered over the pitch
+	 * @param seed
+	 * @return the same scene for the same seed
+	 */
+	public static DummyPhysics createScene(Broadphase broadphase, int players, int balls, long seed) {
+		Random random = new Random(seed);
+		DummyPhysics physics = new DummyPhysics(broadphase);
+		physics.createGoalpost(Direction.NORTH);
+		physics.createGoalpost(Direction.SOUTH);
+		Position centre = physics.pitch.getCentre();
+		for (int i = 0; i < players; i++) {
+			Player player = physics.createPlayer(i % 11 + 1, new PlayerStats());
+			double x = centre.x + 5 * random.nextGaussian();
+			double y = centre.y + 5 * random.nextGaussian();
+			player.setPosition(new Position(x, y, 0));
+		}
+		Position upper = physics.pitch.getBoundsUpperRight();
+		for (int i = 0; i < balls; i++) {
+			Ball ball = physics.createBall();
+			double x = upper.x * random.nextDouble();
+			double y = upper.y * random.nextDouble();
+			ball.setPosition(new Position(x, y, random.nextDouble()));
+		}
+		return physics;
+	}
+
 	public DummyPhysics() {
 		super(9.81);
 	}
 
+	public DummyPhysics(Broadphase broadphase) {
+		super(9.81, broadphase);
+	}
+
 	@Override
-	protected DNearCallback getCollisionCallback() {
+	protected CollisionCallback getCollisionCallback() {
 		GameCollisionHandler handler = new GameCollisionHandler();
 		return new CollisionCallback(world, joints, handler);
 	}
 
 	public Ball createBall() {
-		Ball ball = new Ball(world, space);
-		return ball;
+		synchronized (ODE_LOCK) {
+			return new Ball(world, space, scratch);
+		}
 	}
 
 	public Player createPlayer(int shirt, PlayerStats stats) {
-		Player player = new Player(shirt, null, stats, world, space);
-		return player;
+		synchronized (ODE_LOCK) {
+			return new Player(shirt, null, stats, world, space, scratch);
+		}
+	}
+
+	public Goalkeeper createGoalkeeper(PlayerStats stats) {
+		synchronized (ODE_LOCK) {
+			return new Goalkeeper(1, null, stats, world, space, scratch);
+		}
 	}
 
 	public Goalpost createGoalpost(Direction direction) {
-		Goalpost goal = new Goalpost(world, space, pitch, direction);
-		return goal;
+		synchronized (ODE_LOCK) {
+			return new Goalpost(world, space, pitch, direction);
+		}
 	}
 }
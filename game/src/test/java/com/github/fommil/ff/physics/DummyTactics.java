@@ -0,0 +1,45 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.github.fommil.ff.Tactics;
+import com.github.fommil.ff.Tactics.BallZone;
+import com.github.fommil.ff.Tactics.PlayerZone;
+
+/**
+ * Synthetic {@link Tactics}, for tests that should not depend on the SWOS data files.
+ *
+ * @author Samuel Halliday
+ */
+public class DummyTactics {
+
+	/**
+	 * @return tactics that spread the players across the pitch and follow the ball
+	 */
+	public static Tactics create() {
+		Tactics tactics = new Tactics("dummy");
+		for (int x = 0; x < 5; x++) {
+			for (int y = 0; y < 7; y++) {
+				BallZone bz = new BallZone(x, y);
+				for (int shirt = 2; shirt <= 11; shirt++) {
+					int px = Math.min(14, Math.max(0, (shirt * 3) % 15 + x - 2));
+					int py = Math.min(15, Math.max(0, (shirt / 4) * 4 + y));
+					tactics.set(bz, shirt, new PlayerZone(px, py));
+				}
+			}
+		}
+		return tactics;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import org.junit.After;
+import org.junit.Test;
+import org.ode4j.math.DVector3;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class GameLoopTest {
+
+	private static final long MS = 1000000L;
+
+	private final DummyPhysics physics = new DummyPhysics();
+
+	@After
+	public void clean() {
+		physics.clean();
+	}
+
+	@Test
+	public void testAccumulate() {
+		GameLoop loop = new GameLoop(physics, 0.01);
+		assertEquals(0.4, loop.advance(4 * MS), 1e-9);
+		assertEquals(0, loop.getTicks());
+		assertEquals(0.0, loop.advance(6 * MS), 1e-9);
+		assertEquals(1, loop.getTicks());
+		assertEquals(0.5, loop.advance(25 * MS), 1e-9);
+		assertEquals(3, loop.getTicks());
+		assertEquals(0.0, loop.advance(5 * MS), 1e-9);
+		assertEquals(4, loop.getTicks());
+		assertEquals(4 * 0.01, physics.time, 1e-9);
+	}
+
+	@Test
+	public void testCatchUpLimit() {
+		GameLoop loop = new GameLoop(physics, 0.01, 5);
+		// a long pause, e.g. garbage collection
+		assertEquals(0.3, loop.advance(1003 * MS), 1e-9);
+		assertEquals(5, loop.getTicks());
+		assertEquals(0.0, loop.advance(7 * MS), 1e-9);
+		assertEquals(6, loop.getTicks());
+	}
+
+	@Test
+	public void testInterpolation() {
+		GamePhysics game = DummyGame.create();
+		try {
+			Ball ball = game.getBall();
+			ball.setVelocity(new DVector3(10, 0, 0));
+			GameLoop loop = new GameLoop(game, 0.01);
+			double alpha = loop.advance(15 * MS);
+			assertEquals(0.5, alpha, 1e-9);
+			double previous = ball.getX(0);
+			double current = ball.getX(1);
+			assertTrue(current > previous);
+			assertEquals((previous + current) / 2, ball.getX(alpha), 1e-9);
+		} finally {
+			game.clean();
+		}
+	}
+}
@@ -17,7 +17,11 @@ package com.github.fommil.ff.physics;
 import com.github.fommil.ff.Direction;
 import com.github.fommil.ff.Pitch;
 
+import com.google.common.collect.Lists;
+import java.util.List;
 import java.util.logging.Logger;
+import org.junit.Test;
+import static org.junit.Assert.*;
 
 /**
  * @author Samuel Halliday
@@ -48,4 +52,64 @@ public class GoalpostTest {
 		}
 		physics.clean();
 	}
+
+	// the goals to each team during a shot at the top goal from in front of it
+	private List<Direction> shoot(double dx, double z, Velocity velocity) {
+		GamePhysics game = DummyGame.create();
+		final List<Direction> goals = Lists.newArrayList();
+		game.addListener(new GameListener() {
+
+			@Override
+			public void goal(Direction facing) {
+				goals.add(facing);
+			}
+
+			@Override
+			public void kick(Player player) {
+			}
+
+			@Override
+			public void bounce(Ball ball) {
+			}
+		});
+		// out of the way
+		for (Player player : game.getPlayers()) {
+			if (player instanceof Goalkeeper)
+				player.setPosition(pitch.getCentre());
+		}
+		Position goal = pitch.getGoalTop();
+		Ball ball = game.getBall();
+		ball.setPosition(new Position(goal.x + dx, goal.y - 3, z));
+		ball.setVelocity(velocity);
+		try {
+			for (int i = 0; i < 200; i++) {
+				game.step(dt);
+			}
+		} finally {
+			game.clean();
+		}
+		return goals;
+	}
+
+	@Test
+	public void testGoal() {
+		// the ball stays in the net, but there is only one goal
+		assertEquals(Lists.newArrayList(Direction.SOUTH), shoot(0, 0, new Velocity(0, 40, 0)));
+	}
+
+	@Test
+	public void testFastShot() {
+		// further than the depth of the goal in one time step
+		assertEquals(Lists.newArrayList(Direction.SOUTH), shoot(0, 0.5, new Velocity(0, 200, 0)));
+	}
+
+	@Test
+	public void testWide() {
+		assertEquals(0, shoot(pitch.getGoalWidth() / 2 + 0.5, 0, new Velocity(0, 40, 0)).size());
+	}
+
+	@Test
+	public void testOverTheBar() {
+		assertEquals(0, shoot(0, pitch.getGoalHeight() + 0.5, new Velocity(0, 20, 5)).size());
+	}
 }
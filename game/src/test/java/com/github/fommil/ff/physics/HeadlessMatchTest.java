@@ -0,0 +1,166 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import org.junit.Test;
+import com.github.fommil.ff.Pitch;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class HeadlessMatchTest {
+
+	private static final Logger log = Logger.getLogger(HeadlessMatchTest.class.getName());
+
+	/**
+	 * Plays a short match, in a JVM started by {@link #testNoAwt()}.
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		new HeadlessMatch(DummyGame.createTeam(), DummyGame.createTeam(), new Pitch()).play(10);
+	}
+
+	/**
+	 * A fresh JVM, because the test runner (or another test) may already have loaded AWT.
+	 */
+	@Test
+	public void testNoAwt() throws Exception {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(java, "-verbose:class",
+				"-cp", System.getProperty("java.class.path"), HeadlessMatchTest.class.getName());
+		builder.redirectErrorStream(true);
+		Process process = builder.start();
+		List<String> awt = Lists.newArrayList();
+		int loaded = 0;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), Charsets.UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.contains(HeadlessMatch.class.getName()))
+					loaded++;
+				if (line.contains("java.awt."))
+					awt.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		assertEquals(0, process.waitFor());
+		assertTrue("class loading was not logged", loaded > 0);
+		assertTrue(awt.toString(), awt.isEmpty());
+	}
+
+	@Test
+	public void testPlay() throws Exception {
+		HeadlessMatch match = new HeadlessMatch(DummyGame.createTeam(), DummyGame.createTeam(), new Pitch());
+		HeadlessMatch.Result result = match.play(60);
+
+		assertTrue(result.getSeconds() >= 60);
+		assertEquals(6000, result.getTicks(), 1);
+		assertTrue(result.getGoalsA() >= 0 && result.getGoalsB() >= 0);
+		assertTrue(result.getNanos() > 0);
+	}
+
+	@Test
+	public void testKickOff() {
+		GamePhysics game = DummyGame.create();
+		try {
+			List<Position> start = Lists.newArrayList();
+			for (Player p : game.getPlayers()) {
+				start.add(p.getPosition());
+			}
+			game.getBall().setVelocity(10, 20, 5);
+			game.setUserActions(Action.UP.mask() | Action.RIGHT.mask(), 0);
+			for (int i = 0; i < 200; i++) {
+				game.step(0.01);
+			}
+			game.setUserActions(0, 0);
+
+			game.kickOff();
+			Position centre = game.getPitch().getCentre();
+			Ball ball = game.getBall();
+			assertEquals(centre.x, ball.getX(), 0.001);
+			assertEquals(centre.y, ball.getY(), 0.001);
+			assertEquals(0, ball.getSpeedSquared(), 0);
+			int i = 0;
+			for (Player p : game.getPlayers()) {
+				assertEquals(start.get(i).x, p.getX(), 0.001);
+				assertEquals(start.get(i).y, p.getY(), 0.001);
+				assertEquals(0, p.getSpeedSquared(), 0);
+				assertFalse(p.isKinematic());
+				i++;
+			}
+
+			game.step(0.01);
+			for (Player p : game.getPlayers()) {
+				assertEquals(Player.PlayerState.RUN, p.getState());
+			}
+		} finally {
+			game.clean();
+		}
+	}
+
+	/**
+	 * Plays the same match on an increasing number of threads, logging the throughput.
+	 * Matches are isolated if every result is the same, bit for bit, as the first one,
+	 * which is played alone.
+	 */
+	@Test
+	public void testScaling() throws Exception {
+		int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		HeadlessMatch.Result expected = null;
+		for (int threads = 1; threads <= maxThreads; threads++) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<HeadlessMatch.Result>> futures = Lists.newArrayList();
+				long start = System.nanoTime();
+				for (int i = 0; i < 2 * threads; i++) {
+					futures.add(executor.submit(new Callable<HeadlessMatch.Result>() {
+
+						@Override
+						public HeadlessMatch.Result call() throws Exception {
+							return new HeadlessMatch(DummyGame.createTeam(), DummyGame.createTeam(), new Pitch()).play(10);
+						}
+					}));
+				}
+				for (Future<HeadlessMatch.Result> future : futures) {
+					HeadlessMatch.Result result = future.get();
+					if (expected == null)
+						expected = result;
+					assertEquals(expected.getTicks(), result.getTicks());
+					assertEquals(expected.getGoalsA(), result.getGoalsA());
+					assertEquals(expected.getGoalsB(), result.getGoalsB());
+					assertEquals(expected.getFingerprint(), result.getFingerprint());
+				}
+				double seconds = (System.nanoTime() - start) / 1000000000.0;
+				log.info(threads + " threads: " + (futures.size() / seconds) + " matches per second");
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+}
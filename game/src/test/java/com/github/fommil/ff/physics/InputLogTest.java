@@ -0,0 +1,108 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class InputLogTest {
+
+	private static final double dt = 0.01;
+
+	private static final long SEED = 1234567890L;
+
+	private GamePhysics createGame() {
+		return DummyGame.create(SEED, 1);
+	}
+
+	@Test
+	public void testPack() {
+		EnumSet<Action> actions = EnumSet.of(Action.UP, Action.KICK, Action.CHANGE);
+		EnumSet<Aftertouch> aftertouches = EnumSet.of(Aftertouch.LEFT);
+		int input = InputLog.pack(actions, aftertouches);
+		assertEquals(actions, InputLog.getActions(input));
+		assertEquals(aftertouches, InputLog.getAftertouches(input));
+	}
+
+	@Test
+	public void testPackMasks() {
+		for (int actions = 0; actions <= Action.ALL; actions++) {
+			for (int aftertouches = 0; aftertouches <= Aftertouch.ALL; aftertouches++) {
+				int input = InputLog.pack(actions, aftertouches);
+				assertEquals(input, InputLog.pack(InputLog.getActions(input), InputLog.getAftertouches(input)));
+				assertEquals(actions, InputLog.getActionMask(input));
+				assertEquals(aftertouches, InputLog.getAftertouchMask(input));
+				assertEquals(actions, Action.mask(InputLog.getActions(input)));
+			}
+		}
+	}
+
+	@Test
+	public void testMaskVectors() {
+		for (int mask = 0; mask <= Action.ALL; mask++) {
+			double x = 0, y = 0;
+			if (Action.has(mask, Action.RIGHT))
+				x++;
+			if (Action.has(mask, Action.LEFT))
+				x--;
+			if (Action.has(mask, Action.UP))
+				y++;
+			if (Action.has(mask, Action.DOWN))
+				y--;
+			double length = Math.sqrt(x * x + y * y);
+			assertEquals(length == 0 ? 0 : x / length, Action.getX(mask), 1e-15);
+			assertEquals(length == 0 ? 0 : y / length, Action.getY(mask), 1e-15);
+		}
+		assertEquals(1, Aftertouch.getX(Aftertouch.RIGHT.mask()), 0);
+		assertEquals(0, Aftertouch.getX(Aftertouch.LEFT.mask() | Aftertouch.RIGHT.mask()), 0);
+		assertEquals(-Math.sqrt(0.5), Aftertouch.getY(Aftertouch.DOWN.mask() | Aftertouch.LEFT.mask()), 1e-15);
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		int ticks = 3000;
+		InputLog log = new InputLog(SEED);
+		GamePhysics recorded = createGame();
+		ComputerController controller = new ComputerController(recorded);
+		recorded.record(log);
+		for (int i = 0; i < ticks; i++) {
+			controller.update();
+			recorded.step(dt);
+		}
+		List<Long> expected = DummyGame.state(recorded);
+		recorded.clean();
+		assertEquals(ticks, log.size());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		log.write(bytes);
+		InputLog read = InputLog.read(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals(ticks, read.size());
+
+		GamePhysics replayed = createGame();
+		replayed.replay(read);
+		for (int i = 0; i < ticks; i++) {
+			replayed.step(dt);
+		}
+		assertEquals(expected, DummyGame.state(replayed));
+		replayed.clean();
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.github.fommil.ff.Pitch;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class LevelOfDetailTest {
+
+	private static final double dt = 0.01;
+
+	// as GamePhysics
+	private static final double NEAR = 10;
+
+	private GamePhysics game;
+
+	private ComputerController controller;
+
+	@Before
+	public void setUp() {
+		game = DummyGame.create();
+		controller = new ComputerController(game);
+	}
+
+	@After
+	public void clean() {
+		game.clean();
+	}
+
+	private void step(int ticks) {
+		for (int i = 0; i < ticks; i++) {
+			controller.update();
+			game.step(dt);
+		}
+	}
+
+	private Player firstResting() {
+		for (Player p : game.getPlayers()) {
+			if (p.isResting())
+				return p;
+		}
+		return null;
+	}
+
+	@Test
+	public void testRest() {
+		step(300);
+		int resting = 0;
+		for (Player p : game.getPlayers()) {
+			if (!p.isResting())
+				continue;
+			resting++;
+			assertTrue(p.getShirt() + " is near the ball", p.distanceSquared(game.getBall()) > NEAR * NEAR);
+			assertEquals(0, p.getSpeedSquared(), 0);
+		}
+		assertTrue(resting > 0);
+	}
+
+	@Test
+	public void testWake() {
+		step(300);
+		Player player = firstResting();
+		assertNotNull(player);
+
+		player.setActions(Action.UP.mask());
+		assertFalse(player.isResting());
+		assertTrue(player.getVelocityY() > 0);
+	}
+
+	@Test
+	public void testKinematic() {
+		step(300);
+		double radius = game.getKinematicRadius();
+		int kinematic = 0;
+		for (Player p : game.getPlayers()) {
+			if (!p.isKinematic())
+				continue;
+			kinematic++;
+			assertEquals(Player.PlayerState.RUN, p.getState());
+			// as of the start of the time step
+			assertTrue(p.getShirt() + " is near the ball", p.distanceSquared(game.getBall()) > (radius - 1) * (radius - 1));
+		}
+		assertTrue(kinematic > 0);
+
+		game.setKinematicRadius(Double.POSITIVE_INFINITY);
+		step(1);
+		for (Player p : game.getPlayers()) {
+			assertFalse(p.isKinematic());
+		}
+	}
+
+	@Test
+	public void testGoalFrame() {
+		Pitch pitch = game.getPitch();
+		Position goal = pitch.getGoalBottom();
+		double post = goal.x - pitch.getGoalWidth() / 2;
+		Player player = game.getSelected();
+		player.setPosition(new Position(post - 1.5, goal.y, 0));
+		game.setUserActions(Action.RIGHT.mask(), 0);
+		for (int i = 0; i < 150; i++) {
+			game.step(dt);
+		}
+		assertTrue("ran through the post to " + player.getX(), player.getX() < post);
+	}
+
+	@Test
+	public void testDisabled() {
+		step(300);
+		assertNotNull(firstResting());
+
+		game.setLevelOfDetail(false);
+		assertNull(firstResting());
+		assertFalse(game.getBall().isResting());
+		step(300);
+		assertNull(firstResting());
+	}
+}
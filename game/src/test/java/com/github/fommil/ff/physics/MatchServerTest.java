@@ -0,0 +1,163 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Lists;
+import java.io.EOFException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.github.fommil.ff.Pitch;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class MatchServerTest {
+
+	private static final int MATCHES = 4;
+
+	private MatchServer server;
+
+	private final List<MatchClient> clients = Lists.newArrayList();
+
+	private final List<SocketChannel> channels = Lists.newArrayList();
+
+	@Before
+	public void setUp() throws Exception {
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		server = new MatchServer(new InetSocketAddress(loopback, 0), 0.01, 5, 2, 1);
+		for (int i = 0; i < MATCHES; i++) {
+			assertEquals(i, server.host(DummyGame.createTeam(), DummyGame.createTeam(), new Pitch(), i));
+		}
+		for (int i = 0; i < 2 * MATCHES; i++) {
+			SocketChannel channel = SocketChannel.open(server.getAddress());
+			MatchClient client = new MatchClient(channel);
+			client.join(i / 2, i % 2);
+			channels.add(channel);
+			clients.add(client);
+		}
+	}
+
+	@After
+	public void clean() throws Exception {
+		server.close();
+		for (SocketChannel channel : channels) {
+			channel.close();
+		}
+	}
+
+	// until every client has received the given number of states
+	private boolean await(long states, long millis) throws Exception {
+		long deadline = System.currentTimeMillis() + millis;
+		while (System.currentTimeMillis() < deadline) {
+			boolean done = true;
+			for (MatchClient client : clients) {
+				client.receive();
+				if (client.getStates() < states)
+					done = false;
+			}
+			if (done)
+				return true;
+			Thread.sleep(5);
+		}
+		return false;
+	}
+
+	@Test
+	public void testStates() throws Exception {
+		assertTrue(await(10, 5000));
+		assertEquals(2 * MATCHES, server.getConnections());
+		for (int i = 0; i < clients.size(); i++) {
+			MatchClient client = clients.get(i);
+			assertEquals(0, client.getTick() % 5);
+			assertTrue(client.getTick() <= server.getGame(i / 2).getTick());
+			assertEquals(22, client.getPlayers());
+			assertTrue(client.getSelected() >= 0);
+			assertTrue(client.getSelectedB() >= 0);
+			assertEquals(0, client.getBallZ(), 0.5);
+		}
+	}
+
+	@Test
+	public void testInput() throws Exception {
+		assertTrue(await(1, 5000));
+		GamePhysics game = server.getGame(1);
+		int packed = InputLog.pack(EnumSet.of(Action.UP, Action.KICK), Collections.<Aftertouch>emptySet());
+		clients.get(3).send(EnumSet.of(Action.UP, Action.KICK), Collections.<Aftertouch>emptySet());
+		long deadline = System.currentTimeMillis() + 5000;
+		while (game.getUserInput(game.getTeamB()) != packed && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(packed, game.getUserInput(game.getTeamB()));
+		assertEquals(0, game.getUserInput(game.getTeamA()));
+
+		// a user that leaves stops playing
+		channels.get(3).close();
+		deadline = System.currentTimeMillis() + 5000;
+		while (game.getUserInput(game.getTeamB()) != 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(0, game.getUserInput(game.getTeamB()));
+	}
+
+	@Test
+	public void testFair() throws Exception {
+		assertTrue(await(20, 10000));
+		int fewest = Integer.MAX_VALUE, most = 0;
+		for (MatchClient client : clients) {
+			fewest = Math.min(fewest, client.getTick());
+			most = Math.max(most, client.getTick());
+		}
+		// matches started together and are stepped at the same rate
+		assertTrue(fewest + " to " + most, most - fewest <= 20);
+		assertTrue(server.getLateness().getCount() > 0);
+	}
+
+	@Test
+	public void testFailedMatch() throws Exception {
+		assertTrue(await(1, 5000));
+		// fails the NaN check at the start of the next time step
+		server.getGame(2).getBall().setVelocity(Double.NaN, 0, 0);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!server.isEnded(2) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(server.isEnded(2));
+
+		// its users are disconnected, the other matches carry on
+		for (int i = 4; i < 6; i++) {
+			try {
+				while (System.currentTimeMillis() < deadline) {
+					clients.get(i).receive();
+					Thread.sleep(5);
+				}
+				fail("still connected");
+			} catch (EOFException e) {
+			}
+		}
+		clients.remove(5);
+		clients.remove(4);
+		long states = clients.get(0).getStates();
+		assertTrue(await(states + 10, 5000));
+		assertFalse(server.isEnded(0));
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Lists;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.github.fommil.ff.Direction;
+import com.github.fommil.ff.Pitch;
+import com.github.fommil.ff.PlayerStats;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class PlayerIndexTest {
+
+	private final Pitch pitch = new Pitch();
+
+	private final Random random = new Random(0);
+
+	private final List<Player> players = Lists.newArrayList();
+
+	private final PlayerIndex.Filter north = new PlayerIndex.Filter() {
+
+		@Override
+		public boolean accept(Player player) {
+			return player.getOpponent() == Direction.NORTH;
+		}
+	};
+
+	private DummyPhysics physics;
+
+	private PlayerIndex index;
+
+	@Before
+	public void setUp() {
+		physics = new DummyPhysics();
+		for (int i = 0; i < 22; i++) {
+			Player player = physics.createPlayer(1 + i % 11, new PlayerStats());
+			player.setOpponent(i < 11 ? Direction.NORTH : Direction.SOUTH);
+			players.add(player);
+		}
+		index = new PlayerIndex(pitch, players, 15);
+	}
+
+	@After
+	public void clean() {
+		physics.clean();
+	}
+
+	// including some off the pitch
+	private Position randomPosition() {
+		Position upper = pitch.getBoundsUpperRight();
+		return new Position(1.2 * random.nextDouble() * upper.x - 5, 1.2 * random.nextDouble() * upper.y - 5, 0);
+	}
+
+	private void scatter() {
+		for (Player player : players) {
+			player.setPosition(randomPosition());
+		}
+		// two players in exactly the same place
+		players.get(3).setPosition(players.get(5).getPosition());
+		index.invalidate();
+	}
+
+	private List<Player> byDistance(final Position p, PlayerIndex.Filter filter) {
+		List<Player> sorted = Lists.newArrayList();
+		for (Player player : players) {
+			if (filter == null || filter.accept(player))
+				sorted.add(player);
+		}
+		// stable, so ties are in the original order
+		Collections.sort(sorted, new Comparator<Player>() {
+
+			@Override
+			public int compare(Player a, Player b) {
+				return Double.compare(a.distanceSquared(p.x, p.y, p.z), b.distanceSquared(p.x, p.y, p.z));
+			}
+		});
+		return sorted;
+	}
+
+	@Test
+	public void testNearest() {
+		for (int i = 0; i < 100; i++) {
+			scatter();
+			for (int j = 0; j < 20; j++) {
+				Position p = randomPosition();
+				assertSame(byDistance(p, null).get(0), index.nearest(p.x, p.y, p.z, null));
+				assertSame(byDistance(p, north).get(0), index.nearest(p.x, p.y, p.z, north));
+				// on top of a player, and of the player that shares their position
+				Position q = players.get(5).getPosition();
+				assertSame(players.get(3), index.nearest(q.x, q.y, q.z, null));
+			}
+		}
+	}
+
+	@Test
+	public void testKNearest() {
+		Player[] out = new Player[22];
+		for (int i = 0; i < 100; i++) {
+			scatter();
+			for (int k = 1; k <= 22; k += 3) {
+				Position p = randomPosition();
+				List<Player> expected = byDistance(p, null).subList(0, k);
+				assertEquals(k, index.nearest(p.x, p.y, p.z, k, null, out));
+				assertEquals(expected, Lists.newArrayList(out).subList(0, k));
+			}
+			Position p = randomPosition();
+			// fewer players than asked for
+			assertEquals(11, index.nearest(p.x, p.y, p.z, 15, north, out));
+			assertEquals(byDistance(p, north), Lists.newArrayList(out).subList(0, 11));
+		}
+	}
+
+	@Test
+	public void testWithin() {
+		Player[] out = new Player[22];
+		for (int i = 0; i < 100; i++) {
+			scatter();
+			Position p = randomPosition();
+			double radius = 30 * random.nextDouble();
+			List<Player> expected = Lists.newArrayList();
+			for (Player player : byDistance(p, north)) {
+				if (player.distanceSquared(p.x, p.y, p.z) <= radius * radius)
+					expected.add(player);
+			}
+			int found = index.within(p.x, p.y, p.z, radius, north, out);
+			assertEquals(expected.size(), found);
+			assertEquals(found, index.within(p.x, p.y, p.z, radius, north, null));
+			List<Player> actual = Lists.newArrayList(out).subList(0, found);
+			assertTrue(actual.containsAll(expected));
+		}
+	}
+}
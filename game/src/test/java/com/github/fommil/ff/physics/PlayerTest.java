@@ -19,8 +19,14 @@ import com.google.common.collect.Sets;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Random;
 import org.junit.Test;
+import org.ode4j.math.DMatrix3;
+import org.ode4j.ode.internal.Rotation;
+import com.github.fommil.ff.Direction;
 import com.github.fommil.ff.Pitch;
+import com.github.fommil.ff.PlayerStats;
+import com.github.fommil.ff.physics.Player.PlayerState;
 import static org.junit.Assert.*;
 
 /**
@@ -81,4 +87,119 @@ public class PlayerTest {
 	public void testTackle() throws Exception {
 		fail("test not written");
 	}
+
+	@Test
+	public void testTurn() throws Exception {
+		DummyPhysics physics = new DummyPhysics();
+		Player player = physics.createPlayer(2, new PlayerStats());
+		player.setOpponent(Direction.NORTH);
+		player.setPosition(pitch.getCentre());
+		for (int i = 0; i < 10; i++) {
+			player.setActions(Action.RIGHT.mask());
+			physics.step(dt);
+			player.update(physics.time, new Random(0));
+		}
+		assertEquals(Math.PI / 2, player.getDirection(), 0.001);
+
+		// a small error in the direction is left alone, a large one is corrected
+		DMatrix3 rotation = new DMatrix3();
+		Rotation.dRFromAxisAndAngle(rotation, 0, 0, -1, Math.PI / 2 + 1e-7);
+		player.body.setRotation(rotation);
+		player.setActions(Action.RIGHT.mask());
+		assertEquals(Math.PI / 2 + 1e-7, player.getDirection(), 1e-9);
+
+		Rotation.dRFromAxisAndAngle(rotation, 0, 0, -1, Math.PI / 2 + 0.1);
+		player.body.setRotation(rotation);
+		player.setActions(Action.RIGHT.mask());
+		assertEquals(Math.PI / 2, player.getDirection(), 1e-9);
+
+		player.setActions(Action.DOWN.mask());
+		assertEquals(Math.PI, Math.abs(player.getDirection()), 1e-9);
+
+		// standing players face the opponent
+		player.setActions(0);
+		assertEquals(0, player.getDirection(), 1e-9);
+		assertEquals(0, player.getSpeedSquared(), 1e-9);
+		physics.clean();
+	}
+
+	@Test
+	public void testKinematic() throws Exception {
+		DummyPhysics physics = new DummyPhysics();
+		Player dynamic = physics.createPlayer(2, new PlayerStats());
+		Player kinematic = physics.createPlayer(3, new PlayerStats());
+		dynamic.setOpponent(Direction.NORTH);
+		kinematic.setOpponent(Direction.NORTH);
+		Position centre = pitch.getCentre();
+		dynamic.setPosition(centre);
+		kinematic.setPosition(new Position(centre.x, centre.y + 5, 0));
+		kinematic.setKinematic(true);
+		assertTrue(kinematic.isKinematic());
+		for (int i = 0; i < 100; i++) {
+			dynamic.setActions(Action.RIGHT.mask());
+			kinematic.setActions(Action.RIGHT.mask());
+			physics.step(dt);
+		}
+		// runs just as fast, without falling into the ground
+		assertEquals(dynamic.getX(), kinematic.getX(), 1e-9);
+		assertEquals(Player.HEIGHT / 2, kinematic.getZ(), 1e-6);
+
+		kinematic.setKinematic(false);
+		assertFalse(kinematic.isKinematic());
+		kinematic.setActions(Action.UP.mask() | Action.HEAD.mask());
+		physics.step(dt);
+		assertTrue(kinematic.getVelocityZ() > 0);
+		physics.clean();
+	}
+
+	@Test
+	public void testDiveIsDynamic() throws Exception {
+		DummyPhysics physics = new DummyPhysics();
+		Goalkeeper keeper = physics.createGoalkeeper(new PlayerStats());
+		keeper.setOpponent(Direction.NORTH);
+		keeper.setPosition(pitch.getCentre());
+		physics.step(dt);
+		keeper.setActions(Action.RIGHT.mask());
+		assertTrue(keeper.canBeKinematic());
+
+		keeper.setActions(Action.DIVE.mask() | Action.RIGHT.mask());
+		assertFalse(keeper.canBeKinematic());
+		physics.step(dt);
+		assertFalse(keeper.canBeKinematic());
+		physics.clean();
+	}
+
+	@Test
+	public void testGetUp() throws Exception {
+		DummyPhysics physics = new DummyPhysics();
+		Player player = physics.createPlayer(2, new PlayerStats());
+		player.setPosition(pitch.getCentre());
+		DMatrix3 lying = new DMatrix3();
+		Rotation.dRFromAxisAndAngle(lying, 1, 0, 0, Math.PI / 2);
+		player.body.setRotation(lying);
+
+		Random uninjured = new Random() {
+
+			@Override
+			public boolean nextBoolean() {
+				return false;
+			}
+		};
+		double time = 0;
+		for (int i = 0; i < 200; i++) {
+			physics.step(dt);
+			time += dt;
+			player.update(time, uninjured);
+			// cached until the next update
+			assertEquals(PlayerState.GROUND, player.getState());
+		}
+		for (int i = 0; i < 10; i++) {
+			physics.step(dt);
+			time += dt;
+			player.update(time, uninjured);
+		}
+		assertEquals(PlayerState.RUN, player.getState());
+		assertEquals(0, player.getTilt(), 0.01);
+		physics.clean();
+	}
 }
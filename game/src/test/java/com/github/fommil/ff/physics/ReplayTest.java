@@ -0,0 +1,116 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class ReplayTest {
+
+	private static final Logger log = Logger.getLogger(ReplayTest.class.getName());
+
+	private static final double dt = 0.01;
+
+	@Test
+	public void testRecordAndSeek() throws Exception {
+		File file = File.createTempFile("replay", ".ffr");
+		file.deleteOnExit();
+		int ticks = 6000;
+		int keyframes = 100;
+
+		GamePhysics game = DummyGame.create();
+		ComputerController controller = new ComputerController(game);
+		int players = Iterables.size(game.getPlayers());
+		// the expected values at some ticks: ball x, y, z, then every player x, y, state
+		Map<Integer, double[]> expected = Maps.newHashMap();
+		ReplayWriter writer = new ReplayWriter(game, new FileOutputStream(file), 1, keyframes);
+		try {
+			for (int i = 1; i <= ticks; i++) {
+				controller.update();
+				game.step(dt);
+				writer.record();
+				if (i % 777 == 0 || i == 1 || i == ticks) {
+					double[] values = new double[3 + 3 * players];
+					Ball ball = game.getBall();
+					values[0] = ball.getX();
+					values[1] = ball.getY();
+					values[2] = ball.getZ();
+					int j = 3;
+					for (Player p : game.getPlayers()) {
+						values[j++] = p.getX();
+						values[j++] = p.getY();
+						values[j++] = p.getState().ordinal();
+					}
+					expected.put(i, values);
+				}
+			}
+		} finally {
+			writer.close();
+			game.clean();
+		}
+
+		long bytesPerSecond = Math.round(file.length() / (ticks * dt));
+		long naive = Math.round((1 + players) * 7 * 8 / dt);
+		log.info("replay is " + bytesPerSecond + " bytes per second, a naive dump is " + naive);
+		assertTrue(bytesPerSecond * 10 < naive);
+
+		ReplayReader reader = new ReplayReader(file);
+		try {
+			assertEquals(ticks + 1, reader.getFrames());
+			assertEquals(players, reader.getPlayers());
+			assertEquals(ticks * dt, reader.getDuration(), 1e-6);
+			// out of order, to exercise seeking backwards
+			List<Integer> order = Lists.newArrayList(expected.keySet());
+			Collections.shuffle(order, new Random(0));
+			for (int tick : order) {
+				reader.seek(tick * dt);
+				assertEquals(tick, reader.getTick());
+				double[] values = expected.get(tick);
+				assertEquals(values[0], reader.getBallX(), 0.001);
+				assertEquals(values[1], reader.getBallY(), 0.001);
+				assertEquals(values[2], reader.getBallZ(), 0.001);
+				int j = 3;
+				for (int p = 0; p < players; p++) {
+					assertEquals(values[j++], reader.getPlayerX(p), 0.001);
+					assertEquals(values[j++], reader.getPlayerY(p), 0.001);
+					assertEquals((int) values[j++], reader.getPlayerState(p).ordinal());
+				}
+			}
+
+			reader.seek(0);
+			int frames = 1;
+			while (reader.next()) {
+				frames++;
+			}
+			assertEquals(ticks + 1, frames);
+			assertEquals(ticks, reader.getTick());
+		} finally {
+			reader.close();
+		}
+	}
+}
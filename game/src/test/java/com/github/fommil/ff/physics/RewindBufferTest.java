@@ -0,0 +1,131 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class RewindBufferTest {
+
+	private static final double dt = 0.01;
+
+	private GamePhysics game;
+
+	private ComputerController controller;
+
+	@Before
+	public void setUp() {
+		game = DummyGame.create();
+		controller = new ComputerController(game);
+	}
+
+	@After
+	public void clean() {
+		game.clean();
+	}
+
+	private void step(RewindBuffer rewind, int ticks) {
+		for (int i = 0; i < ticks; i++) {
+			controller.update();
+			game.step(dt);
+			rewind.capture();
+		}
+	}
+
+	@Test
+	public void testRestore() {
+		RewindBuffer rewind = new RewindBuffer(game, 500);
+		step(rewind, 300);
+		List<Long> at300 = DummyGame.state(game);
+		step(rewind, 200);
+		List<Long> at500 = DummyGame.state(game);
+
+		rewind.restore(300);
+		assertEquals(at300, DummyGame.state(game));
+		rewind.restore(500);
+		assertEquals(at500, DummyGame.state(game));
+
+		step(rewind, 300);
+		assertEquals(800, rewind.getNewest());
+		assertEquals(301, rewind.getOldest());
+		try {
+			rewind.restore(300);
+			fail("overwritten");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testResimulate() {
+		RewindBuffer rewind = new RewindBuffer(game, 500);
+		step(rewind, 300);
+		List<Long> expected = DummyGame.state(game);
+		step(rewind, 200);
+		rewind.restore(200);
+		step(rewind, 100);
+		// the computer controller only depends on the game state
+		assertEquals(expected, DummyGame.state(game));
+		assertEquals(300, rewind.getNewest());
+	}
+
+	@Test
+	public void testCaptureDoesNotAllocate() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		RewindBuffer rewind = new RewindBuffer(game, 100);
+		step(rewind, 100);
+		for (int i = 0; i < 10000; i++) {
+			rewind.capture();
+		}
+		long id = Thread.currentThread().getId();
+		long overhead = threads.getThreadAllocatedBytes(id);
+		overhead = threads.getThreadAllocatedBytes(id) - overhead;
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < 10000; i++) {
+			rewind.capture();
+		}
+		assertEquals(0, threads.getThreadAllocatedBytes(id) - before - overhead);
+	}
+
+	// the random decisions of consecutive ticks, such as injuries, are independent
+	@Test
+	public void testTickSeed() {
+		Random random = new Random();
+		int switches = 0;
+		boolean last = false;
+		for (int tick = 0; tick < 1000; tick++) {
+			random.setSeed(GamePhysics.getTickSeed(game.getSeed(), tick));
+			boolean draw = random.nextBoolean();
+			if (tick > 0 && draw != last)
+				switches++;
+			last = draw;
+		}
+		// around 500, the naive seed + tick never switches
+		assertTrue(switches + " switches", switches > 400 && switches < 600);
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Lists;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class RollbackSessionTest {
+
+	private static final Logger log = Logger.getLogger(RollbackSessionTest.class.getName());
+
+	private static final double dt = 0.01;
+
+	private static final long SEED = 42;
+
+	private DatagramChannel channelA, channelB;
+
+	private final List<GamePhysics> games = Lists.newArrayList();
+
+	@Before
+	public void setUp() throws Exception {
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		channelA = DatagramChannel.open();
+		channelA.socket().bind(new InetSocketAddress(loopback, 0));
+		channelB = DatagramChannel.open();
+		channelB.socket().bind(new InetSocketAddress(loopback, 0));
+	}
+
+	@After
+	public void clean() throws Exception {
+		channelA.close();
+		channelB.close();
+		for (GamePhysics game : games) {
+			game.clean();
+		}
+	}
+
+	private GamePhysics createGame() {
+		GamePhysics game = DummyGame.create(SEED, 2);
+		games.add(game);
+		return game;
+	}
+
+	private void play(long latency, double loss, int ticks) throws Exception {
+		GamePhysics gameA = createGame();
+		GamePhysics gameB = createGame();
+		LinkSimulator linkA = new LinkSimulator(channelA, latency, loss, 1);
+		LinkSimulator linkB = new LinkSimulator(channelB, latency, loss, 2);
+		SocketAddress addressA = channelA.socket().getLocalSocketAddress();
+		SocketAddress addressB = channelB.socket().getLocalSocketAddress();
+		RollbackSession peerA = new RollbackSession(gameA, gameA.getTeamA(), dt, 8, linkA, addressB);
+		RollbackSession peerB = new RollbackSession(gameB, gameB.getTeamB(), dt, 8, linkB, addressA);
+		ComputerController userA = new ComputerController(gameA, gameA.getTeamA());
+		ComputerController userB = new ComputerController(gameB, gameB.getTeamB());
+
+		long start = System.nanoTime();
+		while (peerA.getConfirmed() < ticks || peerB.getConfirmed() < ticks) {
+			boolean stepped = false;
+			if (gameA.getTick() < ticks) {
+				userA.update();
+				stepped |= peerA.advance();
+			} else
+				peerA.poll();
+			if (gameB.getTick() < ticks) {
+				userB.update();
+				stepped |= peerB.advance();
+			} else
+				peerB.poll();
+			if (!stepped)
+				Thread.sleep(1);
+			assertTrue("timed out", System.nanoTime() - start < 60000000000L);
+		}
+		log.info(latency + "ms, " + loss + " loss: " + peerA.getRollbacks() + " rollbacks, "
+				+ peerA.getResimulated() + " re-simulated, " + linkA.getDropped() + " of "
+				+ (linkA.getSent() + linkA.getDropped()) + " dropped");
+
+		assertTrue(peerA.getRollbacks() + peerB.getRollbacks() > 0);
+		assertEquals(ticks, gameA.getTick());
+		assertEquals(ticks, gameB.getTick());
+		assertEquals(DummyGame.state(gameA), DummyGame.state(gameB));
+
+		// the same as playing the inputs without a network
+		GamePhysics offline = createGame();
+		offline.replay(peerA.getInputs());
+		for (int i = 0; i < ticks; i++) {
+			assertEquals(peerA.getInputs().get(i), peerB.getInputs().get(i));
+			offline.step(dt);
+		}
+		assertEquals(DummyGame.state(gameA), DummyGame.state(offline));
+	}
+
+	@Test
+	public void testPerfectLink() throws Exception {
+		play(0, 0, 300);
+	}
+
+	@Test
+	public void testLatencyAndLoss() throws Exception {
+		play(40, 0.2, 300);
+	}
+
+	@Test
+	public void testLinkSimulator() throws Exception {
+		LinkSimulator link = new LinkSimulator(channelA, 20, 0.25, 0);
+		SocketAddress target = channelB.socket().getLocalSocketAddress();
+		channelB.configureBlocking(false);
+		ByteBuffer packet = ByteBuffer.allocate(4);
+		for (int i = 0; i < 1000; i++) {
+			packet.clear();
+			packet.putInt(i).flip();
+			link.send(packet, target);
+		}
+		assertEquals(250, link.getDropped(), 50);
+		assertEquals(0, link.getSent());
+		ByteBuffer received = ByteBuffer.allocate(4);
+		assertNull(channelB.receive(received));
+
+		Thread.sleep(30);
+		link.flush();
+		assertEquals(1000, link.getSent() + link.getDropped());
+	}
+}
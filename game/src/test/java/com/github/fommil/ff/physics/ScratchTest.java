@@ -0,0 +1,118 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Iterables;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.junit.Assume;
+import org.junit.Test;
+import org.ode4j.math.DVector3;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class ScratchTest {
+
+	@Test
+	public void testStack() {
+		Scratch scratch = new Scratch();
+		int mark = scratch.mark();
+		DVector3 a = scratch.vector(1, 2, 3);
+		int inner = scratch.mark();
+		DVector3 b = scratch.vector();
+		assertNotSame(a, b);
+		scratch.release(inner);
+		assertSame(b, scratch.vector());
+		assertEquals(2, a.get1(), 0);
+		scratch.release(mark);
+		assertSame(a, scratch.vector());
+		assertNotSame(scratch.quaternion(), scratch.quaternion());
+
+		try {
+			scratch.release(inner);
+			scratch.release(mark);
+			scratch.release(inner);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testExhausted() {
+		Scratch scratch = new Scratch();
+		for (int i = 0; i < 100; i++) {
+			scratch.quaternion();
+		}
+	}
+
+	// Only the controller calls: the ODE solver and its contact joints allocate in game.step.
+	// Installing JIT compiled code occasionally counts a few hundred bytes against the
+	// thread, even though the same calls allocate nothing when interpreted (-Xint), so the
+	// best of several windows is measured after warming up.
+	@Test
+	public void testControlDoesNotAllocate() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+		allocations.setThreadAllocatedMemoryEnabled(true);
+		long thread = Thread.currentThread().getId();
+
+		GamePhysics game = DummyGame.create();
+		try {
+			for (int i = 0; i < 100; i++) {
+				game.step(0.01);
+			}
+			Player[] players = Iterables.toArray(game.getPlayers(), Player.class);
+			Ball ball = game.getBall();
+
+			// loads classes and compiles the hot methods
+			for (int i = 0; i < 2000; i++) {
+				control(players, ball);
+			}
+			long overhead = allocations.getThreadAllocatedBytes(thread);
+			overhead = allocations.getThreadAllocatedBytes(thread) - overhead;
+			long best = Long.MAX_VALUE;
+			for (int window = 0; window < 10; window++) {
+				long before = allocations.getThreadAllocatedBytes(thread);
+				for (int i = 0; i < 10; i++) {
+					control(players, ball);
+				}
+				best = Math.min(best, allocations.getThreadAllocatedBytes(thread) - before - overhead);
+			}
+			assertEquals(0, best);
+		} finally {
+			game.clean();
+		}
+	}
+
+	// the controller calls that are made for every player on every time step
+	private void control(Player[] players, Ball ball) {
+		for (int i = 0; i < players.length; i++) {
+			Player player = players[i];
+			player.autoPilot(ball.getX(), ball.getY());
+			player.getDirection();
+			player.setActions(Action.KICK.mask() | Action.UP.mask());
+			player.kick(ball);
+		}
+		ball.setAftertouch(true);
+		ball.setVelocity(10, 10, 1);
+		ball.setAftertouch(Aftertouch.LEFT.mask() | Aftertouch.DOWN.mask());
+		ball.setVelocity(10, 10, 1);
+		ball.setAftertouch(Aftertouch.RIGHT.mask() | Aftertouch.UP.mask());
+	}
+}
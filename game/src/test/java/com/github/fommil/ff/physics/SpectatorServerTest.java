@@ -0,0 +1,268 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Lists;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.List;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class SpectatorServerTest {
+
+	private static final Logger log = Logger.getLogger(SpectatorServerTest.class.getName());
+
+	private static final double dt = 0.01;
+
+	private static final int CLIENTS = 200;
+
+	private GamePhysics game;
+
+	private DatagramChannel channel;
+
+	private SpectatorServer server;
+
+	private Thread thread;
+
+	private Selector selector;
+
+	private final List<SpectatorClient> clients = Lists.newArrayList();
+
+	@Before
+	public void setUp() throws Exception {
+		game = DummyGame.create();
+
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		channel = DatagramChannel.open();
+		channel.socket().bind(new InetSocketAddress(loopback, 0));
+		server = new SpectatorServer(game, channel, 10);
+		thread = new Thread(server, "spectators");
+		thread.start();
+
+		SocketAddress address = channel.socket().getLocalSocketAddress();
+		selector = Selector.open();
+		for (int i = 0; i < CLIENTS; i++) {
+			DatagramChannel client = DatagramChannel.open();
+			client.socket().bind(new InetSocketAddress(loopback, 0));
+			SpectatorClient spectator = new SpectatorClient(client, address);
+			client.register(selector, SelectionKey.OP_READ, spectator);
+			clients.add(spectator);
+		}
+	}
+
+	@After
+	public void clean() throws Exception {
+		server.close();
+		thread.join();
+		channel.close();
+		selector.close();
+		for (SpectatorClient client : clients) {
+			client.getChannel().close();
+		}
+		game.clean();
+	}
+
+	// until every client has the snapshot of the current tick
+	private boolean await(long millis) throws Exception {
+		long deadline = System.currentTimeMillis() + millis;
+		while (System.currentTimeMillis() < deadline) {
+			selector.select(10);
+			for (SelectionKey key : selector.selectedKeys()) {
+				((SpectatorClient) key.attachment()).receive();
+			}
+			selector.selectedKeys().clear();
+			boolean done = true;
+			for (SpectatorClient client : clients) {
+				if (client.getSequence() == SpectatorServer.FULL || client.getTick() != game.getTick()) {
+					done = false;
+					break;
+				}
+			}
+			if (done)
+				return true;
+		}
+		return false;
+	}
+
+	private double quantize(double value) {
+		return Math.round(value * SpectatorServer.POSITION_SCALE) / SpectatorServer.POSITION_SCALE;
+	}
+
+	@Test
+	public void testBroadcast() throws Exception {
+		ComputerController controller = new ComputerController(game);
+		assertTrue(await(5000));
+		for (int i = 0; i < 300; i++) {
+			controller.update();
+			game.step(dt);
+			server.publish();
+			if (game.getTick() % server.getTicksPerSnapshot() == 0)
+				await(1000);
+		}
+		assertTrue(await(5000));
+
+		List<Player> players = Lists.newArrayList(game.getPlayers());
+		Ball ball = game.getBall();
+		for (SpectatorClient client : clients) {
+			assertEquals(quantize(ball.getX()), client.getBallX(), 0);
+			assertEquals(quantize(ball.getY()), client.getBallY(), 0);
+			assertEquals(quantize(ball.getZ()), client.getBallZ(), 0);
+			assertEquals(players.indexOf(game.getSelected()), client.getSelected());
+			assertEquals(players.size(), client.getPlayers());
+			for (int i = 0; i < players.size(); i++) {
+				Player player = players.get(i);
+				assertEquals(quantize(player.getX()), client.getPlayerX(i), 0);
+				assertEquals(quantize(player.getY()), client.getPlayerY(i), 0);
+				assertEquals(player.getState(), client.getPlayerState(i));
+				assertEquals(player.getDirection(), client.getPlayerDirection(i), Math.PI / 256);
+				assertEquals(player.getShirt(), client.getShirt(i));
+				assertEquals(player instanceof Goalkeeper, client.isGoalkeeper(i));
+			}
+		}
+
+		// including the UDP and IP headers
+		double seconds = game.getTimestamp();
+		double worst = 0;
+		for (SpectatorClient client : clients) {
+			worst = Math.max(worst, (client.getBytes() + 28 * client.getDatagrams()) / seconds);
+		}
+		long snapshots = server.getSent() / CLIENTS;
+		log.info(worst + " bytes per second per spectator, " + server.getEncodings() + " encodings for "
+				+ server.getSent() + " datagrams");
+		assertTrue(worst < 2048);
+		// spectators that are up to date share the same datagram
+		assertTrue(server.getEncodings() < 3 * snapshots);
+	}
+
+	private void step(int ticks) {
+		for (int i = 0; i < ticks; i++) {
+			game.step(dt);
+			server.publish();
+		}
+	}
+
+	// the first datagram to arrive within the time, or null
+	private ByteBuffer poll(DatagramChannel channel, long millis) throws Exception {
+		ByteBuffer in = ByteBuffer.allocate(SpectatorServer.MAX_DATAGRAM);
+		long deadline = System.currentTimeMillis() + millis;
+		while (System.currentTimeMillis() < deadline) {
+			if (channel.receive(in) != null) {
+				in.flip();
+				return in;
+			}
+			Thread.sleep(1);
+		}
+		return null;
+	}
+
+	private ByteBuffer join(long cookie) {
+		ByteBuffer out = ByteBuffer.allocate(SpectatorServer.JOIN_SIZE);
+		out.putInt(SpectatorServer.MAGIC);
+		out.putInt(SpectatorServer.FULL);
+		out.putLong(cookie);
+		out.flip();
+		return out;
+	}
+
+	@Test
+	public void testHandshake() throws Exception {
+		SocketAddress address = channel.socket().getLocalSocketAddress();
+		DatagramChannel raw = DatagramChannel.open();
+		try {
+			raw.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+			raw.configureBlocking(false);
+
+			// too short to be answered
+			ByteBuffer old = ByteBuffer.allocate(8);
+			old.putInt(SpectatorServer.MAGIC).putInt(SpectatorServer.FULL).flip();
+			raw.send(old, address);
+			step(20);
+			assertNull(poll(raw, 200));
+
+			// a wrong cookie is only challenged, with no amplification
+			raw.send(join(0), address);
+			ByteBuffer challenge = poll(raw, 1000);
+			assertNotNull(challenge);
+			assertEquals(SpectatorServer.JOIN_SIZE, challenge.remaining());
+			assertEquals(SpectatorServer.MAGIC, challenge.getInt());
+			assertEquals(SpectatorServer.CHALLENGE, challenge.getInt());
+			long cookie = challenge.getLong();
+			step(20);
+			assertNull(poll(raw, 200));
+
+			// echoing the cookie joins
+			raw.send(join(cookie), address);
+			ByteBuffer snapshot = poll(raw, 1000);
+			assertNotNull(snapshot);
+			assertEquals(SpectatorServer.MAGIC, snapshot.getInt());
+			assertTrue(snapshot.getInt() >= 0);
+			assertEquals(SpectatorServer.FULL, snapshot.getInt());
+		} finally {
+			raw.close();
+		}
+	}
+
+	@Test
+	public void testMaxSpectators() throws Exception {
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		DatagramChannel full = DatagramChannel.open();
+		full.socket().bind(new InetSocketAddress(loopback, 0));
+		SpectatorServer small = new SpectatorServer(game, full, 10, 1);
+		List<SpectatorClient> spectators = Lists.newArrayList();
+		try {
+			for (int i = 0; i < 2; i++) {
+				DatagramChannel client = DatagramChannel.open();
+				client.socket().bind(new InetSocketAddress(loopback, 0));
+				spectators.add(new SpectatorClient(client, full.socket().getLocalSocketAddress()));
+			}
+			for (int i = 0; i < 20; i++) {
+				game.step(dt);
+				small.publish();
+				small.service();
+				Thread.sleep(10);
+				for (SpectatorClient spectator : spectators) {
+					spectator.receive();
+				}
+			}
+			small.service();
+			int watching = 0;
+			for (SpectatorClient spectator : spectators) {
+				if (spectator.getSequence() != SpectatorServer.FULL)
+					watching++;
+			}
+			assertEquals(1, watching);
+			assertEquals(1, small.getSpectators());
+			assertTrue(small.getRefused() > 0);
+		} finally {
+			small.close();
+			full.close();
+			for (SpectatorClient spectator : spectators) {
+				spectator.getChannel().close();
+			}
+		}
+	}
+}
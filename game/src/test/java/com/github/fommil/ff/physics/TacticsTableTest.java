@@ -0,0 +1,66 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import org.junit.Test;
+import com.github.fommil.ff.Direction;
+import com.github.fommil.ff.Pitch;
+import com.github.fommil.ff.Tactics;
+import com.github.fommil.ff.Tactics.BallZone;
+import com.github.fommil.ff.Tactics.PlayerZone;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class TacticsTableTest {
+
+	private final Pitch pitch = new Pitch();
+
+	@Test
+	public void testSameAsTactics() {
+		Tactics tactics = DummyTactics.create();
+		for (Direction facing : new Direction[]{Direction.NORTH, Direction.SOUTH}) {
+			TacticsTable table = new TacticsTable(tactics, pitch, facing);
+			for (int x = 0; x < 5; x++) {
+				for (int y = 0; y < 7; y++) {
+					BallZone bz = new BallZone(x, y);
+					for (int shirt = 2; shirt < 12; shirt++) {
+						Position centre = tactics.getZone(bz, shirt, facing).getCentre(pitch);
+						assertEquals(centre.x, table.getX(bz.getIndex(), shirt), 0);
+						assertEquals(centre.y, table.getY(bz.getIndex(), shirt), 0);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testChange() {
+		Tactics tactics = DummyTactics.create();
+		TacticsTable table = new TacticsTable(tactics, pitch, Direction.NORTH);
+		assertTrue(table.isCurrent(tactics));
+		assertFalse(table.isCurrent(DummyTactics.create()));
+
+		BallZone bz = new BallZone(2, 3);
+		tactics.set(bz, 7, new PlayerZone(0, 0));
+		assertFalse(table.isCurrent(tactics));
+		table = new TacticsTable(tactics, pitch, Direction.NORTH);
+		assertEquals(new PlayerZone(0, 0).getCentre(pitch).x, table.getX(bz.getIndex(), 7), 0);
+		// flipped for the other team
+		TacticsTable south = new TacticsTable(tactics, pitch, Direction.SOUTH);
+		assertEquals(new PlayerZone(14, 15).getCentre(pitch).y, south.getY(new BallZone(2, 3).getIndex(), 7), 0);
+	}
+}
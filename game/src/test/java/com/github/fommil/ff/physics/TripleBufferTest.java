@@ -0,0 +1,81 @@
+/*
+ * Copyright Samuel Halliday 2013
+ * 
+ * This file is free software: you can redistribute it and/or modify it under the terms of
+ * the GNU General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This file is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ * PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with this file.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.github.fommil.ff.physics;
+
+import com.google.common.collect.Iterables;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Samuel Halliday
+ */
+public class TripleBufferTest {
+
+	@Test
+	public void testHandOver() throws Exception {
+		final TripleBuffer<long[]> buffer = new TripleBuffer<long[]>(new long[64], new long[64], new long[64]);
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		Thread reader = new Thread() {
+
+			@Override
+			public void run() {
+				long last = 0;
+				while (!done.get()) {
+					long[] front = buffer.getFront();
+					long first = front[0];
+					for (long value : front) {
+						if (value != first)
+							failure.set("torn read " + Arrays.toString(front));
+					}
+					if (first < last)
+						failure.set("went back in time " + first + " < " + last);
+					last = first;
+				}
+			}
+		};
+		reader.start();
+		for (long i = 1; i <= 1000000; i++) {
+			Arrays.fill(buffer.getBack(), i);
+			buffer.publish();
+		}
+		done.set(true);
+		reader.join();
+		assertNull(failure.get(), failure.get());
+		assertEquals(1000000, buffer.getFront()[0]);
+	}
+
+	@Test
+	public void testSnapshot() {
+		GamePhysics game = DummyGame.create();
+		try {
+			GameSnapshot snapshot = game.getSnapshot();
+			assertEquals(0, snapshot.getTimestamp(), 0);
+			assertEquals(Iterables.size(game.getPlayers()), snapshot.getPlayers().size());
+			game.step(0.01);
+			game.step(0.01);
+			snapshot = game.getSnapshot();
+			assertEquals(0.02, snapshot.getTimestamp(), 1e-9);
+			assertEquals(game.getBall().getX(), snapshot.getBall().getX(1), 0);
+			assertEquals(game.getSelected().getShirt(), snapshot.getSelected().getShirt());
+			assertTrue(snapshot.getSelected().isSelected());
+		} finally {
+			game.clean();
+		}
+	}
+}